@@ -15,109 +15,347 @@ import javax.swing.*;
  */
 public final class Controller implements ActionListener, WindowListener {
 
+	/**Maximum number of malformed input lines that are listed to the user.*/
+	private static final int MAX_REPORTED_LINES = 10;
+	/**Input file of the referees, and snapshot and journal of the match program that keep the session.*/
+	private static final File REFEREES_IN = new File("RefereesIn.txt"), SNAPSHOT = new File("JavaBall.snapshot"), JOURNAL = new File("JavaBall.journal");
+
 	private GUI mainGUI;
 	private RefereeGUI refGUI;
 	private MatchProgram matchProgram;
+	/**Records every change of the match program as it is made. Null if the session cannot be saved.*/
+	private Journal journal;
 	private Referee tempRef;
+	/**The job that runs or last ran in the background, or null.*/
+	private Job<?> job;
 
 	public Controller() {
 		mainGUI = new GUI(this);
-
-		//Initialises matchProgram object.
-		matchProgram = new MatchProgram();
-		//Initialises the referees from file.
-		initialiseRef();
-
-		//Display the initial referees to the main textArea
-		String displayStr = matchProgram.displayRefereesList();
-		mainGUI.display.setText(displayStr);
+		//The session is restored or the referees are read in the background, so the window responds while a large roster loads.
+		loadSession();
 	}
 
 	/**
-	 * Reads the file referresIn.txt and initialises the referee ArrayList.
+	 * Restores the match program of the last session, unless the input file has been replaced since then, or reads the referees
+	 * from the input file. The snapshot holds the session up to its last compaction and the journal holds every change after it.
+	 * If the user cancels the load, the referees that were read are discarded and the match program starts empty.
 	 */
-	private void initialiseRef()
-	{
-		FileReader reader = null;
-
-		try{
-			try{
-				reader = new FileReader("RefereesIn.txt");
-				// Using scanner to read the file line by line
-				Scanner sc = new Scanner(reader);
-
-				while(sc.hasNextLine())
+	private void loadSession() {
+		startJob(new Job<MatchProgram>(mainGUI, "Loading referees", true) {
+			/**Messages about the session and the input file, shown once the job has ended.*/
+			private String restoreError, saveError;
+			private boolean inputError;
+			private LoadReport report;
+			private Journal started;
+
+			@Override
+			protected MatchProgram work() throws IOException {
+				if(SNAPSHOT.isFile() && SNAPSHOT.lastModified() >= REFEREES_IN.lastModified())
 				{
-					//Reads a line.
-					String line = sc.nextLine();
+					try{
+						MatchProgram restored = MatchProgram.readSnapshot(SNAPSHOT);
+						//Recovering continues the journal, which must not be cut short.
+						uncancellable();
+						started = Journal.recover(JOURNAL, SNAPSHOT, restored);
+						return restored;
+					}
+					catch(InterruptedIOException e)
+					{
+						throw e;
+					}
+					catch(IOException e)
+					{
+						restoreError = e.getMessage();
+					}
+				}
 
-					//Instantiates a Referee object.
-					Referee tempRef = new Referee(line);
+				//Streams the file and inserts every valid referee to a new match program.
+				MatchProgram loaded = new MatchProgram();
+				try{
+					report = RefereeLoader.load(REFEREES_IN, loaded, this);
+				}
+				catch(InterruptedIOException e)
+				{
+					throw e;
+				}
+				catch(IOException e)
+				{
+					inputError = true;
+				}
 
-					//Insert the object to the matchProgram arrayList.
-					matchProgram.insertInitialRef(tempRef);
+				//Starting the journal writes a snapshot, which must not be cut short.
+				uncancellable();
+				try{
+					started = Journal.start(JOURNAL, SNAPSHOT, loaded);
 				}
+				catch(IOException e)
+				{
+					//A snapshot without its journal would restore an old session, so it is removed.
+					SNAPSHOT.delete();
+					saveError = e.getMessage();
+				}
+				return loaded;
+			}
 
-				sc.close();
-			} finally {
-				//If the file exists close it
-				if(reader != null)
+			@Override
+			protected void succeeded(MatchProgram result) {
+				if(restoreError != null)
+				{
+					JOptionPane.showMessageDialog(null, "The saved session could not be restored (" + restoreError + ").\nThe referees are read from the input file.", "Could not restore session", JOptionPane.WARNING_MESSAGE);
+				}
+				if(inputError)
+				{
+					//Error, handle the exception for the non existing file
+					JOptionPane.showMessageDialog(null, "The input file could not be opened", "Could not open input file", JOptionPane.ERROR_MESSAGE);
+				}
+				else if(report != null)
+				{
+					showMalformedLines(report);
+				}
+				if(saveError != null)
 				{
-					reader.close();
+					JOptionPane.showMessageDialog(null, "The session could not be saved (" + saveError + ").\nChanges will only be written to the output files on exit.", "Could not save session", JOptionPane.WARNING_MESSAGE);
 				}
+				journal = started;
+				showReferees(result);
 			}
+
+			@Override
+			protected void failed(Throwable cause) {
+				JOptionPane.showMessageDialog(null, "The referees could not be loaded (" + cause + ").\nThe match program starts without referees and the session is not saved.", "Could not load referees", JOptionPane.ERROR_MESSAGE);
+				showReferees(new MatchProgram());
+			}
+
+			@Override
+			protected void cancelled() {
+				//The referees that were read before the load stopped are discarded with their match program.
+				JOptionPane.showMessageDialog(null, "Loading was cancelled.\nThe match program starts without referees and the session is not saved.", "Loading cancelled", JOptionPane.WARNING_MESSAGE);
+				showReferees(new MatchProgram());
+			}
+		});
+	}
+
+	/**
+	 * Makes a match program the one that the GUI works on and displays its referees in the main table, which follows every
+	 * change of the match program from now on.
+	 * @param loaded	The match program.
+	 */
+	private void showReferees(MatchProgram loaded) {
+		if(matchProgram != null)
+		{
+			Metrics.INSTANCE.unwatch(matchProgram);
 		}
-		catch(IOException e)
+		matchProgram = loaded;
+		Metrics.INSTANCE.watch(matchProgram);
+		mainGUI.refereeTable.setModel(new RefereeTableModel(matchProgram));
+	}
+
+	/**
+	 * Lists the malformed lines of the input file to the user, if there are any.
+	 * @param report	The report of loading the input file.
+	 */
+	private void showMalformedLines(LoadReport report)
+	{
+		if(!report.getMalformedLines().isEmpty())
 		{
-			//Error, handle the exception for the non existing file
-			JOptionPane.showMessageDialog(null, "The input file could not be opened", "Could not open input file", JOptionPane.ERROR_MESSAGE);
+			StringBuilder lines = new StringBuilder("The following lines of the input file were skipped:\n\n");
+			int shown = 0;
+			for(LoadReport.MalformedLine line : report.getMalformedLines())
+			{
+				if(shown++ == MAX_REPORTED_LINES)
+				{
+					lines.append("... and " + (report.getMalformedLines().size() - MAX_REPORTED_LINES) + " more\n");
+					break;
+				}
+				lines.append(line + "\n");
+			}
+			JOptionPane.showMessageDialog(null, lines.toString(), "Malformed input file", JOptionPane.WARNING_MESSAGE);
 		}
 	}
 
+	/**
+	 * Runs a job in the background. The GUI disables its actions while a job runs, so only one job runs at a time.
+	 * @param newJob	The job.
+	 */
+	private void startJob(Job<?> newJob) {
+		job = newJob;
+		job.start();
+	}
+
+	/**
+	 * Returns if a job is running in the background.
+	 * @return
+	 */
+	private boolean isBusy() {
+		return job != null && !job.isDone();
+	}
+
 	/**
 	 * Process that allocates 2 referees to a match.
 	 */
 	private void allocateProcess(){
 
-		int weekNumber = 0, matchArea = 0; 		
-
 		//Gets the week number from the user. We don't need to validate that the value is between 1 and 52 because it comes from a JSpinner which only accepts integers in that range.
-		weekNumber = (int) mainGUI.weekIn.getValue();
+		final int weekNumber = (int) mainGUI.weekIn.getValue();
 
 		//Gets the area that the match is going to take place.
-		matchArea = mainGUI.areaList.getSelectedIndex();
+		final int matchArea = mainGUI.areaList.getSelectedIndex();
 
-		//Checks if there is a match already happening that week.
-		if(matchProgram.getMatch(weekNumber) != null){
-			JOptionPane.showMessageDialog(null, "There is another match at that week!", "Match conflict", JOptionPane.ERROR_MESSAGE);
-			return;
-		}
 		//Gets the level of the match.
-		String matchQual = (String) mainGUI.levelOfMatchList.getSelectedItem();
+		final String matchQual = (String) mainGUI.levelOfMatchList.getSelectedItem();
+
+		//The allocation waits for the lock of the referees, so it runs in the background too. It is too short to be cancelled.
+		startJob(new Job<AllocationResult>(mainGUI, "Allocating referees", false) {
+			@Override
+			protected AllocationResult work() {
+				//A week holds any number of matches. The match program only fails if there aren't two suitable referees free that week.
+				AllocationResult result = matchProgram.allocateMatch(weekNumber, matchArea, matchQual);
+				//Ranks the suitable referees here as well, so that the event dispatch thread only displays them.
+				result.getRanking();
+				return result;
+			}
 
-		matchProgram.allocateRefsToMatch(weekNumber, matchArea, matchQual);
+			@Override
+			protected void succeeded(AllocationResult result) {
+				AllocationStatus status = result.getStatus();
+
+				switch (status) {
+				case ALLOCATED:
+					showAllocation(result);
+					break;
+				case NOT_ENOUGH_REFEREES:
+					JOptionPane.showMessageDialog(null, status.getMessage(), "Not enough referees!", JOptionPane.ERROR_MESSAGE);
+					break;
+				case NOT_ENOUGH_WILLING:
+					JOptionPane.showMessageDialog(null, status.getMessage(), "Not enough suitable referees!", JOptionPane.ERROR_MESSAGE);
+					break;
+				default:
+					JOptionPane.showMessageDialog(null, status.getMessage(), "Invalid match", JOptionPane.ERROR_MESSAGE);
+					break;
+				}
+				//Sets the spinner to minimum value.
+				mainGUI.weekIn.setValue(1);
+			}
+
+			@Override
+			protected void failed(Throwable cause) {
+				JOptionPane.showMessageDialog(null, "The referees could not be allocated (" + cause + ").", "Allocation failed", JOptionPane.ERROR_MESSAGE);
+			}
+
+			@Override
+			protected void cancelled() {
+			}
+		});
 	}
 
 	/**
-	 * Saves the output and then exits the program.
+	 * Displays a list of all the suitable referees of a match in descending order of suitability and the 2 allocated referees.
+	 * The list is only built here, for the dialog, and is not kept by the match.
+	 * @param result	The outcome of the allocation of the match.
 	 */
-	private void saveExit() {		
-		//Saves the output.
-		FileOutput fout = new FileOutput(matchProgram.getMatches());
-		fout.RefOut(matchProgram.getAllRefs());
-		fout.MatchOut();
-
-		//Exits the system normally.
-		System.exit(0);
+	private void showAllocation(AllocationResult result) {
+		//StringBuilder that provides the display of the suitable referees and the 2 most suitable ones.
+		StringBuilder sRefs = new StringBuilder();
+		sRefs.append("List of suitable referees for this match in descending order of suitability.\n\n");
+
+		for (Referee r: result.getRanking()) {
+			sRefs.append(r.getFirstName()).append(' ').append(r.getLastName()).append(", Matches Allocated: ").append(r.getMatchesAllocated()).append('\n');
+		}
+
+		sRefs.append("\nThe two most suitable referees for fixture ").append(result.getMatch().getFixtureNumber())
+				.append(" of week ").append(result.getMatch().getMatchWeekNumber()).append(" are the following: \n\n");
+		sRefs.append(result.getFirstReferee().getFirstName()).append(' ').append(result.getFirstReferee().getLastName()).append('\n');
+		sRefs.append(result.getSecondReferee().getFirstName()).append(' ').append(result.getSecondReferee().getLastName()).append('\n');
+
+		//Prints the information message.
+		JOptionPane.showMessageDialog(null, sRefs.toString(), "", JOptionPane.INFORMATION_MESSAGE);
+	}
+
+	/**
+	 * Saves the output in the background and then exits the program. If the user cancels the save, the previous output files
+	 * are left intact and the program keeps running.
+	 */
+	private void saveExit() {
+		if(isBusy())
+		{
+			JOptionPane.showMessageDialog(null, "Please wait until the running task finishes, or cancel it.", "Task running", JOptionPane.INFORMATION_MESSAGE);
+			return;
+		}
+		startJob(new Job<Void>(mainGUI, "Saving", true) {
+			/**Errors of the files that could not be written, shown once the job has ended.*/
+			private final ArrayList<String> errors = new ArrayList<String>();
+
+			@Override
+			protected Void work() throws IOException {
+				//Saves the output. Each file is replaced only once it has been written completely.
+				FileOutput fout = new FileOutput(matchProgram.getCalendar());
+				try{
+					fout.RefOut(matchProgram.getAllRefsByID(), this);
+				}
+				catch(InterruptedIOException e){
+					throw e;
+				}
+				catch(IOException e){
+					errors.add("There was an error writing the RefereesOut.txt file.");
+				}
+				try{
+					fout.MatchOut();
+				}
+				catch(InterruptedIOException e){
+					throw e;
+				}
+				catch(IOException e){
+					errors.add("There was an error writing the match allocation file.");
+				}
+				//The journal already holds every change of the session, so saving it only forces the last changes to the disk.
+				uncancellable();
+				if(journal != null){
+					try{
+						journal.close();
+					}
+					catch(IOException e){
+						errors.add("There was an error saving the session.");
+					}
+				}
+				return null;
+			}
+
+			@Override
+			protected void succeeded(Void result) {
+				for(String error : errors){
+					JOptionPane.showMessageDialog(null, error, "Write failed", JOptionPane.ERROR_MESSAGE);
+				}
+				//Exits the system normally.
+				System.exit(0);
+			}
+
+			@Override
+			protected void failed(Throwable cause) {
+				JOptionPane.showMessageDialog(null, "The output could not be saved (" + cause + ").", "Write failed", JOptionPane.ERROR_MESSAGE);
+				System.exit(0);
+			}
+
+			@Override
+			protected void cancelled() {
+				JOptionPane.showMessageDialog(null, "Saving was cancelled. The previous output files are left intact.", "Saving cancelled", JOptionPane.INFORMATION_MESSAGE);
+			}
+		});
 	}
 
 	@Override
 	public void actionPerformed(ActionEvent ae) {
 		//Main GUI events:
+		//Cancel button of the running job pressed.
+		if (ae.getSource() == mainGUI.cancelJobButton) {
+			if (job != null) {
+				job.requestCancel();
+			}
+		}
+
 		//Referee -> New  MenuItem pressed.
-		if (ae.getSource() == mainGUI.menuItemNew) {
+		else if (ae.getSource() == mainGUI.menuItemNew) {
 			//Checks if there are less than 12 referees in the list already. If there are less than 12, program allows the adding of the referee. Otherwise, it forbids it.
-			if(matchProgram.getAllRefs().size() < 12 ) {
+			if(matchProgram.getRefCount() < 12 ) {
 				//Instantiates the InsertRefGUI.
 				refGUI = new InsertRefGUI(this);
 			} else {
@@ -128,19 +366,16 @@ public final class Controller implements ActionListener, WindowListener {
 		//Allocate button pressed.
 		else if(ae.getSource() == mainGUI.allocateButton) {
 			allocateProcess();
-			//Sets the spinner to minimum value.
-			mainGUI.weekIn.setValue(1);
-			////Updates the mainGUI display.
-			mainGUI.display.setText(matchProgram.displayRefereesList());
 		}
 
 		//Referee -> Search MenuItem pressed.
 		else if (ae.getSource() == mainGUI.menuItemSearch) {
-			if (matchProgram.getAllRefs().size() == 0) {
+			if (matchProgram.getRefCount() == 0) {
 				JOptionPane.showMessageDialog(null, "The referee list is empty!", "No referees", JOptionPane.ERROR_MESSAGE);
 			} else {
-				//Instantiates a SearchRefGUI.
-				refGUI = new SearchRefGUI(this);				
+				//Instantiates a SearchRefGUI, which suggests referees as the user types.
+				refGUI = new SearchRefGUI(this);
+				new SearchSuggestions(matchProgram, refGUI);
 			}
 		}
 
@@ -158,24 +393,35 @@ public final class Controller implements ActionListener, WindowListener {
 			f.setTitle("Bar Chart");
 			f.setLocationRelativeTo(null);
 
-			//Gets the ArrayList of Referees.
-			ArrayList<Referee> refs = matchProgram.getAllRefs();
+			//Gets the ArrayList of Referees in the order of their ID.
+			ArrayList<Referee> refs = matchProgram.getAllRefsByID();
 
 			//Create two arrays to store matches and id of the referees respectively.
 			int[] matchAlloc = new int[refs.size()];
 			String[] id = new String[refs.size()];			
 
-			//Creates a RefereeIDComparator object that is used to sort Referee objects based on their ID.
-			RefereeIDComparator comparator = new RefereeIDComparator();
-			Collections.sort(refs, comparator);
 			//Populates the two arrays.
-			for(int i = 0; i < matchProgram.getAllRefs().size(); i++)
+			for(int i = 0; i < refs.size(); i++)
 			{				
 				matchAlloc[i] = refs.get(i).getMatchesAllocated();
 				id[i] = refs.get(i).getRefID();
 			}
 
-			f.add(new BarChart(matchAlloc, id));
+			final BarChart chart = new BarChart(matchAlloc, id);
+			f.add(chart);
+
+			//Switches between a bar for every referee and a histogram of the matches. Large rosters start as a histogram.
+			final JCheckBox histogram = new JCheckBox("Histogram of matches", chart.isHistogram());
+			histogram.addActionListener(new ActionListener() {
+				@Override
+				public void actionPerformed(ActionEvent e) {
+					chart.setHistogram(histogram.isSelected());
+				}
+			});
+			JPanel options = new JPanel();
+			options.add(histogram);
+			options.add(new JLabel("Mouse wheel: zoom, drag: scroll, double click: whole range"));
+			f.add(options, java.awt.BorderLayout.NORTH);
 			f.setVisible(true);
 		}
 
@@ -193,8 +439,14 @@ public final class Controller implements ActionListener, WindowListener {
 			String fname = refGUI.firstName.getText().trim();
 			String surname = refGUI.lastName.getText().trim();
 
+			//A referee picked from the suggestions is edited without typing his full name.
+			if(refGUI.suggestions.getSelectedValue() != null) {
+				tempRef = refGUI.suggestions.getSelectedValue();
+				refGUI.dispose();
+				refGUI = new EditRefGUI(this, tempRef);
+			}
 			//Checks if the inputs are not empty or null.
-			if(!fname.isEmpty()  && !surname.isEmpty()) {
+			else if(!fname.isEmpty()  && !surname.isEmpty()) {
 				//Selects the Referee based on his first and last name.
 				Referee search = matchProgram.selectRef(fname, surname);
 
@@ -220,9 +472,13 @@ public final class Controller implements ActionListener, WindowListener {
 				//Gets user's choice regarding a specific Referee's deletion.
 				int choice = JOptionPane.showConfirmDialog(null, "Are you sure you want to delete " + tempRef.getFirstName() + " " + tempRef.getLastName() + "?" , "Delete confirmation", JOptionPane.OK_CANCEL_OPTION);
 
+				//The referee may have been allocated or deleted since the check above, so the deletion checks it again under the lock.
 				if(choice ==  JOptionPane.OK_OPTION){
-					matchProgram.deleteRef(tempRef);
-					JOptionPane.showMessageDialog(null, tempRef.getFirstName() + " " + tempRef.getLastName() + " successfully deleted!", "Successful insertion", JOptionPane.INFORMATION_MESSAGE);					
+					if(matchProgram.deleteUnallocatedRef(tempRef)){
+						JOptionPane.showMessageDialog(null, tempRef.getFirstName() + " " + tempRef.getLastName() + " successfully deleted!", "Successful insertion", JOptionPane.INFORMATION_MESSAGE);
+					}else{
+						JOptionPane.showMessageDialog(null, tempRef.getFirstName() + " " + tempRef.getLastName() + " has been allocated to a match or already deleted!\nReferee can not be deleted.", "Referee can not be deleted", JOptionPane.ERROR_MESSAGE);
+					}
 				}
 			}else{
 				//Prints an error message and does not allow the deletion of the referee.
@@ -230,8 +486,6 @@ public final class Controller implements ActionListener, WindowListener {
 			}
 			//Disposes the GUI
 			refGUI.dispose();
-			//Updates the display.
-			mainGUI.display.setText(matchProgram.displayRefereesList());
 		}
 
 		//Implements insert and update referee.
@@ -280,17 +534,13 @@ public final class Controller implements ActionListener, WindowListener {
 
 				if(choice ==  JOptionPane.OK_OPTION){
 					//Updates the Referee based on the user's inputs.
-					tempRef.setQualification(qualif);
-					tempRef.setLocality(home);
-					tempRef.setWillingToGo(willing);
+					matchProgram.updateRef(tempRef, qualif, home, willing);
 
 					//Confirms the successful update.
 					JOptionPane.showMessageDialog(null, "Referee " + first + " " + surname + " successfully updated!", "Successful update", JOptionPane.INFORMATION_MESSAGE);
 					refGUI.dispose();
 				}
 			}
-			//Updates the display.
-			mainGUI.display.setText(matchProgram.displayRefereesList());
 		}
 		//Cancel button pressed.
 		else if (ae.getSource() == refGUI.cancelButton) {
@@ -0,0 +1,165 @@
+package controller;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.SwingWorker;
+
+import model.ProgressListener;
+import view.GUI;
+
+/**
+ * A long operation of the model, e.g. loading or saving the referees, that runs on a worker thread so that the GUI keeps
+ * responding. The GUI shows its progress while it runs and offers to cancel it, and its outcome is handled on the event
+ * dispatch thread by succeeded, failed or cancelled.
+ * A job is cancelled by interrupting its worker thread, and the model operations stop at their next report of progress.
+ * Unlike SwingWorker.cancel, the outcome is only handled once the worker has actually stopped, so a cancelled job never
+ * keeps changing the model behind the GUI's back. A job stops being cancellable once it has reached a step that must not be
+ * cut short, such as writing the session, and then completes normally.
+ * @author Team C
+ */
+abstract class Job<T> extends SwingWorker<T, Void> implements ProgressListener {
+
+	private final GUI gui;
+	/**Name of the job that the GUI shows while it runs.*/
+	private final String title;
+
+	//The fields below are guarded by this.
+	/**The worker thread while the job runs, or null.*/
+	private Thread worker;
+	private boolean cancellable, cancelRequested;
+
+	/**
+	 * Constructor.
+	 * @param gui	The GUI that shows the progress of the job.
+	 * @param title	Name of the job, e.g. "Loading referees".
+	 * @param cancellable	If the user can cancel the job.
+	 */
+	Job(GUI gui, String title, boolean cancellable) {
+		this.gui = gui;
+		this.title = title;
+		this.cancellable = cancellable;
+	}
+
+	/**
+	 * Shows the job in the GUI and starts it on a worker thread. Must be called on the event dispatch thread.
+	 */
+	void start() {
+		gui.showProgress(title, cancellable);
+		addPropertyChangeListener(new PropertyChangeListener() {
+			@Override
+			public void propertyChange(PropertyChangeEvent e) {
+				//SwingWorker delivers its property changes on the event dispatch thread.
+				if ("progress".equals(e.getPropertyName())) {
+					gui.setProgress((Integer) e.getNewValue());
+				} else if ("cancellable".equals(e.getPropertyName())) {
+					gui.disableCancel();
+				}
+			}
+		});
+		execute();
+	}
+
+	/**
+	 * Asks the job to stop. Does nothing if the job cannot be cancelled any more.
+	 */
+	synchronized void requestCancel() {
+		if (cancellable && !cancelRequested) {
+			cancelRequested = true;
+			if (worker != null) {
+				worker.interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Makes the job complete normally from now on, even if the user asks to cancel it.
+	 * @throws InterruptedIOException	If the job has already been cancelled.
+	 */
+	protected final synchronized void uncancellable() throws InterruptedIOException {
+		if (cancelRequested) {
+			throw new InterruptedIOException(title + " was cancelled");
+		}
+		if (cancellable) {
+			cancellable = false;
+			firePropertyChange("cancellable", true, false);
+		}
+	}
+
+	@Override
+	public void progress(long done, long total) {
+		if (total > 0) {
+			setProgress((int) Math.min(100, done * 100 / total));
+		}
+	}
+
+	@Override
+	protected final T doInBackground() throws Exception {
+		synchronized (this) {
+			if (cancelRequested) {
+				throw new InterruptedIOException(title + " was cancelled");
+			}
+			worker = Thread.currentThread();
+		}
+		try {
+			return work();
+		} finally {
+			synchronized (this) {
+				worker = null;
+				//The worker thread goes back to the pool, so a late interrupt must not leak into the next job.
+				Thread.interrupted();
+			}
+		}
+	}
+
+	@Override
+	protected final void done() {
+		gui.hideProgress();
+		T result;
+		try {
+			result = get();
+		} catch (ExecutionException e) {
+			boolean cancelled;
+			synchronized (this) {
+				cancelled = cancelRequested;
+			}
+			if (cancelled) {
+				cancelled();
+			} else {
+				failed(e.getCause());
+			}
+			return;
+		} catch (InterruptedException e) {
+			//get does not wait once the job is done.
+			Thread.currentThread().interrupt();
+			return;
+		}
+		succeeded(result);
+	}
+
+	/**
+	 * Does the work of the job on the worker thread. Reports its progress through this job, which is a ProgressListener.
+	 * @return	The result that is passed to succeeded.
+	 * @throws Exception	If the job failed or was cancelled.
+	 */
+	protected abstract T work() throws Exception;
+
+	/**
+	 * Handles the result of the job on the event dispatch thread.
+	 * @param result
+	 */
+	protected abstract void succeeded(T result);
+
+	/**
+	 * Handles the failure of the job on the event dispatch thread.
+	 * @param cause	The exception that stopped the job.
+	 */
+	protected abstract void failed(Throwable cause);
+
+	/**
+	 * Handles the cancellation of the job on the event dispatch thread, once the worker has stopped.
+	 */
+	protected abstract void cancelled();
+}
@@ -0,0 +1,255 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+/**
+ * Reads and writes the JSON of the server. parse turns a document into a LinkedHashMap for an object, an ArrayList for an
+ * array, a String, a Long for a whole number, a Double for any other number, a Boolean or null.
+ * @author Team C
+ */
+final class Json {
+
+	/**Deepest nesting of arrays and objects that is parsed, so a hostile document cannot exhaust the stack.*/
+	private static final int MAX_DEPTH = 32;
+
+	private final String text;
+	private int pos;
+
+	private Json(String text) {
+		this.text = text;
+	}
+
+	/**
+	 * Parses a JSON document.
+	 * @param text
+	 * @return	The value of the document.
+	 * @throws IllegalArgumentException	If the text is not a single JSON value.
+	 */
+	static Object parse(String text) {
+		Json parser = new Json(text);
+		Object value = parser.value(0);
+		parser.skipSpaces();
+		if (parser.pos != text.length()) {
+			throw parser.error("Unexpected text after the value");
+		}
+		return value;
+	}
+
+	/**
+	 * Appends a string as a JSON string, or null.
+	 * @param out
+	 * @param str
+	 */
+	static void quote(StringBuilder out, String str) {
+		if (str == null) {
+			out.append("null");
+			return;
+		}
+		out.append('"');
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			switch (c) {
+			case '"':
+				out.append("\\\"");
+				break;
+			case '\\':
+				out.append("\\\\");
+				break;
+			case '\n':
+				out.append("\\n");
+				break;
+			case '\r':
+				out.append("\\r");
+				break;
+			case '\t':
+				out.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					out.append(String.format("\\u%04x", (int) c));
+				} else {
+					out.append(c);
+				}
+			}
+		}
+		out.append('"');
+	}
+
+	private Object value(int depth) {
+		if (depth > MAX_DEPTH) {
+			throw error("Too deeply nested");
+		}
+		skipSpaces();
+		if (pos == text.length()) {
+			throw error("Missing value");
+		}
+		char c = text.charAt(pos);
+		if (c == '{') {
+			return object(depth);
+		} else if (c == '[') {
+			return array(depth);
+		} else if (c == '"') {
+			return string();
+		} else if (c == '-' || (c >= '0' && c <= '9')) {
+			return number();
+		} else if (text.startsWith("true", pos)) {
+			pos += 4;
+			return Boolean.TRUE;
+		} else if (text.startsWith("false", pos)) {
+			pos += 5;
+			return Boolean.FALSE;
+		} else if (text.startsWith("null", pos)) {
+			pos += 4;
+			return null;
+		}
+		throw error("Unexpected character");
+	}
+
+	private LinkedHashMap<String, Object> object(int depth) {
+		LinkedHashMap<String, Object> members = new LinkedHashMap<String, Object>();
+		pos++;
+		skipSpaces();
+		if (consume('}')) {
+			return members;
+		}
+		do {
+			skipSpaces();
+			if (pos == text.length() || text.charAt(pos) != '"') {
+				throw error("Expected a member name");
+			}
+			String name = string();
+			skipSpaces();
+			if (!consume(':')) {
+				throw error("Expected ':'");
+			}
+			members.put(name, value(depth + 1));
+			skipSpaces();
+		} while (consume(','));
+		if (!consume('}')) {
+			throw error("Expected ',' or '}'");
+		}
+		return members;
+	}
+
+	private ArrayList<Object> array(int depth) {
+		ArrayList<Object> elements = new ArrayList<Object>();
+		pos++;
+		skipSpaces();
+		if (consume(']')) {
+			return elements;
+		}
+		do {
+			elements.add(value(depth + 1));
+			skipSpaces();
+		} while (consume(','));
+		if (!consume(']')) {
+			throw error("Expected ',' or ']'");
+		}
+		return elements;
+	}
+
+	private String string() {
+		StringBuilder str = new StringBuilder();
+		pos++;
+		while (pos < text.length()) {
+			char c = text.charAt(pos++);
+			if (c == '"') {
+				return str.toString();
+			} else if (c == '\\') {
+				if (pos == text.length()) {
+					break;
+				}
+				char escaped = text.charAt(pos++);
+				switch (escaped) {
+				case '"':
+				case '\\':
+				case '/':
+					str.append(escaped);
+					break;
+				case 'b':
+					str.append('\b');
+					break;
+				case 'f':
+					str.append('\f');
+					break;
+				case 'n':
+					str.append('\n');
+					break;
+				case 'r':
+					str.append('\r');
+					break;
+				case 't':
+					str.append('\t');
+					break;
+				case 'u':
+					if (pos + 4 > text.length()) {
+						throw error("Invalid escape");
+					}
+					try {
+						str.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+					} catch (NumberFormatException e) {
+						throw error("Invalid escape");
+					}
+					pos += 4;
+					break;
+				default:
+					throw error("Invalid escape");
+				}
+			} else if (c < 0x20) {
+				throw error("Control character in a string");
+			} else {
+				str.append(c);
+			}
+		}
+		throw error("Unterminated string");
+	}
+
+	private Number number() {
+		int start = pos;
+		boolean whole = true;
+		if (text.charAt(pos) == '-') {
+			pos++;
+		}
+		while (pos < text.length()) {
+			char c = text.charAt(pos);
+			if (c == '.' || c == 'e' || c == 'E' || c == '+' || (c == '-' && pos > start)) {
+				whole = false;
+			} else if (c < '0' || c > '9') {
+				break;
+			}
+			pos++;
+		}
+		String number = text.substring(start, pos);
+		try {
+			if (whole) {
+				return Long.valueOf(number);
+			}
+			return Double.valueOf(number);
+		} catch (NumberFormatException e) {
+			throw error("Invalid number");
+		}
+	}
+
+	private boolean consume(char c) {
+		if (pos < text.length() && text.charAt(pos) == c) {
+			pos++;
+			return true;
+		}
+		return false;
+	}
+
+	private void skipSpaces() {
+		while (pos < text.length()) {
+			char c = text.charAt(pos);
+			if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+				return;
+			}
+			pos++;
+		}
+	}
+
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException(message + " at position " + pos);
+	}
+}
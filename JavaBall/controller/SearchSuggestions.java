@@ -0,0 +1,132 @@
+package controller;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+import model.MatchProgram;
+import model.Referee;
+import view.RefereeGUI;
+
+/**
+ * Suggests referees in the search GUI as the user types. Every change of the names restarts a short timer, and once the user
+ * stops typing, the words of both names are searched on a worker thread, so a large roster never holds up the typing.
+ * A search that is overtaken by a newer one is cancelled, and its result is dropped even if it has already been found, so the
+ * list always shows the referees of the latest words. Double clicking a suggestion searches for it.
+ * @author Team C
+ */
+final class SearchSuggestions implements DocumentListener, ActionListener {
+
+	/**Milliseconds without typing before the names are searched.*/
+	private static final int DELAY = 150;
+	/**Largest number of referees suggested.*/
+	private static final int LIMIT = 50;
+
+	private final MatchProgram matchProgram;
+	private final RefereeGUI gui;
+	private final Timer timer;
+	/**The latest search, or null. Only used on the event dispatch thread.*/
+	private SwingWorker<ArrayList<Referee>, Void> search;
+
+	/**
+	 * Constructor that starts suggesting referees in a search GUI.
+	 * @param matchProgram	The match program whose referees are searched.
+	 * @param gui	The search GUI.
+	 */
+	SearchSuggestions(MatchProgram matchProgram, final RefereeGUI gui) {
+		this.matchProgram = matchProgram;
+		this.gui = gui;
+		timer = new Timer(DELAY, this);
+		timer.setRepeats(false);
+
+		gui.firstName.getDocument().addDocumentListener(this);
+		gui.lastName.getDocument().addDocumentListener(this);
+		gui.suggestions.addMouseListener(new MouseAdapter() {
+			@Override
+			public void mouseClicked(MouseEvent e) {
+				if (e.getClickCount() == 2 && gui.suggestions.getSelectedValue() != null) {
+					gui.searchButton.doClick();
+				}
+			}
+		});
+		gui.addWindowListener(new WindowAdapter() {
+			@Override
+			public void windowClosed(WindowEvent e) {
+				timer.stop();
+				cancel();
+			}
+		});
+	}
+
+	@Override
+	public void insertUpdate(DocumentEvent e) {
+		timer.restart();
+	}
+
+	@Override
+	public void removeUpdate(DocumentEvent e) {
+		timer.restart();
+	}
+
+	@Override
+	public void changedUpdate(DocumentEvent e) {
+		timer.restart();
+	}
+
+	/**
+	 * Searches the names once the user has stopped typing.
+	 */
+	@Override
+	public void actionPerformed(ActionEvent e) {
+		cancel();
+		final String query = gui.firstName.getText() + " " + gui.lastName.getText();
+		if (query.trim().isEmpty()) {
+			gui.suggestions.setListData(new Referee[0]);
+			return;
+		}
+		search = new SwingWorker<ArrayList<Referee>, Void>() {
+			@Override
+			protected ArrayList<Referee> doInBackground() {
+				return matchProgram.searchRefs(query, LIMIT);
+			}
+
+			@Override
+			protected void done() {
+				//A newer search replaces this one.
+				if (search != this || isCancelled()) {
+					return;
+				}
+				search = null;
+				try {
+					gui.suggestions.setListData(get().toArray(new Referee[0]));
+				} catch (ExecutionException ex) {
+					gui.suggestions.setListData(new Referee[0]);
+				} catch (InterruptedException ex) {
+					//get does not wait once the search is done.
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		search.execute();
+	}
+
+	/**
+	 * Cancels the running search. Its worker thread is interrupted, which stops the search early.
+	 */
+	private void cancel() {
+		if (search != null) {
+			search.cancel(true);
+			search = null;
+		}
+	}
+}
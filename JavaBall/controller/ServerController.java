@@ -0,0 +1,617 @@
+package controller;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import model.AllocationResult;
+import model.AllocationStatus;
+import model.Match;
+import model.MatchCalendar;
+import model.MatchProgram;
+import model.Metrics;
+import model.Referee;
+
+/**
+ * Serves a match program over a JSON API on localhost, in place of the GUI:
+ * <pre>
+ * GET    /referees?offset=0&amp;limit=100	The referees in the order of their ID, with the total number of referees.
+ * GET    /referees?q=ann+gr&amp;limit=20	The referees whose names or ID start with the words, as the search GUI suggests them.
+ * GET    /referees?firstName=Ann&amp;lastName=Gray	The referee with a full name, or none.
+ * POST   /referees	Inserts a referee: {"firstName", "lastName", "qualification", "home", "willing", "matchesAllocated"}.
+ * GET    /referees/{id}	A referee.
+ * PUT    /referees/{id}	Updates a referee: {"qualification", "home", "willing"}.
+ * DELETE /referees/{id}	Deletes a referee who has no matches.
+ * POST   /matches	Allocates two referees to a match: {"week", "area", "level"}.
+ * GET    /matches?week=12&amp;offset=0&amp;limit=100	The matches of a week, or of every week, in the order of the calendar.
+ * GET    /metrics	The metrics of the program in the Prometheus text format.
+ * </pre>
+ * Areas are written "North", "Central" or "South", and an error is answered as {"error": "..."} with a 4xx status.
+ * Every request runs on a virtual thread of its own where the JVM has them (Java 21 and later), or else on a fixed pool of
+ * threads. The match program guards itself with its lock, so the requests share it without any locking here, and every
+ * referee is written while the match program cannot change, so its fields always belong to the same update.
+ * @author Team C
+ */
+public final class ServerController implements HttpHandler {
+
+	/**Largest request body that is read.*/
+	private static final int MAX_BODY = 64 * 1024;
+	/**Connections that wait to be accepted while the server is busy.*/
+	private static final int BACKLOG = 1024;
+	/**Threads of the pool for every core, when there are no virtual threads. The requests mostly wait for the socket or the lock.*/
+	private static final int THREADS_PER_CORE = 8;
+	private static final int DEFAULT_LIMIT = 100, MAX_LIMIT = 10000, DEFAULT_SUGGESTIONS = 20;
+	private static final String[] AREAS = {"North", "Central", "South"};
+	/**The qualifications that the GUI offers.*/
+	private static final String QUALIFICATION = "[IN]JB[1-4]";
+	private static final String JSON = "application/json; charset=utf-8";
+	/**Sends every response without waiting for the ACK of the previous packet. The server writes the headers and the body
+	 * separately, and with the delayed ACKs of the client every small response would otherwise wait about 40ms.*/
+	private static final String NO_DELAY = "sun.net.httpserver.nodelay";
+
+	private final MatchProgram matchProgram;
+	private HttpServer server;
+	private ExecutorService executor;
+	private boolean virtualThreads;
+
+	/**
+	 * Constructor.
+	 * @param matchProgram	The match program that is served.
+	 */
+	public ServerController(MatchProgram matchProgram) {
+		this.matchProgram = matchProgram;
+	}
+
+	/**
+	 * Starts serving the match program on a port of localhost.
+	 * @param port	The port, or 0 for any free port.
+	 * @return	The address that the server listens to.
+	 * @throws IOException	If the port cannot be bound.
+	 */
+	public synchronized InetSocketAddress start(int port) throws IOException {
+		if (server != null) {
+			throw new IllegalStateException("The server is already running");
+		}
+		if (System.getProperty(NO_DELAY) == null) {
+			System.setProperty(NO_DELAY, "true");
+		}
+		HttpServer created = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+		created.createContext("/", this);
+		executor = newExecutor();
+		created.setExecutor(executor);
+		created.start();
+		server = created;
+		return server.getAddress();
+	}
+
+	/**
+	 * Stops accepting requests, waits for the running ones up to a delay and stops the server.
+	 * @param delaySeconds	Seconds to wait for the running requests.
+	 */
+	public synchronized void stop(int delaySeconds) {
+		if (server == null) {
+			return;
+		}
+		server.stop(delaySeconds);
+		executor.shutdown();
+		try {
+			executor.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		server = null;
+	}
+
+	/**
+	 * Returns if the requests run on virtual threads rather than on a pool.
+	 * @return
+	 */
+	public synchronized boolean usesVirtualThreads() {
+		return virtualThreads;
+	}
+
+	/**
+	 * Returns an executor that runs every task on a new virtual thread, or a fixed pool if the JVM has no virtual threads.
+	 * The virtual threads are found by reflection, so the server builds and runs on Java 8 too.
+	 */
+	private ExecutorService newExecutor() {
+		try {
+			Method perTask = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			ExecutorService virtual = (ExecutorService) perTask.invoke(null);
+			virtualThreads = true;
+			return virtual;
+		} catch (ReflectiveOperationException e) {
+			virtualThreads = false;
+			return Executors.newFixedThreadPool(THREADS_PER_CORE * Runtime.getRuntime().availableProcessors());
+		}
+	}
+
+	@Override
+	public void handle(HttpExchange exchange) throws IOException {
+		try {
+			route(exchange);
+		} catch (ApiException e) {
+			StringBuilder json = new StringBuilder("{");
+			if (e.allocation != null) {
+				json.append("\"status\":");
+				Json.quote(json, e.allocation.name());
+				json.append(',');
+			}
+			json.append("\"error\":");
+			Json.quote(json, e.getMessage());
+			json.append('}');
+			if (e.allow != null) {
+				exchange.getResponseHeaders().set("Allow", e.allow);
+			}
+			send(exchange, e.status, JSON, json);
+		} catch (RuntimeException e) {
+			StringBuilder json = new StringBuilder("{\"error\":");
+			Json.quote(json, "Internal error: " + e);
+			json.append('}');
+			send(exchange, 500, JSON, json);
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Answers a request by its method and path.
+	 */
+	private void route(HttpExchange exchange) throws IOException, ApiException {
+		String method = exchange.getRequestMethod();
+		String[] path = exchange.getRequestURI().getRawPath().replaceAll("^/+|/+$", "").split("/+");
+		Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+
+		if (path.length == 1 && path[0].equals("referees")) {
+			if (method.equals("GET")) {
+				listReferees(exchange, query);
+			} else if (method.equals("POST")) {
+				insertReferee(exchange);
+			} else {
+				throw new ApiException(405, "Method not allowed", "GET, POST");
+			}
+		} else if (path.length == 2 && path[0].equals("referees")) {
+			Referee ref = matchProgram.getRef(decode(path[1]));
+			if (ref == null) {
+				throw new ApiException(404, "No referee with ID " + decode(path[1]));
+			}
+			if (method.equals("GET")) {
+				send(exchange, 200, JSON, referee(ref));
+			} else if (method.equals("PUT")) {
+				updateReferee(exchange, ref);
+			} else if (method.equals("DELETE")) {
+				if (!matchProgram.deleteUnallocatedRef(ref)) {
+					throw new ApiException(409, ref.getRefID() + " has already been allocated to a match or has been deleted");
+				}
+				send(exchange, 204, null, null);
+			} else {
+				throw new ApiException(405, "Method not allowed", "GET, PUT, DELETE");
+			}
+		} else if (path.length == 1 && path[0].equals("matches")) {
+			if (method.equals("GET")) {
+				listMatches(exchange, query);
+			} else if (method.equals("POST")) {
+				allocateMatch(exchange);
+			} else {
+				throw new ApiException(405, "Method not allowed", "GET, POST");
+			}
+		} else if (path.length == 1 && path[0].equals("metrics")) {
+			if (!method.equals("GET")) {
+				throw new ApiException(405, "Method not allowed", "GET");
+			}
+			StringBuilder text = new StringBuilder();
+			Metrics.INSTANCE.writePrometheus(text);
+			send(exchange, 200, "text/plain; version=0.0.4; charset=utf-8", text);
+		} else {
+			throw new ApiException(404, "No such resource");
+		}
+	}
+
+	/**
+	 * Answers GET /referees with the referees of a page, the suggestions of a search or the referee with a full name.
+	 */
+	private void listReferees(HttpExchange exchange, Map<String, String> query) throws IOException, ApiException {
+		List<Referee> refs;
+		int total = -1;
+		if (query.containsKey("q")) {
+			refs = matchProgram.searchRefs(query.get("q"), limit(query, DEFAULT_SUGGESTIONS));
+		} else if (query.containsKey("firstName") || query.containsKey("lastName")) {
+			refs = new ArrayList<Referee>();
+			Referee ref = matchProgram.selectRef(query.get("firstName"), query.get("lastName"));
+			if (ref != null) {
+				refs.add(ref);
+			}
+		} else {
+			total = matchProgram.getRefCount();
+			refs = matchProgram.getRefsByID(offset(query), limit(query, DEFAULT_LIMIT));
+		}
+
+		final List<Referee> page = refs;
+		final StringBuilder json = new StringBuilder("{");
+		if (total >= 0) {
+			json.append("\"total\":").append(total).append(',');
+		}
+		json.append("\"referees\":[");
+		matchProgram.read(new Runnable() {
+			@Override
+			public void run() {
+				for (int i = 0; i < page.size(); i++) {
+					if (i > 0) {
+						json.append(',');
+					}
+					appendReferee(json, page.get(i));
+				}
+			}
+		});
+		json.append("]}");
+		send(exchange, 200, JSON, json);
+	}
+
+	/**
+	 * Answers POST /referees.
+	 */
+	private void insertReferee(HttpExchange exchange) throws IOException, ApiException {
+		Map<String, Object> body = body(exchange);
+		String firstName = name(body, "firstName");
+		String lastName = name(body, "lastName");
+		String qualification = qualification(body);
+		int home = area(body, "home");
+		boolean[] willing = willing(body, home);
+		int matches = body.containsKey("matchesAllocated") ? integer(body, "matchesAllocated") : 0;
+		if (matches < 0) {
+			throw new ApiException(400, "matchesAllocated cannot be negative");
+		}
+
+		Referee ref = matchProgram.insertRefIfAbsent(firstName, lastName, qualification, matches, home, willing);
+		if (ref == null) {
+			throw new ApiException(409, "There is already a referee named " + firstName + " " + lastName);
+		}
+		exchange.getResponseHeaders().set("Location", "/referees/" + ref.getRefID());
+		send(exchange, 201, JSON, referee(ref));
+	}
+
+	/**
+	 * Answers PUT /referees/{id}.
+	 */
+	private void updateReferee(HttpExchange exchange, Referee ref) throws IOException, ApiException {
+		Map<String, Object> body = body(exchange);
+		String qualification = qualification(body);
+		int home = area(body, "home");
+		boolean[] willing = willing(body, home);
+		if (!matchProgram.updateRef(ref, qualification, home, willing)) {
+			throw new ApiException(404, "No referee with ID " + ref.getRefID());
+		}
+		send(exchange, 200, JSON, referee(ref));
+	}
+
+	/**
+	 * Answers POST /matches.
+	 */
+	private void allocateMatch(HttpExchange exchange) throws IOException, ApiException {
+		Map<String, Object> body = body(exchange);
+		int week = integer(body, "week");
+		int area = area(body, "area");
+		String level = string(body, "level");
+
+		AllocationResult result = matchProgram.allocateMatch(week, area, level);
+		AllocationStatus status = result.getStatus();
+		if (status == AllocationStatus.INVALID_MATCH) {
+			throw new ApiException(400, status.getMessage(), status);
+		} else if (status != AllocationStatus.ALLOCATED) {
+			throw new ApiException(409, status.getMessage(), status);
+		}
+		StringBuilder json = new StringBuilder();
+		appendMatch(json, result.getMatch());
+		exchange.getResponseHeaders().set("Location", "/matches?week=" + week);
+		send(exchange, 201, JSON, json);
+	}
+
+	/**
+	 * Answers GET /matches. The calendar is a copy, and a match never changes once it has been allocated.
+	 */
+	private void listMatches(HttpExchange exchange, Map<String, String> query) throws IOException, ApiException {
+		MatchCalendar calendar = matchProgram.getCalendar();
+		int fromWeek = 1, toWeek = MatchCalendar.WEEKS, total = calendar.size();
+		if (query.containsKey("week")) {
+			fromWeek = toWeek = parseInt(query.get("week"), "week");
+			if (fromWeek < 1 || fromWeek > MatchCalendar.WEEKS) {
+				throw new ApiException(400, "week must be from 1 to " + MatchCalendar.WEEKS);
+			}
+			total = calendar.getFixtureCount(fromWeek);
+		}
+		int offset = offset(query), limit = limit(query, DEFAULT_LIMIT);
+
+		StringBuilder json = new StringBuilder("{\"total\":").append(total).append(",\"matches\":[");
+		int index = 0, written = 0;
+		for (Match match : calendar.getWeeks(fromWeek, toWeek)) {
+			if (index++ < offset) {
+				continue;
+			}
+			if (written == limit) {
+				break;
+			}
+			if (written++ > 0) {
+				json.append(',');
+			}
+			appendMatch(json, match);
+		}
+		json.append("]}");
+		send(exchange, 200, JSON, json);
+	}
+
+	/**
+	 * Returns the JSON of a referee, written while the match program cannot change.
+	 */
+	private StringBuilder referee(final Referee ref) {
+		final StringBuilder json = new StringBuilder();
+		matchProgram.read(new Runnable() {
+			@Override
+			public void run() {
+				appendReferee(json, ref);
+			}
+		});
+		return json;
+	}
+
+	private static void appendReferee(StringBuilder json, Referee ref) {
+		json.append("{\"id\":");
+		Json.quote(json, ref.getRefID());
+		json.append(",\"firstName\":");
+		Json.quote(json, ref.getFirstName());
+		json.append(",\"lastName\":");
+		Json.quote(json, ref.getLastName());
+		json.append(",\"qualification\":");
+		Json.quote(json, ref.getQualification());
+		json.append(",\"matchesAllocated\":").append(ref.getMatchesAllocated());
+		json.append(",\"home\":");
+		Json.quote(json, AREAS[ref.getLocality()]);
+		json.append(",\"willing\":[");
+		boolean first = true;
+		for (int area = 0; area < AREAS.length; area++) {
+			if (ref.isWillingToGo(area)) {
+				if (!first) {
+					json.append(',');
+				}
+				Json.quote(json, AREAS[area]);
+				first = false;
+			}
+		}
+		json.append("]}");
+	}
+
+	private static void appendMatch(StringBuilder json, Match match) {
+		json.append("{\"week\":").append(match.getMatchWeekNumber());
+		json.append(",\"fixture\":").append(match.getFixtureNumber());
+		json.append(",\"area\":");
+		Json.quote(json, AREAS[match.getMatchArea()]);
+		json.append(",\"level\":");
+		Json.quote(json, match.getMatchLevel());
+		json.append(",\"referees\":[");
+		Json.quote(json, match.getFirstReferee().getRefID());
+		json.append(',');
+		Json.quote(json, match.getSecondReferee().getRefID());
+		json.append("]}");
+	}
+
+	/**
+	 * Reads the body of a request as a JSON object.
+	 */
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> body(HttpExchange exchange) throws IOException, ApiException {
+		InputStream in = exchange.getRequestBody();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			if (bytes.size() + read > MAX_BODY) {
+				throw new ApiException(413, "The body is larger than " + MAX_BODY + " bytes");
+			}
+			bytes.write(buffer, 0, read);
+		}
+		Object value;
+		try {
+			value = Json.parse(new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+		} catch (IllegalArgumentException e) {
+			throw new ApiException(400, "Invalid JSON: " + e.getMessage());
+		}
+		if (!(value instanceof Map)) {
+			throw new ApiException(400, "The body must be a JSON object");
+		}
+		return (Map<String, Object>) value;
+	}
+
+	private static String string(Map<String, Object> body, String field) throws ApiException {
+		Object value = body.get(field);
+		if (!(value instanceof String)) {
+			throw new ApiException(400, field + " must be a string");
+		}
+		return (String) value;
+	}
+
+	private static int integer(Map<String, Object> body, String field) throws ApiException {
+		Object value = body.get(field);
+		if (!(value instanceof Long) || (Long) value != ((Long) value).intValue()) {
+			throw new ApiException(400, field + " must be a whole number");
+		}
+		return ((Long) value).intValue();
+	}
+
+	/**
+	 * Returns a first or last name. As in the GUI, a name cannot be empty or contain spaces, which separate the fields of the files.
+	 */
+	private static String name(Map<String, Object> body, String field) throws ApiException {
+		String name = string(body, field).trim();
+		if (name.isEmpty() || !name.matches("\\S+")) {
+			throw new ApiException(400, field + " cannot be empty or contain spaces");
+		}
+		return name;
+	}
+
+	private static String qualification(Map<String, Object> body) throws ApiException {
+		String qualification = string(body, "qualification");
+		if (!qualification.matches(QUALIFICATION)) {
+			throw new ApiException(400, "qualification must be IJB1 to IJB4 or NJB1 to NJB4");
+		}
+		return qualification;
+	}
+
+	private static int area(Map<String, Object> body, String field) throws ApiException {
+		return area(string(body, field), field);
+	}
+
+	private static int area(String name, String field) throws ApiException {
+		for (int area = 0; area < AREAS.length; area++) {
+			if (AREAS[area].equalsIgnoreCase(name)) {
+				return area;
+			}
+		}
+		throw new ApiException(400, field + " must be North, Central or South");
+	}
+
+	/**
+	 * Returns the areas that a referee is willing to go, from an array of area names. A referee always goes to his home area.
+	 */
+	private static boolean[] willing(Map<String, Object> body, int home) throws ApiException {
+		boolean[] willing = new boolean[AREAS.length];
+		willing[home] = true;
+		Object value = body.get("willing");
+		if (value == null) {
+			return willing;
+		}
+		if (!(value instanceof List)) {
+			throw new ApiException(400, "willing must be an array of areas");
+		}
+		for (Object area : (List<?>) value) {
+			if (!(area instanceof String)) {
+				throw new ApiException(400, "willing must be an array of areas");
+			}
+			willing[area((String) area, "willing")] = true;
+		}
+		return willing;
+	}
+
+	private static int offset(Map<String, String> query) throws ApiException {
+		if (!query.containsKey("offset")) {
+			return 0;
+		}
+		int offset = parseInt(query.get("offset"), "offset");
+		if (offset < 0) {
+			throw new ApiException(400, "offset cannot be negative");
+		}
+		return offset;
+	}
+
+	private static int limit(Map<String, String> query, int defaultLimit) throws ApiException {
+		if (!query.containsKey("limit")) {
+			return defaultLimit;
+		}
+		int limit = parseInt(query.get("limit"), "limit");
+		if (limit < 0 || limit > MAX_LIMIT) {
+			throw new ApiException(400, "limit must be from 0 to " + MAX_LIMIT);
+		}
+		return limit;
+	}
+
+	private static int parseInt(String value, String parameter) throws ApiException {
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new ApiException(400, parameter + " must be a whole number");
+		}
+	}
+
+	/**
+	 * Returns the parameters of a query string. A parameter that appears twice keeps its last value.
+	 */
+	private static Map<String, String> query(String rawQuery) throws ApiException {
+		HashMap<String, String> parameters = new HashMap<String, String>();
+		if (rawQuery == null || rawQuery.isEmpty()) {
+			return parameters;
+		}
+		for (String parameter : rawQuery.split("&")) {
+			int equals = parameter.indexOf('=');
+			if (equals < 0) {
+				parameters.put(decode(parameter), "");
+			} else {
+				parameters.put(decode(parameter.substring(0, equals)), decode(parameter.substring(equals + 1)));
+			}
+		}
+		return parameters;
+	}
+
+	private static String decode(String str) throws ApiException {
+		try {
+			return URLDecoder.decode(str, "UTF-8");
+		} catch (IllegalArgumentException e) {
+			throw new ApiException(400, "Invalid escape in the URL");
+		} catch (UnsupportedEncodingException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	/**
+	 * Sends a response with a body, or without one if the body is null.
+	 */
+	private static void send(HttpExchange exchange, int status, String contentType, CharSequence body) throws IOException {
+		if (body == null) {
+			exchange.sendResponseHeaders(status, -1);
+			return;
+		}
+		byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", contentType);
+		exchange.sendResponseHeaders(status, bytes.length);
+		OutputStream out = exchange.getResponseBody();
+		out.write(bytes);
+	}
+
+	/**
+	 * A request that is answered with an error status.
+	 */
+	private static final class ApiException extends Exception {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int status;
+		/**The methods of the resource, for a 405 response, or null.*/
+		private final String allow;
+		/**The outcome of a failed allocation, or null.*/
+		private final AllocationStatus allocation;
+
+		ApiException(int status, String message) {
+			this(status, message, null, null);
+		}
+
+		ApiException(int status, String message, String allow) {
+			this(status, message, allow, null);
+		}
+
+		ApiException(int status, String message, AllocationStatus allocation) {
+			this(status, message, null, allocation);
+		}
+
+		private ApiException(int status, String message, String allow, AllocationStatus allocation) {
+			super(message);
+			this.status = status;
+			this.allow = allow;
+			this.allocation = allocation;
+		}
+	}
+}
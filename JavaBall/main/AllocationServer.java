@@ -0,0 +1,85 @@
+package main;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import controller.ServerController;
+import model.*;
+
+/**
+ * Command line entry point that serves the referees and the allocation of matches over a JSON API on localhost, without the GUI.
+ * Usage: java main.AllocationServer [--port N] [RefereesIn.txt]
+ * The server listens to port 8080 unless another port is given, or any free port with --port 0, and starts with the referees of
+ * the file, or none. The API is described in ServerController.
+ * RefereesOut.txt and MatchAllocs.txt are written to the working directory when the server is stopped, as the GUI does when it exits.
+ * Exits with 2 if the arguments are wrong, the referees file could not be read or the port could not be bound.
+ * @author Team C
+ */
+public final class AllocationServer {
+
+	private static final String USAGE = "Usage: java main.AllocationServer [--port N] [referees file]";
+	private static final int DEFAULT_PORT = 8080;
+	/**Seconds that the running requests are given to finish when the server is stopped.*/
+	private static final int STOP_DELAY = 2;
+
+	public static void main(String[] args) {
+		int port = DEFAULT_PORT;
+		String refereesFile = null;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--port") && i + 1 < args.length) {
+				try {
+					port = Integer.parseInt(args[++i]);
+				} catch (NumberFormatException e) {
+					port = -1;
+				}
+				if (port < 0 || port > 65535) {
+					System.err.println(USAGE);
+					System.exit(2);
+				}
+			} else if (refereesFile == null && !args[i].startsWith("--")) {
+				refereesFile = args[i];
+			} else {
+				System.err.println(USAGE);
+				System.exit(2);
+			}
+		}
+
+		Metrics.start();
+		final MatchProgram matchProgram = new MatchProgram();
+		Metrics.INSTANCE.watch(matchProgram);
+		if (refereesFile != null) {
+			try {
+				BatchAllocate.loadReferees(refereesFile, matchProgram);
+			} catch (IOException e) {
+				System.err.println("Could not read the referees file: " + e.getMessage());
+				System.exit(2);
+			}
+		}
+
+		final ServerController server = new ServerController(matchProgram);
+		InetSocketAddress address = null;
+		try {
+			address = server.start(port);
+		} catch (IOException e) {
+			System.err.println("Could not listen to port " + port + ": " + e.getMessage());
+			System.exit(2);
+		}
+
+		Runtime.getRuntime().addShutdownHook(new Thread("javaball-server-shutdown") {
+			@Override
+			public void run() {
+				server.stop(STOP_DELAY);
+				try {
+					FileOutput fout = new FileOutput(matchProgram.getCalendar());
+					fout.RefOut(matchProgram.getAllRefsByID());
+					fout.MatchOut();
+				} catch (IOException e) {
+					System.err.println("Could not write the output files: " + e.getMessage());
+				}
+			}
+		});
+
+		System.out.println("Serving " + matchProgram.getRefCount() + " referees on http://"
+				+ address.getHostString() + ":" + address.getPort() + "/ with "
+				+ (server.usesVirtualThreads() ? "virtual threads" : "a thread pool") + ".");
+	}
+}
@@ -0,0 +1,123 @@
+package main;
+
+import java.io.*;
+import java.util.ArrayList;
+import model.*;
+
+/**
+ * Command line entry point that allocates referees to a whole season of fixtures without the GUI.
+ * Usage: java main.BatchAllocate [--optimal millis | --parallel threads] RefereesIn.txt Fixtures.txt
+ * With --optimal the whole season is allocated at once, balancing the matches and the travel of the referees, and the fixtures
+ * are allocated one by one only if that takes longer than the given milliseconds. With --parallel the fixtures are allocated
+ * one by one, but the given number of threads allocate different weeks at the same time.
+ * Every line of the fixtures file contains the week, the area and the level of a match, e.g. "12 North Senior".
+ * RefereesOut.txt and MatchAllocs.txt are written to the working directory, as the GUI does when it exits.
+ * Exits with 0 if every fixture was allocated, 1 if some fixtures failed and 2 if the input files could not be read.
+ * @author Team C
+ */
+public final class BatchAllocate {
+
+	private static final String USAGE = "Usage: java main.BatchAllocate [--optimal millis | --parallel threads] <referees file> <fixtures file>";
+
+	public static void main(String[] args) {
+		long budget = -1;
+		int threads = 0;
+		int first = 0;
+		if (args.length == 4 && args[0].equals("--optimal")) {
+			try {
+				budget = Long.parseLong(args[1]);
+			} catch (NumberFormatException e) {
+				budget = -1;
+			}
+			if (budget < 0) {
+				System.err.println(USAGE);
+				System.exit(2);
+			}
+			first = 2;
+		} else if (args.length == 4 && args[0].equals("--parallel")) {
+			try {
+				threads = Integer.parseInt(args[1]);
+			} catch (NumberFormatException e) {
+				threads = 0;
+			}
+			if (threads < 1) {
+				System.err.println(USAGE);
+				System.exit(2);
+			}
+			first = 2;
+		} else if (args.length != 2) {
+			System.err.println(USAGE);
+			System.exit(2);
+		}
+
+		Metrics.start();
+		MatchProgram matchProgram = new MatchProgram();
+		Metrics.INSTANCE.watch(matchProgram);
+		ArrayList<Fixture> fixtures = new ArrayList<Fixture>();
+		try {
+			loadReferees(args[first], matchProgram);
+			loadFixtures(args[first + 1], fixtures);
+		} catch (IOException e) {
+			System.err.println("Could not read the input files: " + e.getMessage());
+			System.exit(2);
+		}
+
+		SeasonResult result;
+		if (budget >= 0) {
+			result = matchProgram.allocateSeasonOptimally(fixtures, budget);
+		} else if (threads > 0) {
+			result = matchProgram.allocateSeasonConcurrently(fixtures, threads);
+		} else {
+			result = matchProgram.allocateSeason(fixtures);
+		}
+
+		try {
+			FileOutput fout = new FileOutput(matchProgram.getCalendar());
+			fout.RefOut(matchProgram.getAllRefsByID());
+			fout.MatchOut();
+		} catch (IOException e) {
+			System.err.println("Could not write the output files: " + e.getMessage());
+			System.exit(2);
+		}
+
+		System.out.println("Allocated " + result.getAllocated().size() + " of " + fixtures.size() + " fixtures.");
+		for (SeasonResult.Failure failure : result.getFailures()) {
+			System.out.println("Failed: " + failure);
+		}
+		System.exit(result.isComplete() ? 0 : 1);
+	}
+
+	/**
+	 * Reads the referees file and inserts every referee to the match program. Lines that are not valid referees are reported and skipped.
+	 */
+	static void loadReferees(String fileName, MatchProgram matchProgram) throws IOException {
+		LoadReport report = RefereeLoader.load(new File(fileName), matchProgram);
+		for (LoadReport.MalformedLine line : report.getMalformedLines()) {
+			System.err.println(fileName + ":" + line.getLineNumber() + ": " + line.getMessage());
+		}
+	}
+
+	/**
+	 * Reads the fixtures file. Empty lines and lines starting with # are ignored. Lines that are not valid fixtures are reported and skipped.
+	 */
+	static void loadFixtures(String fileName, ArrayList<Fixture> fixtures) throws IOException {
+		BufferedReader reader = new BufferedReader(new FileReader(fileName));
+		try {
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				if (line.trim().isEmpty() || line.trim().startsWith("#")) {
+					continue;
+				}
+				try {
+					fixtures.add(Fixture.parse(line));
+				} catch (IllegalArgumentException e) {
+					System.err.println(fileName + ":" + lineNumber + ": " + e.getMessage());
+				}
+			}
+		} finally {
+			reader.close();
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package main;
+
+import java.io.File;
+import java.io.IOException;
+import model.DataGenerator;
+
+/**
+ * Command line entry point that generates a synthetic referees file and optionally a fixtures file for load tests.
+ * Usage: java main.GenerateData [options] refereeCount refereesFile [fixtureCount fixturesFile]
+ * Options:
+ *   --seed n                 Seed of the random choices. The same seed and options give the same files.
+ *   --areas north,central,south   Relative weights of the areas of the referees and the fixtures.
+ *   --seniors p              Probability of a referee having a senior qualification.
+ *   --willing adjacent,far   Probabilities of a referee being willing to go to an adjacent and to the far area.
+ *   --max-matches n          Largest number of matches that a referee has already been allocated.
+ *   --senior-matches p       Probability of a fixture being a Senior match.
+ * Exits with 0 if the files were written and 2 if the arguments are invalid or a file could not be written.
+ * @author Team C
+ */
+public final class GenerateData {
+
+	private static final String USAGE = "Usage: java main.GenerateData [--seed n] [--areas north,central,south] [--seniors p]"
+			+ " [--willing adjacent,far] [--max-matches n] [--senior-matches p] <referee count> <referees file> [<fixture count> <fixtures file>]";
+
+	public static void main(String[] args) {
+		long seed = 1;
+		double[] areas = null, willing = null;
+		Double seniors = null, seniorMatches = null;
+		Integer maxMatches = null;
+
+		int i = 0;
+		try {
+			for (; i < args.length && args[i].startsWith("--"); i += 2) {
+				if (i + 1 == args.length) {
+					usage();
+				}
+				String value = args[i + 1];
+				switch (args[i]) {
+				case "--seed":
+					seed = Long.parseLong(value);
+					break;
+				case "--areas":
+					areas = numbers(value, 3);
+					break;
+				case "--seniors":
+					seniors = Double.parseDouble(value);
+					break;
+				case "--willing":
+					willing = numbers(value, 2);
+					break;
+				case "--max-matches":
+					maxMatches = Integer.parseInt(value);
+					break;
+				case "--senior-matches":
+					seniorMatches = Double.parseDouble(value);
+					break;
+				default:
+					usage();
+				}
+			}
+		} catch (NumberFormatException e) {
+			System.err.println("Invalid number for " + args[i] + ": " + e.getMessage());
+			usage();
+		}
+		int remaining = args.length - i;
+		if (remaining != 2 && remaining != 4) {
+			usage();
+		}
+
+		DataGenerator generator = new DataGenerator(seed);
+		try {
+			if (areas != null) {
+				generator.setAreaWeights(areas[0], areas[1], areas[2]);
+			}
+			if (seniors != null) {
+				generator.setSeniorShare(seniors);
+			}
+			if (willing != null) {
+				generator.setWillingness(willing[0], willing[1]);
+			}
+			if (maxMatches != null) {
+				generator.setMaxMatches(maxMatches);
+			}
+			if (seniorMatches != null) {
+				generator.setSeniorMatchShare(seniorMatches);
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(2);
+		}
+
+		try {
+			long refereeCount = Long.parseLong(args[i]);
+			long start = System.nanoTime();
+			long bytes = generator.writeReferees(refereeCount, new File(args[i + 1]));
+			report(refereeCount + " referees", args[i + 1], bytes, start);
+
+			if (remaining == 4) {
+				long fixtureCount = Long.parseLong(args[i + 2]);
+				start = System.nanoTime();
+				bytes = generator.writeFixtures(fixtureCount, new File(args[i + 3]));
+				report(fixtureCount + " fixtures", args[i + 3], bytes, start);
+			}
+		} catch (NumberFormatException e) {
+			usage();
+		} catch (IOException e) {
+			System.err.println("Could not write the output file: " + e.getMessage());
+			System.exit(2);
+		}
+		System.exit(0);
+	}
+
+	/**
+	 * Parses a comma separated list of numbers of the given length.
+	 */
+	private static double[] numbers(String value, int count) {
+		String[] parts = value.split(",");
+		if (parts.length != count) {
+			throw new NumberFormatException("expected " + count + " comma separated numbers but found \"" + value + "\"");
+		}
+		double[] numbers = new double[count];
+		for (int i = 0; i < count; i++) {
+			numbers[i] = Double.parseDouble(parts[i].trim());
+		}
+		return numbers;
+	}
+
+	private static void report(String what, String fileName, long bytes, long start) {
+		long millis = (System.nanoTime() - start) / 1000000;
+		System.out.println("Wrote " + what + " to " + fileName + ": " + bytes + " bytes in " + millis + " ms.");
+	}
+
+	private static void usage() {
+		System.err.println(USAGE);
+		System.exit(2);
+	}
+}
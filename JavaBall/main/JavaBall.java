@@ -1,10 +1,12 @@
 package main;
 
 import controller.*;
+import model.Metrics;
 
 public final class JavaBall {
 	
 	public static void main(String[] args) {		
+		Metrics.start();
 		Controller controller = new Controller();		
 	}
 }
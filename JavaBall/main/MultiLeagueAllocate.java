@@ -0,0 +1,108 @@
+package main;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import model.*;
+
+/**
+ * Command line entry point that allocates the seasons of many independent leagues at the same time.
+ * Usage: java main.MultiLeagueAllocate [--scaling] leagueDirectory...
+ * Every league directory contains a RefereesIn.txt and a Fixtures.txt file, and RefereesOut.txt and MatchAllocs.txt
+ * are written back to it. With --scaling, the leagues are first allocated with 1, 2, 4, ... threads up to the number of
+ * cores and the throughput of every run is reported.
+ * @author Team C
+ */
+public final class MultiLeagueAllocate {
+
+	/**Names of the input files of a league directory.*/
+	private static final String REFEREES_IN = "RefereesIn.txt", FIXTURES_IN = "Fixtures.txt";
+
+	public static void main(String[] args) {
+		boolean scaling = args.length > 0 && args[0].equals("--scaling");
+		ArrayList<File> directories = new ArrayList<File>();
+		for (int i = scaling ? 1 : 0; i < args.length; i++) {
+			directories.add(new File(args[i]));
+		}
+		if (directories.isEmpty()) {
+			System.err.println("Usage: java main.MultiLeagueAllocate [--scaling] <league directory>...");
+			System.exit(2);
+		}
+
+		Metrics.start();
+		int cores = Runtime.getRuntime().availableProcessors();
+		try {
+			if (scaling) {
+				reportScaling(directories, cores);
+			}
+
+			List<League> leagues = loadLeagues(directories);
+			for (League league : leagues) {
+				Metrics.INSTANCE.watch(league.getMatchProgram());
+			}
+			List<SeasonResult> results = new LeagueRunner(cores).allocate(leagues);
+
+			boolean complete = true;
+			for (int i = 0; i < leagues.size(); i++) {
+				League league = leagues.get(i);
+				SeasonResult result = results.get(i);
+				FileOutput fout = new FileOutput(league.getMatchProgram().getCalendar(), directories.get(i));
+				fout.RefOut(league.getMatchProgram().getAllRefsByID());
+				fout.MatchOut();
+
+				System.out.println(league.getName() + ": allocated " + result.getAllocated().size() + " of " + league.getFixtures().size() + " fixtures.");
+				for (SeasonResult.Failure failure : result.getFailures()) {
+					System.out.println(league.getName() + ": failed: " + failure);
+				}
+				complete &= result.isComplete();
+			}
+			System.exit(complete ? 0 : 1);
+		} catch (IOException e) {
+			System.err.println("Could not read or write the league files: " + e.getMessage());
+			System.exit(2);
+		}
+	}
+
+	/**
+	 * Allocates fresh copies of the leagues with 1, 2, 4, ... threads up to the number of cores and prints the throughput of every run.
+	 */
+	private static void reportScaling(List<File> directories, int cores) throws IOException {
+		System.out.println(String.format("%8s %12s %16s %8s", "Threads", "Time (ms)", "Fixtures/sec", "Speedup"));
+		double baseline = 0;
+		for (int threads = 1; ; threads = Math.min(threads * 2, cores)) {
+			List<League> leagues = loadLeagues(directories);
+			int fixtures = 0;
+			for (League league : leagues) {
+				fixtures += league.getFixtures().size();
+			}
+
+			long start = System.nanoTime();
+			new LeagueRunner(threads).allocate(leagues);
+			double seconds = (System.nanoTime() - start) / 1e9;
+
+			double throughput = fixtures / seconds;
+			if (threads == 1) {
+				baseline = throughput;
+			}
+			System.out.println(String.format("%8d %12.1f %16.0f %7.2fx", threads, seconds * 1000, throughput, throughput / baseline));
+			if (threads == cores) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Reads the referees and the fixtures of every league directory. The name of a league is the name of its directory.
+	 */
+	private static List<League> loadLeagues(List<File> directories) throws IOException {
+		ArrayList<League> leagues = new ArrayList<League>();
+		for (File directory : directories) {
+			MatchProgram matchProgram = new MatchProgram();
+			ArrayList<Fixture> fixtures = new ArrayList<Fixture>();
+			BatchAllocate.loadReferees(new File(directory, REFEREES_IN).getPath(), matchProgram);
+			BatchAllocate.loadFixtures(new File(directory, FIXTURES_IN).getPath(), fixtures);
+			leagues.add(new League(directory.getName(), matchProgram, fixtures));
+		}
+		return leagues;
+	}
+}
@@ -0,0 +1,34 @@
+package model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of an allocation of referees to a match through the match program. It lasts from the call until the
+ * match has been inserted, so it includes the wait for the write lock; the RefereeSelectionEvent inside it does not.
+ * @author Team C
+ */
+@Name("javaball.Allocation")
+@Label("Match Allocation")
+@Category({"JavaBall", "Allocation"})
+@Description("Allocation of two referees to a match, including the wait for the lock of the match program")
+final class AllocationEvent extends jdk.jfr.Event {
+
+	@Label("Week")
+	int week;
+
+	@Label("Area")
+	String area;
+
+	@Label("Level")
+	String level;
+
+	@Label("Status")
+	String status;
+
+	@Label("Fixture")
+	@Description("Number of the fixture in its week, 0 if the match was not allocated")
+	int fixture;
+}
@@ -0,0 +1,72 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The outcome of allocating referees to a match, for presenting it to the user: the status, the match and its two referees,
+ * and the ranking of all the suitable referees. The ranking is only built the first time it is asked for, so callers that do
+ * not show it pay nothing for it, and it is kept by the result and not by the match.
+ * @author Team C
+ */
+public final class AllocationResult {
+
+	private final AllocationStatus status;
+	private final Match match;
+	/**The suitable referees in order of suitability, or null until they are asked for.*/
+	private List<Referee> ranking;
+
+	/**
+	 * Constructor.
+	 * @param status	The outcome of the allocation.
+	 * @param match	The allocated match, or null if the allocation failed.
+	 */
+	AllocationResult(AllocationStatus status, Match match) {
+		this.status = status;
+		this.match = match;
+	}
+
+	/**
+	 * Returns the outcome of the allocation.
+	 * @return
+	 */
+	public AllocationStatus getStatus() {
+		return status;
+	}
+
+	/**
+	 * Returns the allocated match.
+	 * @return	A Match object, or null if the allocation failed.
+	 */
+	public Match getMatch() {
+		return match;
+	}
+
+	/**
+	 * Returns the most suitable referee of the match.
+	 * @return	A Referee object, or null if the allocation failed.
+	 */
+	public Referee getFirstReferee() {
+		return match == null ? null : match.getFirstReferee();
+	}
+
+	/**
+	 * Returns the second most suitable referee of the match.
+	 * @return	A Referee object, or null if the allocation failed.
+	 */
+	public Referee getSecondReferee() {
+		return match == null ? null : match.getSecondReferee();
+	}
+
+	/**
+	 * Returns all the suitable referees of the match. The two allocated referees come first, followed by the rest in their order
+	 * of suitability when this method is first called. The list is built once.
+	 * @return	An empty list if the allocation failed.
+	 */
+	public List<Referee> getRanking() {
+		if (ranking == null) {
+			ranking = match == null ? new ArrayList<Referee>() : match.getSuitableRefs();
+		}
+		return ranking;
+	}
+}
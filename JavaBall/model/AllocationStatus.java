@@ -0,0 +1,31 @@
+package model;
+
+/**
+ * The outcome of allocating referees to a match.
+ * @author Team C
+ */
+public enum AllocationStatus {
+	/**Two referees were allocated to the match.*/
+	ALLOCATED("The referees were allocated to the match."),
+	/**The week, area or level of the match is not valid.*/
+	INVALID_MATCH("The week, area or level of the match is not valid!"),
+	/**There are less than two referees qualified for the level of the match.*/
+	NOT_ENOUGH_REFEREES("There aren't enough suitable referees in the database!"),
+	/**There are less than two qualified referees willing to go to the area of the match.*/
+	NOT_ENOUGH_WILLING("There aren't enough suitable referees willing to go to that area");
+
+	/**Message that describes the outcome to the user.*/
+	private final String message;
+
+	private AllocationStatus(String message) {
+		this.message = message;
+	}
+
+	/**
+	 * Returns a message that describes the outcome to the user.
+	 * @return
+	 */
+	public String getMessage() {
+		return message;
+	}
+}
@@ -0,0 +1,211 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+/**
+ * Generates synthetic referees in the RefereesIn.txt format and fixtures in the format of the batch allocation, for load tests.
+ * The same seed and settings always give the same output. The lines are written one by one through a RecordWriter, so
+ * files of any size are generated in constant memory.
+ * Every referee has a unique full name and a unique ID made of his initials and a sequence number, as the GUI gives them.
+ * Once every combination of the names has been used, the last names get a suffix of lower case letters.
+ * @author Team C
+ */
+public final class DataGenerator {
+
+	/**Number of the weeks of a season.*/
+	private static final int WEEKS = 52;
+	private static final String[] FIRST_NAMES = {"Agatha", "Anna", "Bill", "Chris", "Dave", "Denis", "Eleni", "Fiona",
+		"George", "Helen", "Ian", "Jack", "Kenneth", "Kostas", "Laura", "Maria", "Nikos", "Olga", "Peter", "Quinn",
+		"Rachel", "Sophie", "Thanos", "Tim", "Ursula", "Vangelis", "Wendy", "Xavier", "Yannis", "Zoo"};
+	private static final String[] LAST_NAMES = {"Adams", "Ben", "Brown", "Campbell", "Duncan", "Evans", "Fraser",
+		"Gray", "Gkavresis", "Hughes", "Irvine", "Johnston", "Karvounis", "Kousinas", "Low", "Lorrimer", "Montague",
+		"Nicol", "Owen", "Paterson", "Quigley", "Reid", "Santas", "Smith", "Toms", "Urquhart", "Vass", "Wilson",
+		"Young", "Zebra"};
+	private static final String[] AREAS = {"North", "Central", "South"};
+
+	private final SplittableRandom random;
+	/**Probability of a referee living in the North, or in the North or Central area.*/
+	private double northShare = 1.0 / 3, northOrCentralShare = 2.0 / 3;
+	/**Probability of a referee having a senior qualification, level 2 to 4.*/
+	private double seniorShare = 0.5;
+	/**Probability of a referee being willing to go to an adjacent area and to the area that is not adjacent to his home.*/
+	private double adjacentWilling = 0.5, farWilling = 0.25;
+	/**Largest number of matches that a referee has already been allocated.*/
+	private int maxMatches = 20;
+	/**Probability of a fixture being a Senior match.*/
+	private double seniorMatchShare = 0.5;
+
+	/**Number of referees generated so far.*/
+	private long referees;
+	/**Highest sequence number of every two letter ID prefix.*/
+	private final int[] sequences = new int[26 * 26];
+
+	/**
+	 * Constructor.
+	 * @param seed	Seed of the random choices.
+	 */
+	public DataGenerator(long seed) {
+		random = new SplittableRandom(seed);
+	}
+
+	/**
+	 * Sets the relative weights of the home areas of the referees and of the areas of the fixtures. By default all areas are equally likely.
+	 * @param north
+	 * @param central
+	 * @param south
+	 * @throws IllegalArgumentException	If a weight is negative or all of them are 0.
+	 */
+	public void setAreaWeights(double north, double central, double south) {
+		double total = north + central + south;
+		if (north < 0 || central < 0 || south < 0 || !(total > 0)) {
+			throw new IllegalArgumentException("The area weights must not be negative and at least one must be positive");
+		}
+		northShare = north / total;
+		northOrCentralShare = (north + central) / total;
+	}
+
+	/**
+	 * Sets the probability of a referee having a senior qualification. The default is 0.5.
+	 * @param share	A probability from 0 to 1.
+	 */
+	public void setSeniorShare(double share) {
+		seniorShare = checkProbability(share);
+	}
+
+	/**
+	 * Sets the probabilities of a referee being willing to go to areas other than his home. The defaults are 0.5 and 0.25.
+	 * @param adjacent	Probability of being willing to go to an adjacent area, from 0 to 1.
+	 * @param far	Probability of being willing to go to the area that is not adjacent, from 0 to 1.
+	 */
+	public void setWillingness(double adjacent, double far) {
+		adjacentWilling = checkProbability(adjacent);
+		farWilling = checkProbability(far);
+	}
+
+	/**
+	 * Sets the largest number of matches that a referee has already been allocated. The default is 20.
+	 * @param max	A number that is not negative.
+	 */
+	public void setMaxMatches(int max) {
+		if (max < 0) {
+			throw new IllegalArgumentException("The number of matches must not be negative");
+		}
+		maxMatches = max;
+	}
+
+	/**
+	 * Sets the probability of a fixture being a Senior match. The default is 0.5.
+	 * @param share	A probability from 0 to 1.
+	 */
+	public void setSeniorMatchShare(double share) {
+		seniorMatchShare = checkProbability(share);
+	}
+
+	/**
+	 * Appends the next referee to a line, without a line terminator, e.g. "DG1 Dave Gray NJB2 3 Central NYY".
+	 * @param line
+	 */
+	public void appendReferee(StringBuilder line) {
+		long n = referees++;
+		String firstName = FIRST_NAMES[(int) (n % FIRST_NAMES.length)];
+		long combination = n / FIRST_NAMES.length;
+		String lastName = LAST_NAMES[(int) (combination % LAST_NAMES.length)];
+		int prefix = (firstName.charAt(0) - 'A') * 26 + (lastName.charAt(0) - 'A');
+
+		line.append(firstName.charAt(0)).append(lastName.charAt(0)).append(++sequences[prefix]).append(' ');
+		line.append(firstName).append(' ').append(lastName);
+		for (long round = combination / LAST_NAMES.length; round > 0; round /= 26) {
+			line.append((char) ('a' + round % 26));
+		}
+		line.append(' ');
+
+		line.append(random.nextBoolean() ? "NJB" : "IJB");
+		line.append(random.nextDouble() < seniorShare ? 2 + random.nextInt(3) : 1).append(' ');
+		line.append(random.nextInt(maxMatches + 1)).append(' ');
+		int home = nextArea();
+		line.append(AREAS[home]).append(' ');
+		for (int area = 0; area < AREAS.length; area++) {
+			boolean willing;
+			if (area == home) {
+				willing = true;
+			} else {
+				willing = random.nextDouble() < (Math.abs(area - home) == 1 ? adjacentWilling : farWilling);
+			}
+			line.append(willing ? 'Y' : 'N');
+		}
+	}
+
+	/**
+	 * Appends a fixture to a line, without a line terminator, e.g. "12 North Senior".
+	 * @param week	The week of the fixture.
+	 * @param line
+	 */
+	public void appendFixture(int week, StringBuilder line) {
+		line.append(week).append(' ').append(AREAS[nextArea()]).append(' ');
+		line.append(random.nextDouble() < seniorMatchShare ? "Senior" : "Junior");
+	}
+
+	/**
+	 * Writes referees to a file in the RefereesIn.txt format. The file is replaced only once it is complete.
+	 * @param count	Number of referees.
+	 * @param file
+	 * @return	Number of bytes written.
+	 * @throws IOException	If the file could not be written.
+	 */
+	public long writeReferees(long count, File file) throws IOException {
+		StringBuilder line = new StringBuilder();
+		RecordWriter output = new RecordWriter(file);
+		try {
+			for (long i = 0; i < count; i++) {
+				line.setLength(0);
+				appendReferee(line);
+				output.append(line).append('\n');
+			}
+			output.commit();
+			return output.getBytesWritten();
+		} finally {
+			output.abort();
+		}
+	}
+
+	/**
+	 * Writes fixtures to a file, spread evenly over the weeks of the season. With more fixtures than weeks, weeks have more than one fixture.
+	 * The file is replaced only once it is complete.
+	 * @param count	Number of fixtures.
+	 * @param file
+	 * @return	Number of bytes written.
+	 * @throws IOException	If the file could not be written.
+	 */
+	public long writeFixtures(long count, File file) throws IOException {
+		StringBuilder line = new StringBuilder();
+		RecordWriter output = new RecordWriter(file);
+		try {
+			for (long i = 0; i < count; i++) {
+				line.setLength(0);
+				appendFixture(1 + (int) (i * WEEKS / count), line);
+				output.append(line).append('\n');
+			}
+			output.commit();
+			return output.getBytesWritten();
+		} finally {
+			output.abort();
+		}
+	}
+
+	/**
+	 * Picks an area following the area weights.
+	 */
+	private int nextArea() {
+		double r = random.nextDouble();
+		return r < northShare ? Referee.AREA_NORTH : r < northOrCentralShare ? Referee.AREA_CENTRAL : Referee.AREA_SOUTH;
+	}
+
+	private static double checkProbability(double p) {
+		if (!(p >= 0 && p <= 1)) {
+			throw new IllegalArgumentException("A probability must be between 0 and 1 but was " + p);
+		}
+		return p;
+	}
+}
@@ -0,0 +1,190 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Columnar index of the details that decide whether a referee can referee a match: his qualification, his home area and the
+ * areas that he is willing to go to. Every referee gets a slot, and every detail is a bitset over the slots packed into longs,
+ * so the referees that are eligible for a match area and level at a given distance are found with a few ANDs per 64 referees,
+ * without touching the Referee objects. The slots of removed referees are reused.
+ * Not thread safe. The registry that owns it guards it with its lock.
+ * @author Team C
+ */
+final class EligibilityIndex {
+
+	/**Number of the areas that a referee can live in.*/
+	private static final int AREAS = 3;
+	/**Initial number of 64 bit words of every column.*/
+	private static final int INITIAL_WORDS = 16;
+
+	/**The referee of every slot, or null.*/
+	private Referee[] referees;
+	/**Bit i is set if slot i holds a referee.*/
+	private long[] live;
+	/**Bit i is set if the referee of slot i has a Senior qualification.*/
+	private long[] senior;
+	/**Indexed by area. Bit i is set if the referee of slot i lives in that area.*/
+	private long[][] home;
+	/**Indexed by area. Bit i is set if the referee of slot i is willing to go to that area.*/
+	private long[][] willing;
+	/**Slots that have been freed and can be reused, as a stack.*/
+	private int[] free;
+	private int freeCount;
+	/**Number of slots handed out so far, including the freed ones.*/
+	private int slots;
+	/**Number of referees with a Senior qualification.*/
+	private int seniorCount;
+
+	/**
+	 * Constructor that instantiates empty columns.
+	 */
+	EligibilityIndex() {
+		referees = new Referee[INITIAL_WORDS * 64];
+		live = new long[INITIAL_WORDS];
+		senior = new long[INITIAL_WORDS];
+		home = new long[AREAS][INITIAL_WORDS];
+		willing = new long[AREAS][INITIAL_WORDS];
+		free = new int[INITIAL_WORDS];
+	}
+
+	/**
+	 * Gives a referee a slot and sets his bits.
+	 * @param ref	A referee that is not in the index.
+	 */
+	void add(Referee ref) {
+		int slot;
+		if (freeCount > 0) {
+			slot = free[--freeCount];
+		} else {
+			if (slots == referees.length) {
+				grow();
+			}
+			slot = slots++;
+		}
+		ref.setSlot(slot);
+		referees[slot] = ref;
+		live[slot >>> 6] |= 1L << slot;
+		set(ref);
+	}
+
+	/**
+	 * Clears the bits of a referee and frees his slot.
+	 * @param ref	A referee that is in the index.
+	 */
+	void remove(Referee ref) {
+		int slot = ref.getSlot();
+		clear(slot);
+		live[slot >>> 6] &= ~(1L << slot);
+		referees[slot] = null;
+		ref.setSlot(-1);
+		if (freeCount == free.length) {
+			free = Arrays.copyOf(free, freeCount * 2);
+		}
+		free[freeCount++] = slot;
+	}
+
+	/**
+	 * Sets the bits of a referee again after his qualification, home area or willingness has changed.
+	 * @param ref	A referee that is in the index.
+	 */
+	void update(Referee ref) {
+		clear(ref.getSlot());
+		set(ref);
+	}
+
+	/**
+	 * Returns the number of referees with a Senior qualification.
+	 * @return
+	 */
+	int seniors() {
+		return seniorCount;
+	}
+
+	/**
+	 * Adds the referees that are qualified for a match and willing to go to its area to a collection, in the order of their slots.
+	 * @param matchArea	The area that the match is going to take place.
+	 * @param seniorOnly	If true, only referees with Senior qualification are added.
+	 * @param distance	Distance between the home of the referees and the match area, or -1 for any distance.
+	 * @param out	The collection that receives the referees.
+	 */
+	void collect(int matchArea, boolean seniorOnly, int distance, Collection<Referee> out) {
+		for (int word = 0, words = words(); word < words; word++) {
+			long bits = eligible(word, matchArea, seniorOnly, distance);
+			while (bits != 0) {
+				out.add(referees[word << 6 | Long.numberOfTrailingZeros(bits)]);
+				bits &= bits - 1;
+			}
+		}
+	}
+
+	/**
+	 * Returns the bits of the eligible referees in one word of the columns.
+	 */
+	private long eligible(int word, int matchArea, boolean seniorOnly, int distance) {
+		long bits = live[word] & willing[matchArea][word];
+		if (seniorOnly) {
+			bits &= senior[word];
+		}
+		if (distance >= 0) {
+			long homes = 0;
+			for (int area = 0; area < AREAS; area++) {
+				if (Math.abs(area - matchArea) == distance) {
+					homes |= home[area][word];
+				}
+			}
+			bits &= homes;
+		}
+		return bits;
+	}
+
+	/**
+	 * Returns the number of words that hold slots that have been handed out.
+	 */
+	private int words() {
+		return (slots + 63) >>> 6;
+	}
+
+	private void set(Referee ref) {
+		int slot = ref.getSlot();
+		int word = slot >>> 6;
+		long bit = 1L << slot;
+		if (ref.isSenior()) {
+			senior[word] |= bit;
+			seniorCount++;
+		}
+		home[ref.getLocality()][word] |= bit;
+		for (int area = 0; area < AREAS; area++) {
+			if (ref.isWillingToGo(area)) {
+				willing[area][word] |= bit;
+			}
+		}
+	}
+
+	private void clear(int slot) {
+		int word = slot >>> 6;
+		long bit = 1L << slot;
+		if ((senior[word] & bit) != 0) {
+			senior[word] &= ~bit;
+			seniorCount--;
+		}
+		for (int area = 0; area < AREAS; area++) {
+			home[area][word] &= ~bit;
+			willing[area][word] &= ~bit;
+		}
+	}
+
+	/**
+	 * Doubles the number of slots of every column.
+	 */
+	private void grow() {
+		int words = live.length * 2;
+		referees = Arrays.copyOf(referees, words * 64);
+		live = Arrays.copyOf(live, words);
+		senior = Arrays.copyOf(senior, words);
+		for (int area = 0; area < AREAS; area++) {
+			home[area] = Arrays.copyOf(home[area], words);
+			willing[area] = Arrays.copyOf(willing[area], words);
+		}
+	}
+}
@@ -1,152 +1,209 @@
 package model;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.io.*;
-import javax.swing.JOptionPane;
 
 /**
  * Handles the output for Referees.txt and MatchAllocs.txt files.
+ * Every line is written straight into the buffer of a RecordWriter, so the whole file is never held in memory, and the
+ * files are replaced atomically, so a failure while saving leaves the previous files intact. That includes an interrupted save.
  * @author Team C
  */
 public final class FileOutput {
 
-	/**Format of the output file's lines.*/
-	private static final String OUTPUT_FORMAT = "%15s %17s %17s %25s %25s";
+	/**Widths of the right-aligned columns of the match allocations file.*/
+	private static final int WEEK_WIDTH = 15, LEVEL_WIDTH = 17, AREA_WIDTH = 17, REFEREE_WIDTH = 25;
+	/**Width of the right-aligned title of the match allocations file.*/
+	private static final int TITLE_WIDTH = 50;
+	/**Number of referees written between two reports of the progress.*/
+	private static final int PROGRESS_STEP = 4096;
 	/**Filenames of the output files*/
 	private static final String REFEREES_OUT = "RefereesOut.txt", MATCHES_ALLOCATIONS = "MatchAllocs.txt";
 
-	private Match[] matchArr;
-	private FileWriter fwriter = null;
+	/**The calendar of the matches, a copy that does not change while it is written.*/
+	private MatchCalendar matches;
+	/**Directory that the output files are written to. If null, they are written to the working directory.*/
+	private File directory;
 
-	public FileOutput(Match[] matchArr)
+	public FileOutput(MatchCalendar matches)
 	{
-		this.matchArr = matchArr;
+		this(matches, null);
+	}
+
+	/**
+	 * Constructor for writing the output files to a given directory.
+	 * @param matches	The calendar of the matches, as MatchProgram.getCalendar returns it.
+	 * @param directory	Directory that the output files are written to.
+	 */
+	public FileOutput(MatchCalendar matches, File directory)
+	{
+		this.matches = matches;
+		this.directory = directory;
 	}
 
 	/**
 	 * Write the RefereesOut.txt file
-	 * @param refs
+	 * @param refs	The referees in the order of their IDs, as MatchProgram.getAllRefsByID returns them. The list is not changed.
+	 * @throws IOException	If the file could not be written. The previous file is left intact.
 	 */
-	public void RefOut(ArrayList<Referee> refs)
+	public void RefOut(ArrayList<Referee> refs) throws IOException
 	{
-		StringBuilder output = new StringBuilder();
-		//Instantiates the RefereeIDComparator comparator to sort the Referee objects in order of their ID.
-		RefereeIDComparator comparator = new RefereeIDComparator();
-		Collections.sort(refs, comparator);		
-		
-		//For every referee, extract his details and output them to the file.
-		for(Referee tempRef : refs)
-		{
-			String id, firstName, lastName, qualification, locality;
-			int matchallocations;
-			String willingToGo="";
-			String matchallocStr = "";
-			id = tempRef.getRefID();
-
-			firstName = tempRef.getFirstName();
-			lastName = tempRef.getLastName();
-			qualification = tempRef.getQualification();
-			locality = tempRef.getStringLocality();
-			matchallocations = tempRef.getMatchesAllocated();
-			matchallocStr = "" + matchallocations;
-			willingToGo = tempRef.getStringWilling();
-
-			output.append(String.format("%s %s %s %s %s %s %s", id, firstName, lastName, qualification, matchallocStr, locality, willingToGo));
-			output.append("\r\n");
-
-			//Set willing to go to empty in order not to include previous strings via concatenation
-			willingToGo = "";
+		RefOut(refs, null);
+	}
+
+	/**
+	 * Write the RefereesOut.txt file and report the number of referees written so far.
+	 * @param refs	The referees in the order of their IDs, as MatchProgram.getAllRefsByID returns them. The list is not changed.
+	 * @param progress	Receives the number of referees written, or null.
+	 * @throws IOException	If the file could not be written, or an InterruptedIOException if the thread is interrupted.
+	 * The previous file is left intact.
+	 */
+	public void RefOut(ArrayList<Referee> refs, ProgressListener progress) throws IOException
+	{
+		long start = Metrics.REF_OUT.start();
+		try {
+			writeReferees(refs, progress);
+		} finally {
+			Metrics.REF_OUT.stop(start);
 		}
+	}
+
+	/**
+	 * Writes the RefereesOut.txt file for RefOut.
+	 */
+	private void writeReferees(ArrayList<Referee> refs, ProgressListener progress) throws IOException
+	{
+		RecordWriter output = new RecordWriter(new File(directory, REFEREES_OUT));
 		try{
-			try{
-				//Prints the output String to the file.
-				fwriter = new FileWriter( REFEREES_OUT );
-				fwriter.write(output.toString());				
-			}
-			finally
+			//For every referee, write his details to the file.
+			int written = 0;
+			for(Referee tempRef : refs)
 			{
-				if(fwriter != null)
+				if(written++ % PROGRESS_STEP == 0)
 				{
-					fwriter.close();
+					if(Thread.currentThread().isInterrupted())
+					{
+						throw new InterruptedIOException("The save was interrupted");
+					}
+					if(progress != null)
+					{
+						progress.progress(written - 1, refs.size());
+					}
 				}
+				output.append(tempRef.getRefID()).append(' ');
+				output.append(tempRef.getFirstName()).append(' ');
+				output.append(tempRef.getLastName()).append(' ');
+				output.append(tempRef.getQualification()).append(' ');
+				output.append(tempRef.getMatchesAllocated()).append(' ');
+				output.append(tempRef.getStringLocality()).append(' ');
+				output.append(tempRef.getStringWilling());
+				output.newLine();
 			}
+			output.commit();
 		}
-		catch(IOException e){
-			JOptionPane.showMessageDialog(null, "There was an error writing the RefereesOut.txt file.", "Write failed", JOptionPane.ERROR_MESSAGE);
+		finally
+		{
+			output.abort();
 		}
 	}
 
 	/**
 	 * Write the MatchAllocs.txt file
-	 * @param refs
+	 * @throws IOException	If the file could not be written. The previous file is left intact.
 	 */
-	public void MatchOut()
+	public void MatchOut() throws IOException
 	{
-		StringBuilder output = new StringBuilder();
-
-		output.append( String.format("%50s", "Match Allocations") );
-		output.append("\r\n\r\n");
+		MatchOut(1, MatchCalendar.WEEKS);
+	}
 
-		output.append( String.format(OUTPUT_FORMAT, "Week Number", "Match Level", "Area", "First Referee", "Second Referee") );
-		output.append("\r\n");
+	/**
+	 * Write the MatchAllocs.txt file with the matches of a range of weeks.
+	 * @param fromWeek	The first week, from 1 to 52.
+	 * @param toWeek	The last week, from fromWeek to 52.
+	 * @throws IOException	If the file could not be written. The previous file is left intact.
+	 */
+	public void MatchOut(int fromWeek, int toWeek) throws IOException
+	{
+		long start = Metrics.MATCH_OUT.start();
+		try {
+			writeMatches(fromWeek, toWeek);
+		} finally {
+			Metrics.MATCH_OUT.stop(start);
+		}
+	}
 
-		//For every match that has been created, extract its information and append them to the StringBuilder.
-		for(int i = 0; i < matchArr.length; i++)
-		{
-			if(matchArr[i] != null)
+	/**
+	 * Writes the MatchAllocs.txt file for MatchOut.
+	 */
+	private void writeMatches(int fromWeek, int toWeek) throws IOException
+	{
+		Iterable<Match> fixtures = matches.getWeeks(fromWeek, toWeek);
+		RecordWriter output = new RecordWriter(new File(directory, MATCHES_ALLOCATIONS));
+		try{
+			output.appendRight("Match Allocations", TITLE_WIDTH);
+			output.newLine().newLine();
+
+			output.appendRight("Week Number", WEEK_WIDTH).append(' ');
+			output.appendRight("Match Level", LEVEL_WIDTH).append(' ');
+			output.appendRight("Area", AREA_WIDTH).append(' ');
+			output.appendRight("First Referee", REFEREE_WIDTH).append(' ');
+			output.appendRight("Second Referee", REFEREE_WIDTH);
+			output.newLine();
+
+			//For every match that has been created, write its information to the file, week by week and fixture by fixture.
+			//The calendar skips the weeks without matches.
+			for(Match match : fixtures)
 			{
-				String level, areaStr = "";
-				int weekNumber,area;
-				String fname1, lname1, fname2, lname2, fullname1, fullname2;
+				writeMatch(output, match);
+			}
+			output.commit();
+		}
+		finally
+		{
+			output.abort();
+		}
+	}
 
-				level = matchArr[i].getMatchLevel();
+	/**
+	 * Writes a line of the match allocations file.
+	 */
+	private static void writeMatch(RecordWriter output, Match match) throws IOException
+	{
+		String areaStr = "";
+		int area = match.getMatchArea();
 
-				weekNumber = matchArr[i].getMatchWeekNumber();
+		if(area == Referee.AREA_CENTRAL)
+		{
+			areaStr = "Central";
+		}
+		else if(area == Referee.AREA_NORTH)
+		{
+			areaStr = "North";
+		}
+		else if(area == Referee.AREA_SOUTH)
+		{
+			areaStr = "South";
+		}
 
-				area = matchArr[i].getMatchArea();
+		output.appendRight(match.getMatchWeekNumber(), WEEK_WIDTH).append(' ');
+		output.appendRight(match.getMatchLevel(), LEVEL_WIDTH).append(' ');
+		output.appendRight(areaStr, AREA_WIDTH).append(' ');
+		appendFullName(output, match.getFirstReferee(), REFEREE_WIDTH);
+		output.append(' ');
+		appendFullName(output, match.getSecondReferee(), REFEREE_WIDTH);
+		output.newLine();
+	}
 
-				if(area == Referee.AREA_CENTRAL)
-				{
-					areaStr = "Central";				
-				}
-				else if(area == Referee.AREA_NORTH)
-				{
-					areaStr = "North";
-				}
-				else if(area == Referee.AREA_SOUTH)
-				{
-					areaStr = "South";
-				}
-				//Full name of the first Referee.
-				fname1 = matchArr[i].getFirstReferee().getFirstName();
-				lname1 = matchArr[i].getFirstReferee().getLastName();
-				fullname1 = fname1 + " " + lname1;
-				
-				//Full name of the second Referee.
-				fname2 = matchArr[i].getSecondReferee().getFirstName();				
-				lname2 = matchArr[i].getSecondReferee().getLastName();				
-				fullname2 = fname2 + " " + lname2;
-
-				output.append( String.format(OUTPUT_FORMAT, weekNumber, level, areaStr, fullname1, fullname2) );
-				output.append("\r\n");
-			}
-		}
-		try{
-			try{
-				fwriter = new FileWriter( MATCHES_ALLOCATIONS );
-				fwriter.write( output.toString() );
-			}
-			finally
-			{
-				if(fwriter != null)
-				{
-					fwriter.close();
-				}
-			}
+	/**
+	 * Writes the full name of a referee right-aligned in a field, without concatenating the first and last name.
+	 */
+	private static void appendFullName(RecordWriter output, Referee ref, int width) throws IOException
+	{
+		int length = ref.getFirstName().length() + 1 + ref.getLastName().length();
+		for(int i = length; i < width; i++)
+		{
+			output.append(' ');
 		}
-		catch(IOException e) {
-			JOptionPane.showMessageDialog(null, "There was an error writing the match allocation file.", "Write failed", JOptionPane.ERROR_MESSAGE);
-		}		
+		output.append(ref.getFirstName()).append(' ').append(ref.getLastName());
 	}
 }
@@ -0,0 +1,30 @@
+package model;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of a RecordWriter, from opening its temporary file until it is committed or aborted. It covers the
+ * output files, the snapshots and the generated data.
+ * @author Team C
+ */
+@Name("javaball.FileWrite")
+@Label("File Write")
+@Category({"JavaBall", "File I/O"})
+@Description("Writing of a file through a temporary file that replaces it")
+final class FileWriteEvent extends jdk.jfr.Event {
+
+	@Label("Path")
+	String path;
+
+	@Label("Bytes Written")
+	@DataAmount
+	long bytesWritten;
+
+	@Label("Committed")
+	@Description("If the file was replaced, false if the write failed or was interrupted")
+	boolean committed;
+}
@@ -0,0 +1,106 @@
+package model;
+
+/**
+ * A match that has to be refereed: the week, the area and the level of the match. Used by the batch allocation of a season.
+ * @author Team C
+ */
+public final class Fixture {
+
+	/**Number of the week that the match is going to take place.*/
+	private final int week;
+	/**Area that the match is going to take place.*/
+	private final int area;
+	/**Level of the match. "Junior" or "Senior".*/
+	private final String level;
+
+	/**
+	 * Constructor.
+	 * @param week	The number of the week that the match is going to take place.
+	 * @param area	The area that the match is going to take place. 0 = North, 1 = Central, 2 = South.
+	 * @param level	Level of the match. "Junior" or "Senior".
+	 */
+	public Fixture(int week, int area, String level) {
+		this.week = week;
+		this.area = area;
+		this.level = level;
+	}
+
+	/**
+	 * Creates a fixture from a line of a fixtures file. A line contains the week, the area and the level separated by spaces,
+	 * e.g. "12 North Senior".
+	 * @param line	An entire line read from the fixtures file.
+	 * @return	A Fixture object.
+	 * @throws IllegalArgumentException	If the line is not a valid fixture.
+	 */
+	public static Fixture parse(String line) {
+		String[] tmpArray = line.trim().split("[ ]+");
+		if (tmpArray.length != 3) {
+			throw new IllegalArgumentException("Expected week, area and level but found \"" + line + "\"");
+		}
+
+		int week;
+		try {
+			week = Integer.parseInt(tmpArray[0]);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid week number \"" + tmpArray[0] + "\"");
+		}
+
+		int area;
+		switch (tmpArray[1].toLowerCase()) {
+		case "north":
+			area = Match.AREA_NORTH;
+			break;
+		case "central":
+			area = Match.AREA_CENTRAL;
+			break;
+		case "south":
+			area = Match.AREA_SOUTH;
+			break;
+		default:
+			throw new IllegalArgumentException("Invalid area \"" + tmpArray[1] + "\"");
+		}
+
+		String level;
+		switch (tmpArray[2].toLowerCase()) {
+		case "junior":
+			level = "Junior";
+			break;
+		case "senior":
+			level = "Senior";
+			break;
+		default:
+			throw new IllegalArgumentException("Invalid level \"" + tmpArray[2] + "\"");
+		}
+		return new Fixture(week, area, level);
+	}
+
+	/**
+	 * Returns the week that the match is going to take place.
+	 * @return
+	 */
+	public int getWeek() {
+		return week;
+	}
+
+	/**
+	 * Returns the area that the match is going to take place.
+	 * @return	0 = North, 1 = Central, 2 = South.
+	 */
+	public int getArea() {
+		return area;
+	}
+
+	/**
+	 * Returns the level of the match.
+	 * @return "Junior" or "Senior"
+	 */
+	public String getLevel() {
+		return level;
+	}
+
+	@Override
+	public String toString() {
+		String areaStr = area == Match.AREA_NORTH ? "North" : (area == Match.AREA_CENTRAL ? "Central" : "South");
+		return "Week " + week + ", " + areaStr + ", " + level;
+	}
+}
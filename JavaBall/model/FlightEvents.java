@@ -0,0 +1,80 @@
+package model;
+
+/**
+ * Support for the JDK Flight Recorder events of the model: AllocationEvent, RefereeSelectionEvent, RefereeLoadEvent and
+ * FileWriteEvent. An event is created, begun and committed around the work that it describes, and its fields are only filled
+ * if shouldCommit says that it is recorded, so the events cost nothing but a few inlined calls while no recording is running.
+ * The event classes extend jdk.jfr.Event, which the JREs before 8u262 do not have. The model only creates events when
+ * AVAILABLE is true, so it never loads an event class on such a JRE and runs without them.
+ * @author Team C
+ */
+final class FlightEvents {
+
+	/**If the JVM has the jdk.jfr API.*/
+	static final boolean AVAILABLE = isAvailable();
+
+	private FlightEvents() {
+	}
+
+	private static boolean isAvailable() {
+		try {
+			Class.forName("jdk.jfr.Event", false, FlightEvents.class.getClassLoader());
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Returns a begun event of an allocation, or null if the JVM has no flight recorder.
+	 * @return
+	 */
+	static AllocationEvent beginAllocation() {
+		if (!AVAILABLE) {
+			return null;
+		}
+		AllocationEvent event = new AllocationEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Returns a begun event of a referee load, or null if the JVM has no flight recorder.
+	 * @return
+	 */
+	static RefereeLoadEvent beginLoad() {
+		if (!AVAILABLE) {
+			return null;
+		}
+		RefereeLoadEvent event = new RefereeLoadEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Returns a begun event of a file write, or null if the JVM has no flight recorder.
+	 * @return
+	 */
+	static FileWriteEvent beginWrite() {
+		if (!AVAILABLE) {
+			return null;
+		}
+		FileWriteEvent event = new FileWriteEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Returns the name of an area.
+	 * @param area	One of the Referee.AREA_ constants.
+	 * @return	"North", "Central" or "South".
+	 */
+	static String areaName(int area) {
+		if (area == Referee.AREA_NORTH) {
+			return "North";
+		} else if (area == Referee.AREA_CENTRAL) {
+			return "Central";
+		}
+		return "South";
+	}
+}
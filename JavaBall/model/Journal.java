@@ -0,0 +1,648 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.Lock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of the changes made to a match program since its last snapshot, so that a session survives a crash
+ * and saving it costs as much as the changes instead of the whole roster.
+ * The journal listens to the match program and queues a record for every inserted, updated and deleted referee and every
+ * allocated match. A background thread writes the queued records and forces them to the disk; the records that are queued
+ * while it waits for the disk are written together by the next force, so a burst of changes costs a few forces and not one each.
+ * When the journal grows over COMPACT_SIZE, a snapshot is written in the background and the records that it contains are dropped.
+ * <p>
+ * The file starts with MAGIC and VERSION, followed by records of the form
+ * <pre>
+ * int    length of the sequence number, the type and the payload
+ * long   sequence number, the change count of the match program after the change
+ * byte   type
+ *        payload
+ * int    CRC32 of the sequence number, the type and the payload
+ * </pre>
+ * A record that is cut short or does not match its checksum ends the journal, since it was being written during a crash.
+ * @author Team C
+ */
+public final class Journal implements MatchProgramListener {
+
+	/**First int of a journal, "JBJN".*/
+	private static final int MAGIC = 0x4A424A4E;
+	private static final int VERSION = 1;
+	/**Size of the header and of the parts of a record around its body.*/
+	private static final int HEADER_SIZE = 8, LENGTH_SIZE = 4, CRC_SIZE = 4;
+	/**Types of the records.*/
+	private static final byte INSERT = 1, UPDATE = 2, DELETE = 3, ALLOCATE = 4;
+	/**Size of the journal file that starts a compaction.*/
+	private static final long COMPACT_SIZE = 1024 * 1024;
+	/**Initial size of the queue of records that have not been written yet.*/
+	private static final int QUEUE_SIZE = 4096;
+	/**Match levels in order of their codes.*/
+	private static final String[] LEVELS = {"Junior", "Senior"};
+
+	private final File file;
+	private final File snapshot;
+	private final MatchProgram matchProgram;
+	/**The journal file. Only the writer thread uses it after the journal has been opened.*/
+	private FileChannel channel;
+	private final Thread writer;
+	private Thread compaction;
+
+	//The fields below are guarded by this.
+	/**Records that have been queued but not written yet, and the buffer that the writer thread is writing.*/
+	private ByteBuffer queue, writing;
+	/**Sequence numbers of the last queued record and of the last record that has been forced to the disk.*/
+	private long queued, durable;
+	/**Change count of a completed snapshot whose records should be dropped, or -1.*/
+	private long compactUpTo = -1;
+	private boolean closed;
+	/**The error that stopped the writer thread, or null.*/
+	private IOException failure;
+
+	/**
+	 * Opens a journal file for appending and starts the writer thread. The journal does not listen to the match program yet.
+	 */
+	private Journal(File file, File snapshot, MatchProgram matchProgram, FileChannel channel) {
+		this.file = file.getAbsoluteFile();
+		this.snapshot = snapshot;
+		this.matchProgram = matchProgram;
+		this.channel = channel;
+		queue = ByteBuffer.allocate(QUEUE_SIZE);
+		writing = ByteBuffer.allocate(QUEUE_SIZE);
+		queued = durable = matchProgram.getChangeCount();
+		writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				writeQueued();
+			}
+		}, "Journal writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Starts a new journal for a match program that has just been read from the input files. Any previous journal is
+	 * discarded and a snapshot of the match program is written, which the journal records the changes against.
+	 * @param file	The journal file.
+	 * @param snapshot	The snapshot file.
+	 * @param matchProgram	The match program, which is not being changed yet.
+	 * @return	A journal that records every change of the match program from now on.
+	 * @throws IOException	If the snapshot or the journal could not be written.
+	 */
+	public static Journal start(File file, File snapshot, MatchProgram matchProgram) throws IOException {
+		//The old journal goes first. Its records must never be replayed over the new snapshot.
+		Files.deleteIfExists(file.toPath());
+		matchProgram.writeSnapshotAt(snapshot);
+
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			writeHeader(channel);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		return attach(new Journal(file, snapshot, matchProgram, channel));
+	}
+
+	/**
+	 * Replays the journal of a match program that has just been read from its snapshot and continues the journal.
+	 * Records that the snapshot already contains are skipped. A record that was cut short by a crash is removed.
+	 * @param file	The journal file. If it does not exist, a new one is created.
+	 * @param snapshot	The snapshot file that the match program was read from.
+	 * @param matchProgram	The match program, which is not being changed yet.
+	 * @return	A journal that records every change of the match program from now on.
+	 * @throws IOException	If the journal could not be read or does not follow the snapshot.
+	 */
+	public static Journal recover(File file, File snapshot, MatchProgram matchProgram) throws IOException {
+		if (!file.exists()) {
+			return start(file, snapshot, matchProgram);
+		}
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			long end = replay(channel, matchProgram);
+			//Removes a record that was being written during a crash, so that new records follow the last complete one.
+			channel.truncate(end);
+			channel.position(end);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		return attach(new Journal(file, snapshot, matchProgram, channel));
+	}
+
+	/**
+	 * Makes a new journal listen to its match program and compacts it if it is already large.
+	 */
+	private static Journal attach(Journal journal) throws IOException {
+		journal.matchProgram.addListener(journal);
+		if (journal.channel.size() > COMPACT_SIZE) {
+			journal.startCompaction();
+		}
+		return journal;
+	}
+
+	@Override
+	public void refereeInserted(Referee ref) {
+		synchronized (this) {
+			int start = begin(INSERT);
+			putString(ref.getRefID());
+			putString(ref.getFirstName());
+			putString(ref.getLastName());
+			putString(ref.getQualification());
+			put((byte) ref.getLocality());
+			put(willingBits(ref));
+			ensure(4);
+			queue.putInt(ref.getMatchesAllocated());
+			end(start);
+		}
+	}
+
+	@Override
+	public void refereeUpdated(Referee ref) {
+		synchronized (this) {
+			int start = begin(UPDATE);
+			putString(ref.getRefID());
+			putString(ref.getQualification());
+			put((byte) ref.getLocality());
+			put(willingBits(ref));
+			end(start);
+		}
+	}
+
+	@Override
+	public void refereeDeleted(Referee ref) {
+		synchronized (this) {
+			int start = begin(DELETE);
+			putString(ref.getRefID());
+			end(start);
+		}
+	}
+
+	@Override
+	public void matchAllocated(Match match) {
+		synchronized (this) {
+			int start = begin(ALLOCATE);
+			put((byte) match.getMatchWeekNumber());
+			put((byte) match.getMatchArea());
+			put((byte) (match.getMatchLevel().equals("Senior") ? 1 : 0));
+			putString(match.getFirstReferee().getRefID());
+			putString(match.getSecondReferee().getRefID());
+			end(start);
+		}
+	}
+
+	/**
+	 * Waits until every change made so far has been forced to the disk.
+	 * @throws IOException	If the journal could not be written.
+	 */
+	public synchronized void sync() throws IOException {
+		long target = queued;
+		while (durable < target && failure == null) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for the journal");
+			}
+		}
+		if (failure != null) {
+			throw new IOException("The journal could not be written", failure);
+		}
+	}
+
+	/**
+	 * Stops listening to the match program, forces the queued records to the disk and closes the file.
+	 * @throws IOException	If the journal could not be written.
+	 */
+	public void close() throws IOException {
+		matchProgram.removeListener(this);
+		synchronized (this) {
+			closed = true;
+			notifyAll();
+		}
+		try {
+			writer.join();
+			Thread running;
+			synchronized (this) {
+				running = compaction;
+			}
+			if (running != null) {
+				running.join();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while closing the journal");
+		} finally {
+			channel.close();
+		}
+		synchronized (this) {
+			if (failure != null) {
+				throw new IOException("The journal could not be written", failure);
+			}
+		}
+	}
+
+	/**
+	 * Loop of the writer thread. Writes the queued records in batches, forces every batch to the disk and drops the
+	 * records of a completed snapshot.
+	 */
+	private void writeQueued() {
+		while (true) {
+			ByteBuffer batch;
+			long batchEnd, dropUpTo;
+			synchronized (this) {
+				while (queue.position() == 0 && compactUpTo < 0 && !closed) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						//Only close stops the writer, so that no queued record is lost.
+					}
+				}
+				if (queue.position() == 0 && compactUpTo < 0) {
+					return;
+				}
+				//The records that arrive from now on are queued in the other buffer while this batch is written.
+				batch = queue;
+				queue = writing;
+				writing = batch;
+				batchEnd = queued;
+				dropUpTo = compactUpTo;
+				compactUpTo = -1;
+			}
+
+			try {
+				batch.flip();
+				while (batch.hasRemaining()) {
+					channel.write(batch);
+				}
+				batch.clear();
+				channel.force(false);
+			} catch (IOException e) {
+				fail(e);
+				return;
+			}
+			synchronized (this) {
+				durable = batchEnd;
+				notifyAll();
+			}
+
+			if (dropUpTo >= 0) {
+				try {
+					dropRecords(dropUpTo);
+				} catch (IOException e) {
+					//The full journal is kept and the snapshot skips the records that it contains, so only a lost file stops the journal.
+					if (!channel.isOpen()) {
+						fail(e);
+						return;
+					}
+				}
+			}
+			try {
+				if (channel.size() > COMPACT_SIZE) {
+					startCompaction();
+				}
+			} catch (IOException e) {
+				fail(e);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Stops the journal after the writer thread could not write it. Every sync from now on throws the error.
+	 */
+	private synchronized void fail(IOException e) {
+		failure = e;
+		notifyAll();
+	}
+
+	/**
+	 * Writes a snapshot of the match program in a background thread, unless one is being written already.
+	 * The writer thread drops the records that the snapshot contains once it has been written.
+	 */
+	private synchronized void startCompaction() {
+		if (compaction != null || closed) {
+			return;
+		}
+		compaction = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					long changeCount = matchProgram.writeSnapshotAt(snapshot);
+					synchronized (Journal.this) {
+						compactUpTo = changeCount;
+						compaction = null;
+						Journal.this.notifyAll();
+					}
+				} catch (IOException e) {
+					//The journal keeps every record, so nothing is lost. The next batch tries again.
+					synchronized (Journal.this) {
+						compaction = null;
+					}
+				}
+			}
+		}, "Journal compaction");
+		compaction.setDaemon(true);
+		compaction.start();
+	}
+
+	/**
+	 * Replaces the journal file with a copy that only holds the records after the given change count. Called by the writer thread.
+	 * The copy replaces the file atomically, and until then the snapshot skips the records that it already contains.
+	 * The journal is closed while it is replaced, since Windows cannot replace an open file, and opened again afterwards
+	 * whether the copy replaced it or not. The channel is only left closed if the journal cannot be opened again.
+	 */
+	private void dropRecords(long upTo) throws IOException {
+		long size = channel.size();
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("The journal is too large");
+		}
+		ByteBuffer buffer = read(channel, (int) size);
+		buffer.position(HEADER_SIZE);
+		long keepFrom = size;
+		while (buffer.hasRemaining()) {
+			int start = buffer.position();
+			if (!nextRecord(buffer)) {
+				break;
+			}
+			if (buffer.getLong(start + LENGTH_SIZE) > upTo) {
+				keepFrom = start;
+				break;
+			}
+		}
+
+		Path temp = Files.createTempFile(file.getParentFile().toPath(), file.getName() + ".", ".tmp");
+		try {
+			FileChannel copy = FileChannel.open(temp, StandardOpenOption.WRITE);
+			try {
+				writeHeader(copy);
+				buffer.position((int) keepFrom);
+				while (buffer.hasRemaining()) {
+					copy.write(buffer);
+				}
+				copy.force(true);
+			} finally {
+				copy.close();
+			}
+
+			channel.close();
+			try {
+				try {
+					Files.move(temp, file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+				} catch (AtomicMoveNotSupportedException e) {
+					Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				}
+			} finally {
+				channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+				channel.position(channel.size());
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Applies the records of a journal file that follow the change count of a match program.
+	 * @return	The position after the last complete record.
+	 */
+	private static long replay(FileChannel channel, MatchProgram matchProgram) throws IOException {
+		long size = channel.size();
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("The journal is too large");
+		}
+		ByteBuffer buffer = read(channel, (int) size);
+		if (size < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+			throw new IOException("Not a journal file");
+		}
+
+		byte[] scratch = new byte[64];
+		Lock lock = matchProgram.writeLock();
+		lock.lock();
+		try {
+			while (buffer.hasRemaining()) {
+				int start = buffer.position();
+				if (!nextRecord(buffer)) {
+					return start;
+				}
+				int end = buffer.position();
+				buffer.position(start + LENGTH_SIZE);
+				long sequence = buffer.getLong();
+				if (sequence > matchProgram.getChangeCount()) {
+					if (sequence != matchProgram.getChangeCount() + 1) {
+						throw new IOException("The journal is missing the changes after " + matchProgram.getChangeCount());
+					}
+					apply(buffer, matchProgram, scratch);
+					if (matchProgram.getChangeCount() != sequence) {
+						throw new IOException("Change " + sequence + " of the journal does not match the snapshot");
+					}
+				}
+				buffer.position(end);
+			}
+			return buffer.position();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Applies the record whose type is at the position of the buffer. The caller holds the write lock of the match program.
+	 */
+	private static void apply(ByteBuffer buffer, MatchProgram matchProgram, byte[] scratch) throws IOException {
+		byte type = buffer.get();
+		switch (type) {
+		case INSERT: {
+			String refID = getString(buffer, scratch);
+			String firstName = getString(buffer, scratch);
+			String lastName = getString(buffer, scratch);
+			String qualification = getString(buffer, scratch);
+			int locality = getArea(buffer);
+			boolean[] willing = getWilling(buffer);
+			matchProgram.insert(new Referee(refID, firstName, lastName, qualification, buffer.getInt(), locality, willing));
+			break;
+		}
+		case UPDATE: {
+			Referee ref = getReferee(buffer, matchProgram, scratch);
+			String qualification = getString(buffer, scratch);
+			int locality = getArea(buffer);
+			matchProgram.updateRef(ref, qualification, locality, getWilling(buffer));
+			break;
+		}
+		case DELETE:
+			matchProgram.deleteRef(getReferee(buffer, matchProgram, scratch));
+			break;
+		case ALLOCATE: {
+			int week = buffer.get();
+			int area = getArea(buffer);
+			int level = buffer.get();
+			if (week < 1 || week > 52 || level < 0 || level >= LEVELS.length) {
+				throw new IOException("Invalid match in the journal");
+			}
+			Referee first = getReferee(buffer, matchProgram, scratch);
+			Referee second = getReferee(buffer, matchProgram, scratch);
+			if (!matchProgram.replayAllocation(new Match(week, area, LEVELS[level]), first, second)) {
+				throw new IOException("A referee of a match of week " + week + " in the journal is already booked that week");
+			}
+			break;
+		}
+		default:
+			throw new IOException("Unknown journal record " + type);
+		}
+	}
+
+	/**
+	 * Checks the record at the position of the buffer and moves the position after it.
+	 * @return	false if the record is cut short or does not match its checksum. The position is then undefined.
+	 */
+	private static boolean nextRecord(ByteBuffer buffer) {
+		if (buffer.remaining() < LENGTH_SIZE) {
+			return false;
+		}
+		int length = buffer.getInt();
+		if (length < 9 || length > buffer.remaining() - CRC_SIZE) {
+			return false;
+		}
+		ByteBuffer body = buffer.slice();
+		body.limit(length);
+		CRC32 crc = new CRC32();
+		crc.update(body);
+		buffer.position(buffer.position() + length);
+		return buffer.getInt() == (int) crc.getValue();
+	}
+
+	/**
+	 * Reads the start of a journal file into the heap. The file is not mapped, because Windows cannot replace a mapped file
+	 * until the mapping is garbage collected.
+	 */
+	private static ByteBuffer read(FileChannel channel, int size) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, buffer.position()) < 0) {
+				throw new IOException("The journal ended while it was read");
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Writes the header of an empty journal file and forces it to the disk.
+	 */
+	private static void writeHeader(FileChannel channel) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC).putInt(VERSION).flip();
+		while (header.hasRemaining()) {
+			channel.write(header);
+		}
+		channel.force(true);
+	}
+
+	/**
+	 * Starts a record in the queue. Called while the write lock of the match program is held, so the change count is the
+	 * sequence number of the change that is reported.
+	 * @return	The position of the record in the queue.
+	 */
+	private int begin(byte type) {
+		ensure(LENGTH_SIZE + 9);
+		int start = queue.position();
+		queue.putInt(0);
+		queue.putLong(matchProgram.getChangeCount());
+		queue.put(type);
+		return start;
+	}
+
+	/**
+	 * Fills in the length and the checksum of a record and hands it to the writer thread.
+	 */
+	private void end(int start) {
+		int length = queue.position() - start - LENGTH_SIZE;
+		queue.putInt(start, length);
+		ByteBuffer body = queue.duplicate();
+		body.position(start + LENGTH_SIZE);
+		body.limit(start + LENGTH_SIZE + length);
+		CRC32 crc = new CRC32();
+		crc.update(body);
+		ensure(CRC_SIZE);
+		queue.putInt((int) crc.getValue());
+		queued = matchProgram.getChangeCount();
+		notifyAll();
+	}
+
+	private void put(byte value) {
+		ensure(1);
+		queue.put(value);
+	}
+
+	private void putString(String str) {
+		byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+		ensure(4 + bytes.length);
+		queue.putInt(bytes.length);
+		queue.put(bytes);
+	}
+
+	/**
+	 * Makes room for the given number of bytes in the queue.
+	 */
+	private void ensure(int bytes) {
+		if (queue.remaining() < bytes) {
+			ByteBuffer bigger = ByteBuffer.allocate(Math.max(queue.capacity() * 2, queue.position() + bytes));
+			queue.flip();
+			bigger.put(queue);
+			queue = bigger;
+		}
+	}
+
+	private static byte willingBits(Referee ref) {
+		int willing = 0;
+		for (int area = 0; area < 3; area++) {
+			if (ref.isWillingToGo(area)) {
+				willing |= 1 << area;
+			}
+		}
+		return (byte) willing;
+	}
+
+	private static boolean[] getWilling(ByteBuffer buffer) {
+		int willing = buffer.get();
+		boolean[] willingToGo = new boolean[3];
+		for (int area = 0; area < 3; area++) {
+			willingToGo[area] = (willing & (1 << area)) != 0;
+		}
+		return willingToGo;
+	}
+
+	private static int getArea(ByteBuffer buffer) throws IOException {
+		int area = buffer.get();
+		if (area < Referee.AREA_NORTH || area > Referee.AREA_SOUTH) {
+			throw new IOException("Invalid area in the journal");
+		}
+		return area;
+	}
+
+	private static Referee getReferee(ByteBuffer buffer, MatchProgram matchProgram, byte[] scratch) throws IOException {
+		String refID = getString(buffer, scratch);
+		Referee ref = matchProgram.getRef(refID);
+		if (ref == null) {
+			throw new IOException("Referee " + refID + " of the journal is not in the snapshot");
+		}
+		return ref;
+	}
+
+	private static String getString(ByteBuffer buffer, byte[] scratch) throws IOException {
+		int length = buffer.getInt();
+		if (length < 0 || length > buffer.remaining()) {
+			throw new IOException("Invalid String length " + length);
+		}
+		byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+		buffer.get(bytes, 0, length);
+		return new String(bytes, 0, length, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,120 @@
+package model;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations in nanoseconds with a fixed number of buckets, so that recording never creates anything and never
+ * takes a lock. Every power of two is split into SUB_BUCKETS buckets, so a percentile is reported within 1/SUB_BUCKETS of
+ * the real duration, from a nanosecond to centuries, in a few kilobytes.
+ * Thread safe. The percentiles are read without stopping the recording, so they can be a few durations behind.
+ * @author Team C
+ */
+final class LatencyHistogram {
+
+	/**Bits of the buckets of every power of two.*/
+	private static final int SUB_BITS = 3, SUB_BUCKETS = 1 << SUB_BITS;
+	/**Number of buckets that hold every positive long.*/
+	private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder total = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Records a duration.
+	 * @param nanos	The duration. Negative durations, which a clock that went back could give, are recorded as 0.
+	 */
+	void record(long nanos) {
+		if (nanos < 0) {
+			nanos = 0;
+		}
+		counts.incrementAndGet(bucket(nanos));
+		total.add(nanos);
+		long longest = max.get();
+		while (nanos > longest && !max.compareAndSet(longest, nanos)) {
+			longest = max.get();
+		}
+	}
+
+	/**
+	 * Returns the number of durations recorded.
+	 * @return
+	 */
+	long getCount() {
+		long recorded = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			recorded += counts.get(i);
+		}
+		return recorded;
+	}
+
+	/**
+	 * Returns the sum of the durations recorded.
+	 * @return
+	 */
+	long getTotal() {
+		return total.sum();
+	}
+
+	/**
+	 * Returns the longest duration recorded, or 0.
+	 * @return
+	 */
+	long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Returns the duration that a share of the recorded durations do not exceed, rounded up to the end of its bucket.
+	 * @param quantile	The share, from 0 to 1, e.g. 0.99.
+	 * @return	The duration, never more than the longest, or 0 if nothing has been recorded.
+	 */
+	long getPercentile(double quantile) {
+		long[] snapshot = new long[BUCKETS];
+		long recorded = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = counts.get(i);
+			recorded += snapshot[i];
+		}
+		if (recorded == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(quantile * recorded));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return Math.min(lowest(i + 1) - 1, getMax());
+			}
+		}
+		return getMax();
+	}
+
+	/**
+	 * Returns the bucket of a duration. Durations below SUB_BUCKETS have a bucket each, the rest are bucketed by their highest
+	 * bit and the SUB_BITS bits after it.
+	 */
+	static int bucket(long nanos) {
+		if (nanos < SUB_BUCKETS) {
+			return (int) nanos;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(nanos) - SUB_BITS;
+		return ((shift + 1) << SUB_BITS) + (int) ((nanos >>> shift) & (SUB_BUCKETS - 1));
+	}
+
+	/**
+	 * Returns the shortest duration of a bucket. The bucket after the last one starts at Long.MAX_VALUE.
+	 */
+	static long lowest(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		if (bucket >= BUCKETS) {
+			return Long.MAX_VALUE;
+		}
+		int shift = (bucket >> SUB_BITS) - 1;
+		return (long) ((bucket & (SUB_BUCKETS - 1)) | SUB_BUCKETS) << shift;
+	}
+}
@@ -0,0 +1,61 @@
+package model;
+
+import java.util.List;
+
+/**
+ * An independent league: its own match program, with its own referees and matches, and the fixtures of its season.
+ * @author Team C
+ */
+public final class League {
+
+	/**Name of the league.*/
+	private final String name;
+	/**The referees and the matches of the league.*/
+	private final MatchProgram matchProgram;
+	/**The fixtures of the league's season.*/
+	private final List<Fixture> fixtures;
+
+	/**
+	 * Constructor.
+	 * @param name	Name of the league.
+	 * @param matchProgram	The referees and the matches of the league.
+	 * @param fixtures	The fixtures of the league's season.
+	 */
+	public League(String name, MatchProgram matchProgram, List<Fixture> fixtures) {
+		this.name = name;
+		this.matchProgram = matchProgram;
+		this.fixtures = fixtures;
+	}
+
+	/**
+	 * Returns the name of the league.
+	 * @return
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the match program of the league.
+	 * @return
+	 */
+	public MatchProgram getMatchProgram() {
+		return matchProgram;
+	}
+
+	/**
+	 * Returns the fixtures of the league's season.
+	 * @return
+	 */
+	public List<Fixture> getFixtures() {
+		return fixtures;
+	}
+
+	/**
+	 * Allocates referees to every fixture of the league.
+	 * @return
+	 */
+	public SeasonResult allocateSeason() {
+		return matchProgram.allocateSeason(fixtures);
+	}
+}
@@ -0,0 +1,71 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Allocates the seasons of many leagues concurrently on a work-stealing pool.
+ * Leagues do not share referees or matches, so every league is allocated by a single task and the result of a league is
+ * the same as if the leagues were allocated one after another.
+ * @author Team C
+ */
+public final class LeagueRunner {
+
+	/**
+	 * Task that allocates the season of one league.
+	 */
+	private static final class AllocateLeague extends RecursiveTask<SeasonResult> {
+		private static final long serialVersionUID = 1L;
+		private final League league;
+
+		AllocateLeague(League league) {
+			this.league = league;
+		}
+
+		@Override
+		protected SeasonResult compute() {
+			return league.allocateSeason();
+		}
+	}
+
+	/**Number of threads of the pool.*/
+	private final int parallelism;
+
+	/**
+	 * Constructor.
+	 * @param parallelism	Number of threads that allocate leagues at the same time.
+	 */
+	public LeagueRunner(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1");
+		}
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Allocates the seasons of all the leagues and waits until every league is done.
+	 * @param leagues	The leagues to be allocated. Every league must appear only once.
+	 * @return	The result of every league, in the order of the leagues.
+	 */
+	public List<SeasonResult> allocate(List<League> leagues) {
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			ArrayList<AllocateLeague> tasks = new ArrayList<AllocateLeague>();
+			for (League league : leagues) {
+				AllocateLeague task = new AllocateLeague(league);
+				tasks.add(task);
+				pool.execute(task);
+			}
+
+			ArrayList<SeasonResult> results = new ArrayList<SeasonResult>();
+			for (AllocateLeague task : tasks) {
+				results.add(task.join());
+			}
+			return results;
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The result of loading a referees file: how many referees were loaded and which lines were malformed.
+ * @author Team C
+ */
+public final class LoadReport {
+
+	/**
+	 * A line of the referees file that could not be loaded and the reason why.
+	 */
+	public static final class MalformedLine {
+		private final long lineNumber;
+		private final String message;
+
+		MalformedLine(long lineNumber, String message) {
+			this.lineNumber = lineNumber;
+			this.message = message;
+		}
+
+		/**
+		 * Returns the number of the line, starting from 1.
+		 * @return
+		 */
+		public long getLineNumber() {
+			return lineNumber;
+		}
+
+		/**
+		 * Returns the reason that the line could not be loaded.
+		 * @return
+		 */
+		public String getMessage() {
+			return message;
+		}
+
+		@Override
+		public String toString() {
+			return "Line " + lineNumber + ": " + message;
+		}
+	}
+
+	/**Number of referees that were loaded.*/
+	private long loaded;
+	/**Lines that could not be loaded, in the order of the file.*/
+	private final ArrayList<MalformedLine> malformedLines = new ArrayList<MalformedLine>();
+
+	/**
+	 * Records that a referee was loaded.
+	 */
+	void referee() {
+		loaded++;
+	}
+
+	/**
+	 * Records that a number of referees were loaded.
+	 * @param count
+	 */
+	void referees(int count) {
+		loaded += count;
+	}
+
+	/**
+	 * Records a line that could not be loaded.
+	 * @param lineNumber	The number of the line, starting from 1.
+	 * @param message	The reason.
+	 */
+	void malformed(long lineNumber, String message) {
+		malformedLines.add(new MalformedLine(lineNumber, message));
+	}
+
+	/**
+	 * Returns the number of referees that were loaded.
+	 * @return
+	 */
+	public long getLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * Returns the lines that could not be loaded.
+	 * @return
+	 */
+	public List<MalformedLine> getMalformedLines() {
+		return malformedLines;
+	}
+}
@@ -1,8 +1,7 @@
 package model;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import javax.swing.JOptionPane;
+import java.util.concurrent.locks.Lock;
 
 /**
  * Holds information about a JavaBall match.
@@ -13,12 +12,15 @@ public final class Match {
 	public static final int AREA_NORTH = 0, AREA_CENTRAL = 1, AREA_SOUTH = 2;
 	/**Level of the match*/
 	private String matchLevel;
-	/**ArrayList that stores the Referees in order of suitability*/
-	private ArrayList<Referee> suitableRefs;
+	/**The registry that the referees were allocated from. Used to rank the suitable referees.*/
+	private RefereeRegistry referees;
 	/**Number of the week that the match is going to take place.*/
 	private int matchWeekNumber;
 	/**Area that the match is going to take place.*/
 	private int matchArea;
+
+	/**Number of the fixture of the match in its week, from 1, or 0 until the match is added to a calendar.*/
+	private int fixtureNumber;
 	/**Stores the two most suitable Referees for that match.*/
 	private Referee suitableRef1, suitableRef2;
 
@@ -33,7 +35,6 @@ public final class Match {
 		this.matchWeekNumber = matchWeekNumber;
 		this.matchArea = matchArea;
 		this.matchLevel = matchLevel;
-		suitableRefs = new ArrayList<Referee>();
 	}
 
 	/**
@@ -44,6 +45,22 @@ public final class Match {
 		return matchWeekNumber;
 	}
 
+	/**
+	 * Returns the number of the fixture of the match in its week. The week and the fixture number identify the match.
+	 * @return	From 1 in the order in which the matches of the week were allocated, or 0 if the match was not allocated.
+	 */
+	public int getFixtureNumber(){
+		return fixtureNumber;
+	}
+
+	/**
+	 * Sets the number of the fixture of the match when it is added to a calendar.
+	 * @param fixtureNumber
+	 */
+	void setFixtureNumber(int fixtureNumber){
+		this.fixtureNumber = fixtureNumber;
+	}
+
 	/**
 	 * Returns the area that the match is going to take place.
 	 * @return	0 = North, 1 = Central, 2 = South.
@@ -77,105 +94,125 @@ public final class Match {
 	}
 
 	/**
-	 * Returns an arrayList containing all the suitable referees.
+	 * Returns an arrayList containing all the suitable referees. The two allocated referees come first, followed by the rest
+	 * of the suitable referees in their current order of suitability. The list is built on every call and is not kept by the
+	 * match, so a match only holds its two referees. AllocationResult keeps the list of the allocation that it describes.
 	 * @return
 	 */
 	public ArrayList<Referee> getSuitableRefs () {		
+		if (referees == null) {
+			return new ArrayList<Referee>();
+		}
+		ArrayList<Referee> suitableRefs;
+		Lock lock = referees.lock.readLock();
+		lock.lock();
+		try {
+			suitableRefs = referees.rank(matchArea, isSenior());
+		} finally {
+			lock.unlock();
+		}
+		if (suitableRef1 != null) {
+			suitableRefs.remove(suitableRef2);
+			suitableRefs.remove(suitableRef1);
+			suitableRefs.add(0, suitableRef1);
+			suitableRefs.add(1, suitableRef2);
+		}
 		return suitableRefs;
 	}
 
 	/**
-	 * Allocates the 2 most suitable Referees to a match. Displays a list of all the referees in descending order of suitability.
-	 * Also, displays the 2 most suitable referees to the user.
-	 * @param refs	The list of referees
+	 * Sets the referees of a match read from a snapshot. Their matches and weeks are restored with them, so nothing is incremented.
+	 * @param referees	The registry of the referees
+	 * @param first	The first referee.
+	 * @param second	The second referee.
 	 */
-	public boolean allocateRefs(ArrayList<Referee> refs) {
-
-		//If we have less than 2 Referees, prints an error and exits the method.
-		if(refs.size() < 2){
-			JOptionPane.showMessageDialog(null, "There aren't enough suitable referees in the database!", "Not enough referees!", JOptionPane.ERROR_MESSAGE);
-			return false;
-		}
+	void restore(RefereeRegistry referees, Referee first, Referee second) {
+		this.referees = referees;
+		suitableRef1 = first;
+		suitableRef2 = second;
+	}
 
-		//Creates three new ArrayLists to store the Referees based on their distance from the match area.
-		//Local are the Referees that live in the area that the match is taking place.
-		ArrayList<Referee> local = new ArrayList<Referee>();
-		//Adjacent are the Referees that live in an adjacent area that the match is taking place.
-		ArrayList<Referee> adjacent = new ArrayList<Referee>();
-		//Far are the Referees that live in a non adjacent area that the match is taking place.
-		ArrayList<Referee> far = new ArrayList<Referee>();
-
-		//Loops all the Referees and based on their distance from the match area, adds them to the corresponding ArrayList.
-		for (Referee referee : refs) {
-			//Calculates the distance from the match area.
-			int areaDiff = Math.abs(referee.getLocality() - matchArea);
-			boolean willing2go = referee.isWillingToGo(matchArea);
-
-			//If the referee is not willing to go to this area, skip him.
-			//Local referees are willing to go, this is ensured elsewhere
-			if (!willing2go) {
-				continue;
-			}
+	/**
+	 * Returns if the match can only be refereed by referees with Senior qualification.
+	 * @return
+	 */
+	private boolean isSenior () {
+		return matchLevel.equals("Senior");
+	}
 
-			if (areaDiff == 0) {		//Local referee
-				local.add(referee);
-			} else if (areaDiff == 1) {	//Referee from adjacent areas
-				adjacent.add(referee);
-			} else {					//Referee from non-adjacent area
-				far.add(referee);
+	/**
+	 * Allocates the 2 most suitable Referees to a match, books them for the week of the match and increments their matches.
+	 * Does not display anything, the caller decides how to present the outcome. The caller must hold the write lock of the registry.
+	 * Nothing is created, so a match can be allocated again and again without producing garbage. The RefereeSelectionEvent
+	 * is only created while it is recorded, or else the JIT removes it.
+	 * @param referees	The registry of the referees
+	 * @return	ALLOCATED if two referees were allocated, otherwise the reason of the failure.
+	 */
+	AllocationStatus allocateRefs(RefereeRegistry referees) {
+		if (!FlightEvents.AVAILABLE) {
+			return selectRefs(referees);
+		}
+		RefereeSelectionEvent event = new RefereeSelectionEvent();
+		event.begin();
+		AllocationStatus status = selectRefs(referees);
+		event.end();
+		if (event.shouldCommit()) {
+			boolean seniorOnly = isSenior();
+			event.week = matchWeekNumber;
+			event.area = FlightEvents.areaName(matchArea);
+			event.level = matchLevel;
+			event.localCandidates = referees.tierSize(matchArea, seniorOnly, 0);
+			event.adjacentCandidates = referees.tierSize(matchArea, seniorOnly, 1);
+			event.farCandidates = referees.tierSize(matchArea, seniorOnly, 2);
+			event.status = status.name();
+			if (status == AllocationStatus.ALLOCATED) {
+				event.firstReferee = suitableRef1.getRefID();
+				event.secondReferee = suitableRef2.getRefID();
 			}
+			event.commit();
 		}
+		return status;
+	}
 
-		//Instantiates a RefereeMatchesComparator object. That object compares two referees based on their match allocations so far.
-		RefereeMatchesComparator comparator = new RefereeMatchesComparator();
-
-		//Sorts the three ArrayLists based on the previous comparator.
-		Collections.sort(local, comparator);
-		Collections.sort(adjacent, comparator);
-		Collections.sort(far, comparator);
+	/**
+	 * Allocates the referees of the match for allocateRefs.
+	 */
+	private AllocationStatus selectRefs(RefereeRegistry referees) {
+		this.referees = referees;
 
-		//Stores all the Referees in the suitableRefs ArrayList.
-		//First the local Referees are added to the suitableRefs ArrayList. Then the adjacent ones and last the far ones.
-		//The three ArrayLists are already sorted before merged, so we know that the two most suitable referees are the first two Referees in the suitableRefs ArrayList.
-		for (Referee r : local) {
-			suitableRefs.add(r);
-		}
+		//Only referees with Senior qualification can referee a "Senior" match.
+		boolean seniorOnly = isSenior();
 
-		for (Referee r : adjacent) {
-			suitableRefs.add(r);
+		//If we have less than 2 Referees, the allocation fails.
+		if(referees.qualified(seniorOnly) < 2){
+			return AllocationStatus.NOT_ENOUGH_REFEREES;
 		}
 
-		for (Referee r : far) {
-			suitableRefs.add(r);
+		//The registry keeps a heap of candidates for every home area and qualification, ordered by their match allocations so far.
+		//It returns the two most suitable referees: first the local ones, then the adjacent ones and last the far ones.
+		Referee[] best = referees.chosen;
+		if (referees.selectBest(matchArea, seniorOnly, matchWeekNumber, best) < 2) {
+			return AllocationStatus.NOT_ENOUGH_WILLING;
 		}
 
-		if (suitableRefs.size() < 2) {
-			JOptionPane.showMessageDialog(null, "There aren't enough suitable referees willing to go to that area", "Not enough suitable referees!", JOptionPane.ERROR_MESSAGE);
-			return false;
+		//Books both referees for the week. A referee can only referee one match every week.
+		if (!best[0].reserveWeek(matchWeekNumber)) {
+			return AllocationStatus.NOT_ENOUGH_WILLING;
 		}
-
-		//StringBuilder that provides the display of the suitable referees and the 2 most suitable ones.
-		StringBuilder sRefs = new StringBuilder();
-		sRefs.append("List of suitable referees for this match in descending order of suitability.\n\n");
-
-		for (Referee r: suitableRefs) {
-			sRefs.append(r.getFirstName() + " " + r.getLastName() + ", Matches Allocated: " + r.getMatchesAllocated() + "\n");
+		if (!best[1].reserveWeek(matchWeekNumber)) {
+			best[0].releaseWeek(matchWeekNumber);
+			return AllocationStatus.NOT_ENOUGH_WILLING;
 		}
 
-		sRefs.append("\nThe two most suitable referees for the match are the following: \n\n");
-		suitableRef1 = suitableRefs.get(0);
+		suitableRef1 = best[0];
 		//Increments the number of matches of the first Referee.
 		suitableRef1.incMatches();
 
-		suitableRef2 = suitableRefs.get(1);
+		suitableRef2 = best[1];
 		//Increments the number of matches of the second Referee.
 		suitableRef2.incMatches();
+		best[0] = best[1] = null;
 
-		sRefs.append(suitableRef1.getFirstName() + " " + suitableRef1.getLastName() + "\n");
-		sRefs.append(suitableRef2.getFirstName() + " " + suitableRef2.getLastName() + "\n");
-
-		//Prints the information message.
-		JOptionPane.showMessageDialog(null, sRefs.toString(), "", JOptionPane.INFORMATION_MESSAGE);
-		return true;
+		return AllocationStatus.ALLOCATED;
 	}
 }
@@ -0,0 +1,191 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The matches of a season keyed by week and fixture. Every week holds any number of fixtures, numbered from 1 in the order in
+ * which they were allocated, and a bit set of the weeks that have fixtures lets the matches of a range of weeks be iterated
+ * without visiting the empty weeks.
+ * A referee can still only referee one match every week. The weeks that he is booked for are kept with him in the roster store,
+ * so an allocation skips the referees who already have a match in the week in O(1), however many fixtures the week holds.
+ * The calendar is append only: a fixture is never moved or replaced once it has been added. The calendar of a match program is
+ * guarded by its lock and is never handed out; copy returns a calendar that can be read without the lock while the match
+ * program keeps changing.
+ * @author Team C
+ */
+public final class MatchCalendar implements Iterable<Match> {
+
+	/**Class constant. Represents the maximum number of weeks.*/
+	public static final int WEEKS = 52;
+	/**Number of fixtures that a week holds before its array grows.*/
+	private static final int INITIAL_FIXTURES = 4;
+
+	/**The fixtures of every week, indexed by week - 1 and fixture - 1. Only the first counts[week - 1] are set.*/
+	private final Match[][] fixtures;
+	/**Number of fixtures of every week, indexed by week - 1.*/
+	private final int[] counts;
+	/**Bit (week - 1) is set if the week has at least one fixture.*/
+	private long weeksWithFixtures;
+	/**Number of fixtures of all the weeks.*/
+	private int size;
+
+	/**
+	 * Constructor for an empty calendar.
+	 */
+	MatchCalendar() {
+		fixtures = new Match[WEEKS][];
+		counts = new int[WEEKS];
+	}
+
+	/**
+	 * Constructor for a copy of a calendar.
+	 */
+	private MatchCalendar(MatchCalendar calendar) {
+		//The arrays of the weeks are shared. The calendar only writes after the last fixture of a week or into a new, larger
+		//array, so the fixtures that the copy counts never change.
+		fixtures = calendar.fixtures.clone();
+		counts = calendar.counts.clone();
+		weeksWithFixtures = calendar.weeksWithFixtures;
+		size = calendar.size;
+	}
+
+	/**
+	 * Adds a match after the fixtures of its week.
+	 * @param match	The match. Its week must be valid.
+	 * @return	The number of the fixture of the match in its week, from 1.
+	 */
+	int add(Match match) {
+		int i = match.getMatchWeekNumber() - 1;
+		Match[] week = fixtures[i];
+		if (week == null) {
+			week = fixtures[i] = new Match[INITIAL_FIXTURES];
+		} else if (counts[i] == week.length) {
+			week = fixtures[i] = Arrays.copyOf(week, week.length * 2);
+		}
+		week[counts[i]] = match;
+		match.setFixtureNumber(++counts[i]);
+		weeksWithFixtures |= 1L << i;
+		size++;
+		return counts[i];
+	}
+
+	/**
+	 * Returns a copy of the calendar that does not see the matches added from now on. It takes O(WEEKS), whatever the number
+	 * of fixtures. The caller must hold the lock of the match program.
+	 * @return
+	 */
+	MatchCalendar copy() {
+		return new MatchCalendar(this);
+	}
+
+	/**
+	 * Returns the number of fixtures of all the weeks.
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of fixtures of a week.
+	 * @param week	The week number, from 1 to 52.
+	 * @return
+	 */
+	public int getFixtureCount(int week) {
+		return counts[week - 1];
+	}
+
+	/**
+	 * Returns a fixture of a week.
+	 * @param week	The week number, from 1 to 52.
+	 * @param fixture	The number of the fixture in the week, from 1 to getFixtureCount(week).
+	 * @return	A Match object.
+	 */
+	public Match getFixture(int week, int fixture) {
+		if (fixture < 1 || fixture > counts[week - 1]) {
+			throw new IndexOutOfBoundsException("Week " + week + " has no fixture " + fixture);
+		}
+		return fixtures[week - 1][fixture - 1];
+	}
+
+	/**
+	 * Iterates over the fixtures of all the weeks, week by week and in the order of the fixtures.
+	 */
+	@Override
+	public Iterator<Match> iterator() {
+		return new Fixtures(1, WEEKS);
+	}
+
+	/**
+	 * Returns the fixtures of a range of weeks, week by week and in the order of the fixtures. The weeks without fixtures
+	 * are skipped.
+	 * @param fromWeek	The first week, from 1 to 52.
+	 * @param toWeek	The last week, from fromWeek to 52.
+	 * @return
+	 */
+	public Iterable<Match> getWeeks(final int fromWeek, final int toWeek) {
+		if (fromWeek < 1 || toWeek > WEEKS || fromWeek > toWeek) {
+			throw new IllegalArgumentException("Invalid weeks " + fromWeek + " to " + toWeek);
+		}
+		return new Iterable<Match>() {
+			@Override
+			public Iterator<Match> iterator() {
+				return new Fixtures(fromWeek, toWeek);
+			}
+		};
+	}
+
+	/**
+	 * Iterates over the fixtures of a range of weeks. The next week with fixtures is found from the bit set of the weeks.
+	 */
+	private final class Fixtures implements Iterator<Match> {
+
+		/**The weeks that are left, bit (week - 1) for every week with fixtures.*/
+		private long weeks;
+		/**Index of the current week and of its next fixture.*/
+		private int week = -1, fixture;
+
+		Fixtures(int fromWeek, int toWeek) {
+			//The bits from fromWeek - 1 to toWeek - 1. toWeek is at most 52, so the shift never wraps.
+			weeks = weeksWithFixtures & ((1L << toWeek) - 1) & -(1L << (fromWeek - 1));
+			nextWeek();
+		}
+
+		/**
+		 * Moves to the first fixture of the next week with fixtures, or past the last week.
+		 */
+		private void nextWeek() {
+			if (weeks == 0) {
+				week = WEEKS;
+				return;
+			}
+			week = Long.numberOfTrailingZeros(weeks);
+			weeks &= weeks - 1;
+			fixture = 0;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return week < WEEKS;
+		}
+
+		@Override
+		public Match next() {
+			if (week == WEEKS) {
+				throw new NoSuchElementException();
+			}
+			Match match = fixtures[week][fixture++];
+			if (fixture == counts[week]) {
+				nextWeek();
+			}
+			return match;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -1,11 +1,21 @@
 package model;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.locks.Lock;
 
 /**
- * Maintains an array of matches and an ArrayList of referees.
+ * Maintains a calendar of matches and an ArrayList of referees.
  * Contains methods that allows objects to be added and removed.
+ * All the public methods are thread safe. The referee registry and the calendar of the matches are guarded by the read/write lock
+ * of the registry. A week holds any number of fixtures, but a referee is only allocated to one match every week.
+ * Referees must be updated through updateRef, not through their setters, when other threads use the match program.
  * @author Team C
  */
 public final class MatchProgram {
@@ -16,36 +26,47 @@ public final class MatchProgram {
 	private static final String LINES_FORMAT = "   %-7s %-18s %-22s %-21s %-14s %-24s %-18s";
 
 	/**Class constant. Represents the maximum number of weeks.*/
-	private static final int WEEKS = 52;	
+	private static final int WEEKS = MatchCalendar.WEEKS;
+	/**Number of times that allocateSeasonConcurrently picks the referees of a match under the read lock before it picks them
+	 * under the write lock instead.*/
+	private static final int OPTIMISTIC_ATTEMPTS = 4;
 
-	/**ArrayList containing all the referees.*/
-	private ArrayList<Referee> refereesList; 
+	/**Registry containing all the referees, indexed by name, ID, qualification and locality.*/
+	private RefereeRegistry referees;
 
-	/**Array that contains all the matches.*/
-	private Match[] matchesArray;
+	/**Calendar that contains all the matches, keyed by week and fixture. Guarded by the lock of the registry.*/
+	private MatchCalendar calendar;
+
+	/**Number of changes made through the public methods. Guarded by the write lock. Restored from snapshots, so it identifies a state.*/
+	private long changeCount;
+
+	/**Listeners that are notified of every change.*/
+	private CopyOnWriteArrayList<MatchProgramListener> listeners;
 
 	/**
-	 * Constructor that instantiates an array that contains the matches and is size 52 and
-	 * an ArrayList that contain all the referees.
+	 * Constructor that instantiates an empty calendar of 52 weeks for the matches and
+	 * a registry that contains all the referees.
 	 */
 	public MatchProgram(){
-		matchesArray = new Match[WEEKS];
-		refereesList = new ArrayList<Referee>();
+		calendar = new MatchCalendar();
+		referees = new RefereeRegistry();
+		listeners = new CopyOnWriteArrayList<MatchProgramListener>();
 	}
 
 	/**
-	 * Returns an arrayList of Referees that have Senior Qualification.
-	 * @return
+	 * Adds a listener that is notified of every change made to the match program from now on.
+	 * @param listener
 	 */
-	private ArrayList<Referee> getSeniorRefs(){
-		ArrayList<Referee> seniorRefs = new ArrayList<Referee>();
-		
-		for(Referee tempRef : refereesList){
-			if(tempRef.isSenior()){
-				seniorRefs.add(tempRef);
-			}
-		}
-		return seniorRefs;
+	public void addListener(MatchProgramListener listener){
+		listeners.add(listener);
+	}
+
+	/**
+	 * Removes a listener.
+	 * @param listener
+	 */
+	public void removeListener(MatchProgramListener listener){
+		listeners.remove(listener);
 	}
 
 	/**
@@ -53,14 +74,26 @@ public final class MatchProgram {
 	 *  in GUI class
 	 */
 	public String displayRefereesList()
+	{
+		long start = Metrics.DISPLAY.start();
+		try {
+			return formatRefereesList();
+		} finally {
+			Metrics.DISPLAY.stop(start);
+		}
+	}
+
+	/**
+	 * Formats the list of the referees for displayRefereesList.
+	 */
+	private String formatRefereesList()
 	{
 		StringBuilder mainStr = new StringBuilder();
 		String id, firstName, lastName, qualification, locality, willingToGo = "", matchallocStr = "";
 		int matchallocations;
 
-		//Sort the referees list based on their ID.
-		RefereeIDComparator comparator = new RefereeIDComparator();
-		Collections.sort(refereesList, comparator);
+		//The referees in the order of their ID. The registry keeps them sorted, so nothing is sorted here.
+		ArrayList<Referee> refereesList = getAllRefsByID();
 
 		//First Line
 		mainStr.append( String.format("%n" + FIRST_LINE_FORMAT + "%n%104s %20s %n%n", "ID", "First Name", "Last Name", "Qualification", "Match Allocations", "Locality","Willing to go", " ", "[North, Central, South]"));
@@ -95,19 +128,114 @@ public final class MatchProgram {
 	}
 
 	/**
-	 * Returns the arrayList of Referees.
+	 * Returns a new arrayList containing all the Referees in order of insertion.
 	 * @return
 	 */
 	public ArrayList<Referee> getAllRefs(){
-		return refereesList;
+		Lock lock = referees.lock.readLock();
+		lock.lock();
+		try {
+			return new ArrayList<Referee>(referees.getAll());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns a new arrayList containing all the Referees in the order of their IDs, e.g. for displaying or writing them.
+	 * The registry keeps an index of the IDs up to date as referees are inserted and deleted, so the list is not sorted.
+	 * @return
+	 */
+	public ArrayList<Referee> getAllRefsByID(){
+		Lock lock = referees.lock.readLock();
+		lock.lock();
+		try {
+			return referees.getAllByID();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns a new arrayList containing the Referees at a range of positions in the order of their IDs, e.g. for a page of the roster.
+	 * Only the referees of the range are copied, so a page costs the same whatever the size of the roster.
+	 * @param offset	The position of the first referee, from 0.
+	 * @param limit	The largest number of referees returned.
+	 * @return
+	 */
+	public ArrayList<Referee> getRefsByID(int offset, int limit){
+		Lock lock = referees.lock.readLock();
+		lock.lock();
+		try {
+			return referees.getRangeByID(offset, limit);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of Referees.
+	 * @return
+	 */
+	public int getRefCount(){
+		Lock lock = referees.lock.readLock();
+		lock.lock();
+		try {
+			return referees.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Given the ID of a referee, returns this referee.
+	 * @param refID	The ID of the referee.
+	 * @return	A Referee object or null.
+	 */
+	public Referee getRef(String refID){
+		Lock lock = referees.lock.readLock();
+		lock.lock();
+		try {
+			return referees.getByID(refID);
+		} finally {
+			lock.unlock();
+		}
 	}
 
 	/**
 	 * Sets the array of referees according to the inputs from the RefereesIn.txt file.
 	 * @param addInitRef Referee to be added to the list
+	 * @return	false if another referee has his ID, in which case he is not added.
+	 */
+	public boolean insertInitialRef(Referee addInitRef){
+		Lock lock = referees.lock.writeLock();
+		lock.lock();
+		try {
+			return referees.add(addInitRef);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Adds a list of referees read from an input file, taking the lock only once.
+	 * @param addInitRefs Referees to be added to the list, in order.
+	 * @return	The positions in the list of the referees that were not added because an earlier referee has their ID, in order.
 	 */
-	public void insertInitialRef(Referee addInitRef){
-		refereesList.add(addInitRef);
+	public ArrayList<Integer> insertInitialRefs(List<Referee> addInitRefs){
+		ArrayList<Integer> duplicates = new ArrayList<Integer>();
+		Lock lock = referees.lock.writeLock();
+		lock.lock();
+		try {
+			for(int i = 0; i < addInitRefs.size(); i++){
+				if(!referees.add(addInitRefs.get(i))){
+					duplicates.add(i);
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+		return duplicates;
 	}
 
 	/**
@@ -117,14 +245,32 @@ public final class MatchProgram {
 	 * @return	A Referee object or null.
 	 */
 	public Referee selectRef(String refName, String refSurname){
+		Lock lock = referees.lock.readLock();
+		lock.lock();
+		try {
+			//If no referee with this first and last name is found, the registry returns null.
+			return referees.getByName(refName, refSurname);
+		} finally {
+			lock.unlock();
+		}
+	}
 
-		for(Referee ref : refereesList){
-			if(ref.getFirstName().equals(refName) && ref.getLastName().equals(refSurname)){
-				return ref;
-			}
+	/**
+	 * Returns the referees whose first name, last name or ID start with the words of a search, e.g. "ann gr" or "AG12".
+	 * A few typos are allowed in the longer words. It takes well under a millisecond on a roster of a million referees, so it can
+	 * run as the user types. A search that is interrupted stops early and returns what it has found.
+	 * @param query	The words of the search, separated by spaces. Case does not matter.
+	 * @param limit	The largest number of referees returned.
+	 * @return	The referees, those that match with fewer typos first.
+	 */
+	public ArrayList<Referee> searchRefs(String query, int limit){
+		Lock lock = referees.lock.readLock();
+		lock.lock();
+		try {
+			return referees.search(query, limit);
+		} finally {
+			lock.unlock();
 		}
-		//If no referee with this first and last name is found, return null.
-		return null;
 	}
 
 	/**
@@ -135,16 +281,97 @@ public final class MatchProgram {
 	 * @param matchesAllocated	Number of matches already allocated to this referee.
 	 * @param home	Home of the referee.
 	 * @param willing	Areas that the referee is willing to go.
+	 * @throws IllegalArgumentException	If the qualification is too short to have a level, e.g. "NJB".
 	 */
 	public void insertRef(String refName, String refSurname, String qualification, int matchesAllocated, int home, boolean[] willing){
+		//Checked before an ID is given, so a rejected referee does not use up a sequence number.
+		RosterStore.checkQualification(qualification);
+		Lock lock = referees.lock.writeLock();
+		lock.lock();
+		try {
+			//Based on the referee's first and last name, calculate a unique ID.
+			String tmpID = giveID(refName, refSurname);
+
+			Referee newRef = new Referee(tmpID, refName, refSurname, qualification, matchesAllocated, home, willing);
+
+			//Adds him to the list of referees.
+			insert(newRef);
+		} finally {
+			lock.unlock();
+		}
+	}
 
-		//Based on the referee's first and last name, calculate a unique ID.
-		String tmpID = giveID(refName, refSurname);
+	/**
+	 * Inserts a Referee to the list, unless there is already a referee with the same first and last name. Checking the name
+	 * and inserting happen under the same lock, so two callers cannot insert the same referee.
+	 * @param refName	Name of the referee.
+	 * @param refSurname	Surname of the referee.
+	 * @param qualification	Qualification
+	 * @param matchesAllocated	Number of matches already allocated to this referee.
+	 * @param home	Home of the referee.
+	 * @param willing	Areas that the referee is willing to go.
+	 * @return	The new referee, or null if the name is taken.
+	 * @throws IllegalArgumentException	If the qualification is too short to have a level, e.g. "NJB".
+	 */
+	public Referee insertRefIfAbsent(String refName, String refSurname, String qualification, int matchesAllocated, int home, boolean[] willing){
+		RosterStore.checkQualification(qualification);
+		Lock lock = referees.lock.writeLock();
+		lock.lock();
+		try {
+			if (referees.getByName(refName, refSurname) != null) {
+				return null;
+			}
+			Referee newRef = new Referee(giveID(refName, refSurname), refName, refSurname, qualification, matchesAllocated, home, willing);
+			insert(newRef);
+			return newRef;
+		} finally {
+			lock.unlock();
+		}
+	}
 
-		Referee newRef = new Referee(tmpID, refName, refSurname, qualification, matchesAllocated, home, willing);
+	/**
+	 * Adds a new referee to the registry and reports the change. The caller must hold the write lock.
+	 * @param newRef	The referee, with a unique ID.
+	 */
+	void insert(Referee newRef){
+		if(!referees.add(newRef)){
+			throw new IllegalStateException("Referee ID " + newRef.getRefID() + " is already taken");
+		}
+		changeCount++;
+		for(MatchProgramListener listener : listeners){
+			listener.refereeInserted(newRef);
+		}
+	}
 
-		//Adds him to the list of referees.
-		refereesList.add(newRef);
+	/**
+	 * Updates the qualification, the home and the areas that a referee is willing to go.
+	 * @param referee	The referee to be updated.
+	 * @param qualification	Qualification
+	 * @param home	Home of the referee.
+	 * @param willing	Areas that the referee is willing to go.
+	 * @return	false if the referee has been deleted, in which case he is not updated.
+	 * @throws IllegalArgumentException	If the qualification is too short to have a level, e.g. "NJB".
+	 */
+	public boolean updateRef(Referee referee, String qualification, int home, boolean[] willing){
+		//Checked before the home and the willingness are changed, so a rejected update changes nothing.
+		RosterStore.checkQualification(qualification);
+		Lock lock = referees.lock.writeLock();
+		lock.lock();
+		try {
+			if (referee.registry != referees) {
+				return false;
+			}
+			referee.setQualification(qualification);
+			referee.setLocality(home);
+			referee.setWillingToGo(willing);
+			changeCount++;
+			for(MatchProgramListener listener : listeners){
+				listener.refereeUpdated(referee);
+			}
+			return true;
+		} finally {
+			lock.unlock();
+		}
 	}
 
 	/**
@@ -155,20 +382,9 @@ public final class MatchProgram {
 	 */
 	private String giveID(String refName, String refSurname){
 		//We know that the ID is going to be the first letter of first name followed by the first letter of the last name.
-		//The ID finishes with a sequence number. Counter helps us calculate this number.
-		String tempID = ("" + refName.charAt(0) + refSurname.charAt(0)).toUpperCase();
-		int counter = 1;
-
-		for(Referee tempRef : refereesList){
-			String eachRefID = tempRef.getRefID().substring(0, 2);
-
-			//If another referee's ID's first two letters are equal to the newly added, then we increment the counter.
-			if(eachRefID.equalsIgnoreCase(tempID)){
-				counter++;
-			}
-		}
-		//Returns the ID followed by a sequence number.
-		return (tempID + counter);
+		//The ID finishes with a sequence number. The registry keeps the highest sequence number of every prefix, so
+		//an ID is never given twice even after a referee has been deleted.
+		return referees.nextID(refName, refSurname);
 	}
 	
 	/**
@@ -178,51 +394,592 @@ public final class MatchProgram {
 	 * @return	If a referee was found and deleted, then true is returned. Otherwise, returns false.
 	 */
 	public void deleteRef(Referee referee){
-		refereesList.remove(referee);
+		Lock lock = referees.lock.writeLock();
+		lock.lock();
+		try {
+			if(referees.remove(referee)){
+				changeCount++;
+				for(MatchProgramListener listener : listeners){
+					listener.refereeDeleted(referee);
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
 	}
 
 	/**
-	 * Given a week number, returns the object Match that is played in this week number.
+	 * Deletes a referee who has not been allocated to any match. Checking his matches and deleting him happen under the same
+	 * lock, so an allocation cannot give him a match in between.
+	 * @param referee	The referee to be deleted.
+	 * @return	false if the referee has been allocated to a match or has already been deleted.
+	 */
+	public boolean deleteUnallocatedRef(Referee referee){
+		Lock lock = referees.lock.writeLock();
+		lock.lock();
+		try {
+			if(referee.getActualMatches() != 0 || !referees.remove(referee)){
+				return false;
+			}
+			changeCount++;
+			for(MatchProgramListener listener : listeners){
+				listener.refereeDeleted(referee);
+			}
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Runs a reader while the referees and the matches cannot change, so that it sees every field of a referee or a match as
+	 * the same update left it. Allocations and updates wait until the reader returns, so it should be short.
+	 * @param reader
+	 */
+	public void read(Runnable reader){
+		Lock lock = referees.lock.readLock();
+		lock.lock();
+		try {
+			reader.run();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Given a week number and the number of a fixture in that week, returns the object Match of that fixture.
 	 * @param weekNumber
+	 * @param fixtureNumber	From 1 to the number of fixtures of the week.
 	 * @return	A Match object.
 	 */
-	public Match getMatch(int weekNumber){
-		if(matchesArray[weekNumber - 1] != null){
-			return matchesArray[weekNumber - 1]; 
+	public Match getMatch(int weekNumber, int fixtureNumber){
+		Lock lock = referees.lock.readLock();
+		lock.lock();
+		try {
+			return calendar.getFixture(weekNumber, fixtureNumber);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of Matches.
+	 * @return
+	 */
+	public int getFixtureCount(){
+		Lock lock = referees.lock.readLock();
+		lock.lock();
+		try {
+			return calendar.size();
+		} finally {
+			lock.unlock();
 		}
-		return null;
 	}
 
 	/**
-	 * Returns all the Matches.
+	 * Returns a copy of the calendar of all the Matches. It can be read while matches are allocated, and does not see them.
+	 * Copying it takes the same time however many matches there are.
 	 * @return
 	 */
-	public Match[] getMatches(){
-		return matchesArray;
+	public MatchCalendar getCalendar(){
+		Lock lock = referees.lock.readLock();
+		lock.lock();
+		try {
+			return calendar.copy();
+		} finally {
+			lock.unlock();
+		}
 	}
 
 	/**
 	 * Creates a match based on the user's inputs and then allocates 2 referees to this match.
 	 * @param week	The number of the week that the match is going to take place.
-	 * @param category	Category of the match. There are 2 possible values: ["Junior", "Senior"].
 	 * @param area	The area that the match is going to take place ["North", "Central", "South"].
+	 * @param category	Category of the match. There are 2 possible values: ["Junior", "Senior"].
+	 * @return	ALLOCATED if the match was created, otherwise the reason of the failure.
 	 */
-	public void allocateRefsToMatch(int week, int area, String category) {
+	public AllocationStatus allocateRefsToMatch(int week, int area, String category) {
 
+		if(!isValid(week, area, category)){
+			Metrics.ALLOCATE.count(AllocationStatus.INVALID_MATCH.ordinal());
+			return AllocationStatus.INVALID_MATCH;
+		}
+		return allocate(new Match(week, area, category));
+	}
+
+	/**
+	 * Creates a match based on the user's inputs, allocates 2 referees to it and returns the outcome for presenting it.
+	 * allocateRefsToMatch does the same without creating a result, for callers that only need the status.
+	 * @param week	The number of the week that the match is going to take place.
+	 * @param area	The area that the match is going to take place ["North", "Central", "South"].
+	 * @param category	Category of the match. There are 2 possible values: ["Junior", "Senior"].
+	 * @return	The outcome, with the match if it was created.
+	 */
+	public AllocationResult allocateMatch(int week, int area, String category) {
+		if(!isValid(week, area, category)){
+			Metrics.ALLOCATE.count(AllocationStatus.INVALID_MATCH.ordinal());
+			return new AllocationResult(AllocationStatus.INVALID_MATCH, null);
+		}
 		Match newMatch = new Match(week, area, category);
-		boolean success;
-
-		if(category.equals("Senior")){
-			//If the match is "Senior" then only referees with Senior qualification can referee the match.
-			//getSeniorRefs() returns an arrayList of Referees.
-			success = newMatch.allocateRefs(getSeniorRefs());
-		}else{
-			//If the match is "Junior" then all the referees can referee the match.
-			success = newMatch.allocateRefs(getAllRefs());
-		}
-		//If the referee allocation was successful, insert the match to the array of matches
-		if (success) {
-			matchesArray[week-1] = newMatch;
+		AllocationStatus status = allocate(newMatch);
+		return new AllocationResult(status, status == AllocationStatus.ALLOCATED ? newMatch : null);
+	}
+
+	/**
+	 * Returns if the week, area and level of a match are valid.
+	 */
+	private static boolean isValid(int week, int area, String category){
+		return week >= 1 && week <= WEEKS && area >= Match.AREA_NORTH && area <= Match.AREA_SOUTH
+				&& (category.equals("Junior") || category.equals("Senior"));
+	}
+
+	/**
+	 * Allocates 2 referees to a valid match and inserts it after the fixtures of its week.
+	 * @param newMatch	The match. Its week, area and level must be valid.
+	 * @return	ALLOCATED if the match was inserted, otherwise the reason of the failure.
+	 */
+	private AllocationStatus allocate(Match newMatch) {
+		AllocationEvent event = FlightEvents.beginAllocation();
+		AllocationStatus status = insert(newMatch);
+		commit(event, newMatch, status);
+		return status;
+	}
+
+	/**
+	 * Ends the event of an allocation and commits it if it is recorded.
+	 * @param event	The event that FlightEvents.beginAllocation returned, or null.
+	 * @param match	The match, with its fixture number if it was allocated.
+	 * @param status	The outcome of the allocation.
+	 */
+	private static void commit(AllocationEvent event, Match match, AllocationStatus status) {
+		if (event == null) {
+			return;
+		}
+		event.end();
+		if (event.shouldCommit()) {
+			event.week = match.getMatchWeekNumber();
+			event.area = FlightEvents.areaName(match.getMatchArea());
+			event.level = match.getMatchLevel();
+			event.status = status.name();
+			event.fixture = status == AllocationStatus.ALLOCATED ? match.getFixtureNumber() : 0;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Allocates the referees of a match and inserts it for allocate.
+	 */
+	private AllocationStatus insert(Match newMatch) {
+		//If the match is "Senior" then only referees with Senior qualification can referee the match.
+		//If the match is "Junior" then all the referees can referee the match. The match picks them from the registry's heaps.
+		//Picking the referees and incrementing their matches happens under the lock, so every pick sees the latest allocations.
+		AllocationStatus status = null;
+		long start = Metrics.ALLOCATE.start();
+		Lock lock = referees.lock.writeLock();
+		lock.lock();
+		try {
+			status = newMatch.allocateRefs(referees);
+
+			//If the referee allocation was successful, insert the match to the calendar
+			if (status == AllocationStatus.ALLOCATED) {
+				added(newMatch);
+			}
+		} finally {
+			lock.unlock();
+			//An allocation that threw has no outcome and is not counted.
+			if (status != null) {
+				Metrics.ALLOCATE.stop(start, status.ordinal());
+			}
+		}
+
+		return status;
+	}
+
+	/**
+	 * Inserts a match whose referees have been allocated after the fixtures of its week and reports it. The caller must hold
+	 * the write lock.
+	 */
+	private void added(Match newMatch) {
+		calendar.add(newMatch);
+		changeCount++;
+		for(MatchProgramListener listener : listeners){
+			listener.matchAllocated(newMatch);
+		}
+	}
+
+	/**
+	 * Writes the referees and the matches to a binary snapshot file, which replaces the file only when it is complete.
+	 * The referees and the matches are copied under the lock, so the snapshot is always consistent, and written after it has
+	 * been released, so allocations and updates only wait for the copy.
+	 * @param file	The snapshot file.
+	 * @throws IOException	If the file could not be written. The previous file is left intact.
+	 */
+	public void writeSnapshot(File file) throws IOException {
+		writeSnapshotAt(file);
+	}
+
+	/**
+	 * Writes a snapshot file and returns the number of changes that it contains.
+	 * @param file	The snapshot file.
+	 * @return	The change count of the match program when the snapshot was taken.
+	 * @throws IOException	If the file could not be written. The previous file is left intact.
+	 */
+	long writeSnapshotAt(File file) throws IOException {
+		Snapshot.Image image;
+		Lock lock = referees.lock.readLock();
+		lock.lock();
+		try {
+			image = new Snapshot.Image(referees.getAll(), calendar, changeCount);
+		} finally {
+			lock.unlock();
+		}
+		Snapshot.write(image, file);
+		return image.getChangeCount();
+	}
+
+	/**
+	 * Returns the number of changes made through the public methods, including the ones made before the snapshot that the
+	 * match program was read from. The caller must hold a lock, or be a listener.
+	 * @return
+	 */
+	long getChangeCount(){
+		return changeCount;
+	}
+
+	/**
+	 * Sets the number of changes of a match program read from a snapshot.
+	 * @param count
+	 */
+	void restoreChangeCount(long count){
+		changeCount = count;
+	}
+
+	/**
+	 * Returns the write lock, which is held by the replay of a journal while it changes the match program.
+	 * @return
+	 */
+	Lock writeLock(){
+		return referees.lock.writeLock();
+	}
+
+	/**
+	 * Repeats an allocation read from a journal: books the two referees for the week of the match, increments their matches and
+	 * inserts the match. The caller must hold the write lock.
+	 * @param match	The match. Its week must be valid.
+	 * @param first	The first referee of the match.
+	 * @param second	The second referee of the match.
+	 * @return	false if one of the referees was already booked for the week.
+	 */
+	boolean replayAllocation(Match match, Referee first, Referee second){
+		return first != second && assign(match, first, second);
+	}
+
+	/**
+	 * Books two referees for the week of a match, increments their matches and inserts the match after the fixtures of its week.
+	 * The caller must hold the write lock.
+	 * @param match	The match.
+	 * @param first	The first referee of the match.
+	 * @param second	The second referee of the match.
+	 * @return	false if one of the referees was already booked for the week. Nothing is changed then.
+	 */
+	private boolean assign(Match match, Referee first, Referee second){
+		int week = match.getMatchWeekNumber();
+		if(!first.reserveWeek(week)){
+			return false;
+		}
+		if(!second.reserveWeek(week)){
+			first.releaseWeek(week);
+			return false;
+		}
+		first.incMatches();
+		second.incMatches();
+		match.restore(referees, first, second);
+		calendar.add(match);
+		changeCount++;
+		return true;
+	}
+
+	/**
+	 * Reads a match program from a snapshot file written by writeSnapshot.
+	 * @param file	The snapshot file.
+	 * @return	A match program with the referees and the matches of the snapshot.
+	 * @throws IOException	If the file could not be read or is not a valid snapshot.
+	 */
+	public static MatchProgram readSnapshot(File file) throws IOException {
+		MatchProgram matchProgram = new MatchProgram();
+		Snapshot.read(file, matchProgram);
+		return matchProgram;
+	}
+
+	/**
+	 * Inserts a match read from a snapshot, whose referees are already in the match program and already booked for its week,
+	 * after the fixtures of its week. The matches must be restored in the order of their fixtures.
+	 * @param match	The match. Its week must be valid.
+	 * @param first	The first referee of the match.
+	 * @param second	The second referee of the match.
+	 */
+	void restoreMatch(Match match, Referee first, Referee second){
+		match.restore(referees, first, second);
+		calendar.add(match);
+	}
+
+	/**
+	 * Allocates referees to every fixture of a list, in the order of the list, without any user interaction.
+	 * A fixture that fails does not stop the allocation of the rest.
+	 * @param fixtures	The fixtures of the season.
+	 * @return	The allocated matches and the fixtures that failed together with the reason.
+	 */
+	public SeasonResult allocateSeason(List<Fixture> fixtures) {
+		SeasonResult result = new SeasonResult();
+
+		for(Fixture fixture : fixtures){
+			AllocationResult allocation = allocateMatch(fixture.getWeek(), fixture.getArea(), fixture.getLevel());
+			result.add(fixture, allocation.getStatus(), allocation.getMatch());
+		}
+		return result;
+	}
+
+	/**
+	 * Allocates referees to every fixture of a list, allocating different weeks in parallel.
+	 * A referee is booked for a week with an atomic compare and set, and only one thread allocates a week, so the weeks do not
+	 * wait for each other to pick their referees. The picks are made from the candidate heaps under the read lock. Only
+	 * raising the matches of the picked referees, which moves them in the heaps, takes the write lock. If a picked referee was
+	 * given a match by another week in between, or a referee was inserted, deleted or updated, the pick may no longer be the
+	 * best: its bookings are cancelled and the match is picked again. After a few such conflicts the match is picked under the
+	 * write lock, as allocateMatch does.
+	 * The fixtures of a week are allocated one after another in the order of the list, so they keep their order in the
+	 * calendar. The weeks run in no particular order, so the chosen referees can differ from allocateSeason, but every
+	 * referee is still picked with the fewest matches at the moment his matches are raised, and is never booked twice in a week.
+	 * @param fixtures	The fixtures of the season.
+	 * @param parallelism	Number of threads that allocate weeks at the same time.
+	 * @return	The allocated matches and the fixtures that failed together with the reason, in the order of the fixtures.
+	 */
+	public SeasonResult allocateSeasonConcurrently(final List<Fixture> fixtures, int parallelism) {
+		final AllocationStatus[] statuses = new AllocationStatus[fixtures.size()];
+		final Match[] matches = new Match[fixtures.size()];
+
+		//Groups the positions of the fixtures by week.
+		LinkedHashMap<Integer, ArrayList<Integer>> byWeek = new LinkedHashMap<Integer, ArrayList<Integer>>();
+		for(int i = 0; i < fixtures.size(); i++){
+			Integer week = fixtures.get(i).getWeek();
+			ArrayList<Integer> positions = byWeek.get(week);
+			if(positions == null){
+				positions = new ArrayList<Integer>();
+				byWeek.put(week, positions);
+			}
+			positions.add(i);
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			ArrayList<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+			for(final ArrayList<Integer> positions : byWeek.values()){
+				tasks.add(pool.submit(new Runnable() {
+					@Override
+					public void run() {
+						RefereeRegistry.Scratch scratch = new RefereeRegistry.Scratch();
+						Referee[] best = new Referee[2];
+						for(int i : positions){
+							Fixture fixture = fixtures.get(i);
+							if(!isValid(fixture.getWeek(), fixture.getArea(), fixture.getLevel())){
+								statuses[i] = AllocationStatus.INVALID_MATCH;
+								Metrics.ALLOCATE.count(AllocationStatus.INVALID_MATCH.ordinal());
+								continue;
+							}
+							Match match = new Match(fixture.getWeek(), fixture.getArea(), fixture.getLevel());
+							statuses[i] = allocateOptimistically(match, scratch, best);
+							if(statuses[i] == AllocationStatus.ALLOCATED){
+								matches[i] = match;
+							}
+						}
+					}
+				}));
+			}
+			for(ForkJoinTask<?> task : tasks){
+				task.join();
+			}
+		} finally {
+			pool.shutdown();
+		}
+
+		SeasonResult result = new SeasonResult();
+		for(int i = 0; i < statuses.length; i++){
+			result.add(fixtures.get(i), statuses[i], matches[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * Allocates the referees of a valid match for allocateSeasonConcurrently and inserts it after the fixtures of its week.
+	 * @param match	The match.
+	 * @param scratch	The scratch of the calling thread.
+	 * @param best	Array of size 2 of the calling thread that receives the picked referees.
+	 * @return	ALLOCATED if the match was inserted, otherwise the reason of the failure.
+	 */
+	private AllocationStatus allocateOptimistically(Match match, RefereeRegistry.Scratch scratch, Referee[] best) {
+		int week = match.getMatchWeekNumber(), area = match.getMatchArea();
+		boolean seniorOnly = match.getMatchLevel().equals("Senior");
+		AllocationEvent event = FlightEvents.beginAllocation();
+		long start = Metrics.ALLOCATE.start();
+		AllocationStatus status = null;
+		try {
+			for(int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS && status == null; attempt++){
+				int version, first, second;
+				Lock lock = referees.lock.readLock();
+				lock.lock();
+				try {
+					if(referees.qualified(seniorOnly) < 2){
+						status = AllocationStatus.NOT_ENOUGH_REFEREES;
+						break;
+					}
+					if(referees.selectBest(area, seniorOnly, week, best, scratch) < 2){
+						status = AllocationStatus.NOT_ENOUGH_WILLING;
+						break;
+					}
+					//Another caller may have booked a referee for the same week since the pick, e.g. allocateMatch.
+					if(!best[0].reserveWeek(week)){
+						continue;
+					}
+					if(!best[1].reserveWeek(week)){
+						best[0].releaseWeek(week);
+						continue;
+					}
+					version = referees.version();
+					first = best[0].getMatchesAllocated();
+					second = best[1].getMatchesAllocated();
+				} finally {
+					lock.unlock();
+				}
+
+				lock = referees.lock.writeLock();
+				lock.lock();
+				try {
+					//Allocations only raise matches, so the pick is still the best if the roster has not changed and the
+					//picked referees have not been given a match in between: every other candidate has as many matches as before, or more.
+					if(referees.version() == version && best[0].getMatchesAllocated() == first && best[1].getMatchesAllocated() == second){
+						best[0].incMatches();
+						best[1].incMatches();
+						match.restore(referees, best[0], best[1]);
+						added(match);
+						status = AllocationStatus.ALLOCATED;
+					} else {
+						best[0].releaseWeek(week);
+						best[1].releaseWeek(week);
+					}
+				} finally {
+					lock.unlock();
+				}
+			}
+			if(status == null){
+				Lock lock = referees.lock.writeLock();
+				lock.lock();
+				try {
+					status = match.allocateRefs(referees);
+					if(status == AllocationStatus.ALLOCATED){
+						added(match);
+					}
+				} finally {
+					lock.unlock();
+				}
+			}
+		} finally {
+			best[0] = best[1] = null;
+			//An allocation that threw has no outcome and is not counted.
+			if(status != null){
+				Metrics.ALLOCATE.stop(start, status.ordinal());
+			}
+		}
+		commit(event, match, status);
+		return status;
+	}
+
+	/**
+	 * Allocates referees to every fixture of a list at once, minimising the distance that the referees travel and balancing
+	 * their matches over the whole season, instead of picking the best referees fixture by fixture.
+	 * The referees must be qualified for the level of the match and willing to go to its area, as with allocateSeason.
+	 * If the solver does not finish within the time budget, the fixtures are allocated one by one as allocateSeason does.
+	 * Other allocations and updates wait until the whole season has been allocated.
+	 * @param fixtures	The fixtures of the season.
+	 * @param timeBudgetMillis	Time that the solver may take before falling back to the allocation fixture by fixture.
+	 * @return	The allocated matches and the fixtures that failed together with the reason, in the order of the fixtures.
+	 */
+	public SeasonResult allocateSeasonOptimally(List<Fixture> fixtures, long timeBudgetMillis) {
+		long deadline = System.nanoTime() + timeBudgetMillis * 1000000;
+		AllocationStatus[] statuses = new AllocationStatus[fixtures.size()];
+		Match[] matches = new Match[fixtures.size()];
+		ArrayList<Match> pending = new ArrayList<Match>();
+		ArrayList<Integer> positions = new ArrayList<Integer>();
+
+		Lock lock = referees.lock.writeLock();
+		lock.lock();
+		try {
+			for(int i = 0; i < statuses.length; i++){
+				Fixture fixture = fixtures.get(i);
+				int week = fixture.getWeek(), area = fixture.getArea();
+				String category = fixture.getLevel();
+				if(!isValid(week, area, category)){
+					statuses[i] = AllocationStatus.INVALID_MATCH;
+					Metrics.ALLOCATE.count(AllocationStatus.INVALID_MATCH.ordinal());
+				} else if(referees.qualified(category.equals("Senior")) < 2){
+					statuses[i] = AllocationStatus.NOT_ENOUGH_REFEREES;
+					Metrics.ALLOCATE.count(AllocationStatus.NOT_ENOUGH_REFEREES.ordinal());
+				} else {
+					pending.add(new Match(week, area, category));
+					positions.add(i);
+				}
+			}
+
+			//The solver returns null if it ran out of time, and no pair for a match that it could not staff.
+			Referee[][] solution = pending.isEmpty() ? null : new SeasonSolver(referees, deadline).solve(pending);
+			if(solution != null){
+				for(int j = 0; j < pending.size(); j++){
+					Match match = pending.get(j);
+					if(solution[j] != null && assign(match, solution[j][0], solution[j][1])){
+						allocated(positions.get(j), match, statuses, matches);
+						//The solver staffs the whole season at once, so its matches are counted but not timed.
+						Metrics.ALLOCATE.count(AllocationStatus.ALLOCATED.ordinal());
+					}
+				}
+			}
+			//The rest of the matches are allocated one by one, after the solution, so they do not take its referees.
+			for(int j = 0; j < pending.size(); j++){
+				int i = positions.get(j);
+				if(statuses[i] != null){
+					continue;
+				}
+				Match match = pending.get(j);
+				AllocationEvent event = FlightEvents.beginAllocation();
+				long start = Metrics.ALLOCATE.start();
+				AllocationStatus status = match.allocateRefs(referees);
+				Metrics.ALLOCATE.stop(start, status.ordinal());
+				if(status == AllocationStatus.ALLOCATED){
+					calendar.add(match);
+					changeCount++;
+					allocated(i, match, statuses, matches);
+				} else {
+					statuses[i] = status;
+				}
+				commit(event, match, status);
+			}
+		} finally {
+			lock.unlock();
+		}
+
+		SeasonResult result = new SeasonResult();
+		for(int i = 0; i < statuses.length; i++){
+			result.add(fixtures.get(i), statuses[i], matches[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * Records a match of allocateSeasonOptimally that has been inserted and reports it. The caller must hold the write lock.
+	 */
+	private void allocated(int position, Match match, AllocationStatus[] statuses, Match[] matches){
+		statuses[position] = AllocationStatus.ALLOCATED;
+		matches[position] = match;
+		for(MatchProgramListener listener : listeners){
+			listener.matchAllocated(match);
 		}
 	}
 }
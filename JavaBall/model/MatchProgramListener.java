@@ -0,0 +1,35 @@
+package model;
+
+/**
+ * Receives the changes made to a MatchProgram through its public methods. The referees that are read from an input file or a
+ * snapshot are not reported, since they are not changes.
+ * The methods are called while the write lock of the match program is held, in the order that the changes are made, so they
+ * must return quickly and must not call the match program back.
+ * @author Team C
+ */
+public interface MatchProgramListener {
+
+	/**
+	 * Called after a referee has been inserted.
+	 * @param ref	The new referee.
+	 */
+	void refereeInserted(Referee ref);
+
+	/**
+	 * Called after the qualification, the home or the willingness of a referee have been updated.
+	 * @param ref	The updated referee.
+	 */
+	void refereeUpdated(Referee ref);
+
+	/**
+	 * Called after a referee has been deleted.
+	 * @param ref	The deleted referee.
+	 */
+	void refereeDeleted(Referee ref);
+
+	/**
+	 * Called after two referees have been allocated to a match.
+	 * @param match	The new match.
+	 */
+	void matchAllocated(Match match);
+}
@@ -0,0 +1,318 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * The metrics of the program: the calls and durations of the instrumented operations, the outcomes of the allocations and the
+ * size of the match programs that are watched. Recording a call costs an atomic increment and, for the calls that are timed,
+ * two reads of the clock, so the operations are always instrumented.
+ * The metrics are read through JMX, as the beans javaball:type=Operation,name=... and javaball:type=MatchPrograms, or in the
+ * Prometheus text format, written to a file every few seconds or served over HTTP. start reads where to publish them from the
+ * system properties:
+ * <pre>
+ * javaball.metrics.file	The file that the metrics are written to.
+ * javaball.metrics.interval	Seconds between two writes of the file, 10 by default.
+ * javaball.metrics.port	The port of localhost that serves the metrics on /metrics.
+ * </pre>
+ * @author Team C
+ */
+public final class Metrics implements MetricsMBean {
+
+	/**Allocating the referees of a match, counted by AllocationStatus. Sampled, since an allocation takes a few microseconds.*/
+	public static final OperationStats ALLOCATE = new OperationStats("allocate", 16, AllocationStatus.values().length);
+	/**Loading a referees file.*/
+	public static final OperationStats LOAD = new OperationStats("load_referees", 1);
+	/**Writing the RefereesOut.txt file.*/
+	public static final OperationStats REF_OUT = new OperationStats("write_referees", 1);
+	/**Writing the MatchAllocs.txt file.*/
+	public static final OperationStats MATCH_OUT = new OperationStats("write_matches", 1);
+	/**Formatting the list of the referees for the GUI.*/
+	public static final OperationStats DISPLAY = new OperationStats("display_referees", 1);
+
+	/**The metrics of the program.*/
+	public static final Metrics INSTANCE = new Metrics();
+
+	private static final OperationStats[] OPERATIONS = {ALLOCATE, LOAD, REF_OUT, MATCH_OUT, DISPLAY};
+	private static final String FILE_PROPERTY = "javaball.metrics.file";
+	private static final String INTERVAL_PROPERTY = "javaball.metrics.interval";
+	private static final String PORT_PROPERTY = "javaball.metrics.port";
+	private static final long DEFAULT_INTERVAL = 10;
+	private static final double NANOS_PER_SECOND = 1e9;
+
+	/**The match programs whose referees and matches are counted.*/
+	private final CopyOnWriteArrayList<MatchProgram> matchPrograms = new CopyOnWriteArrayList<MatchProgram>();
+	/**If the beans have been registered. Guarded by this.*/
+	private boolean registered;
+	/**If start has been called. Guarded by this.*/
+	private boolean started;
+
+	private Metrics() {
+	}
+
+	/**
+	 * Returns the number of allocations that had an outcome since the program started.
+	 * @param status
+	 * @return
+	 */
+	public long getAllocations(AllocationStatus status) {
+		return ALLOCATE.getCalls(status.ordinal());
+	}
+
+	/**
+	 * Counts the referees and the matches of a match program in the gauges, until it is unwatched.
+	 * @param matchProgram
+	 */
+	public void watch(MatchProgram matchProgram) {
+		matchPrograms.addIfAbsent(matchProgram);
+	}
+
+	/**
+	 * Stops counting a match program in the gauges.
+	 * @param matchProgram
+	 */
+	public void unwatch(MatchProgram matchProgram) {
+		matchPrograms.remove(matchProgram);
+	}
+
+	@Override
+	public int getRosterSize() {
+		int size = 0;
+		for (MatchProgram matchProgram : matchPrograms) {
+			size += matchProgram.getRefCount();
+		}
+		return size;
+	}
+
+	@Override
+	public int getAllocatedFixtures() {
+		int size = 0;
+		for (MatchProgram matchProgram : matchPrograms) {
+			size += matchProgram.getFixtureCount();
+		}
+		return size;
+	}
+
+	@Override
+	public long getAllocations() {
+		return getAllocations(AllocationStatus.ALLOCATED);
+	}
+
+	@Override
+	public long getFailedAllocations() {
+		long failed = 0;
+		for (AllocationStatus status : AllocationStatus.values()) {
+			if (status != AllocationStatus.ALLOCATED) {
+				failed += getAllocations(status);
+			}
+		}
+		return failed;
+	}
+
+	/**
+	 * Writes the metrics in the Prometheus text format.
+	 * @param out
+	 * @throws IOException
+	 */
+	public void writePrometheus(Appendable out) throws IOException {
+		out.append("# HELP javaball_operation_calls_total Calls of the operation.\n");
+		out.append("# TYPE javaball_operation_calls_total counter\n");
+		for (OperationStats operation : OPERATIONS) {
+			sample(out, "javaball_operation_calls_total", operation, null, operation.getCalls());
+		}
+		out.append("# HELP javaball_operation_seconds Duration of the timed calls of the operation.\n");
+		out.append("# TYPE javaball_operation_seconds summary\n");
+		for (OperationStats operation : OPERATIONS) {
+			LatencyHistogram latencies = operation.getLatencies();
+			sample(out, "javaball_operation_seconds", operation, "0.5", seconds(latencies.getPercentile(0.5)));
+			sample(out, "javaball_operation_seconds", operation, "0.99", seconds(latencies.getPercentile(0.99)));
+			sample(out, "javaball_operation_seconds_sum", operation, null, seconds(latencies.getTotal()));
+			sample(out, "javaball_operation_seconds_count", operation, null, latencies.getCount());
+		}
+		out.append("# HELP javaball_operation_max_seconds Longest timed call of the operation.\n");
+		out.append("# TYPE javaball_operation_max_seconds gauge\n");
+		for (OperationStats operation : OPERATIONS) {
+			sample(out, "javaball_operation_max_seconds", operation, null, seconds(operation.getLatencies().getMax()));
+		}
+		out.append("# HELP javaball_allocations_total Allocations of referees to a match by outcome.\n");
+		out.append("# TYPE javaball_allocations_total counter\n");
+		for (AllocationStatus status : AllocationStatus.values()) {
+			out.append("javaball_allocations_total{status=\"").append(status.name().toLowerCase(Locale.ROOT)).append("\"} ");
+			out.append(Long.toString(getAllocations(status))).append('\n');
+		}
+		out.append("# HELP javaball_failed_allocations_total Allocations that did not allocate the referees.\n");
+		out.append("# TYPE javaball_failed_allocations_total counter\n");
+		out.append("javaball_failed_allocations_total ").append(Long.toString(getFailedAllocations())).append('\n');
+		out.append("# HELP javaball_roster_size Referees of the watched match programs.\n");
+		out.append("# TYPE javaball_roster_size gauge\n");
+		out.append("javaball_roster_size ").append(Integer.toString(getRosterSize())).append('\n');
+		out.append("# HELP javaball_allocated_fixtures Matches of the watched match programs.\n");
+		out.append("# TYPE javaball_allocated_fixtures gauge\n");
+		out.append("javaball_allocated_fixtures ").append(Integer.toString(getAllocatedFixtures())).append('\n');
+	}
+
+	/**
+	 * Writes a line of an operation.
+	 */
+	private static void sample(Appendable out, String metric, OperationStats operation, String quantile, Object value) throws IOException {
+		out.append(metric).append("{operation=\"").append(operation.getName());
+		if (quantile != null) {
+			out.append("\",quantile=\"").append(quantile);
+		}
+		out.append("\"} ").append(value.toString()).append('\n');
+	}
+
+	private static double seconds(long nanos) {
+		return nanos / NANOS_PER_SECOND;
+	}
+
+	/**
+	 * Writes the metrics to a file in the Prometheus text format. The file is replaced only once it is complete, so a scraper
+	 * never reads half of it.
+	 * @param file
+	 * @throws IOException
+	 */
+	public void dump(File file) throws IOException {
+		StringBuilder text = new StringBuilder();
+		writePrometheus(text);
+		RecordWriter output = new RecordWriter(file);
+		try {
+			output.append(text);
+			output.commit();
+		} finally {
+			output.abort();
+		}
+	}
+
+	/**
+	 * Registers the beans of the metrics with the platform MBean server, if they are not registered yet.
+	 * @throws JMException	If a bean cannot be registered.
+	 */
+	public synchronized void registerMBeans() throws JMException {
+		if (registered) {
+			return;
+		}
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for (OperationStats operation : OPERATIONS) {
+			server.registerMBean(operation, new ObjectName("javaball:type=Operation,name=" + operation.getName()));
+		}
+		server.registerMBean(this, new ObjectName("javaball:type=MatchPrograms"));
+		registered = true;
+	}
+
+	/**
+	 * Registers the beans and publishes the metrics as the system properties ask. Only the first call has an effect.
+	 * A metric that cannot be published is reported on the standard error, the program keeps running without it.
+	 */
+	public static void start() {
+		synchronized (INSTANCE) {
+			if (INSTANCE.started) {
+				return;
+			}
+			INSTANCE.started = true;
+		}
+		try {
+			INSTANCE.registerMBeans();
+		} catch (JMException e) {
+			System.err.println("The metrics could not be registered: " + e.getMessage());
+		}
+
+		String file = System.getProperty(FILE_PROPERTY);
+		if (file != null) {
+			long interval = Long.getLong(INTERVAL_PROPERTY, DEFAULT_INTERVAL);
+			INSTANCE.dumpEvery(new File(file), Math.max(1, interval));
+		}
+
+		Integer port = Integer.getInteger(PORT_PROPERTY);
+		if (port != null) {
+			try {
+				INSTANCE.serve(port);
+			} catch (IOException e) {
+				System.err.println("The metrics could not be served on port " + port + ": " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Writes the metrics to a file every few seconds on a daemon thread, and once more when the program exits.
+	 */
+	private void dumpEvery(final File file, long seconds) {
+		final Runnable dump = new Runnable() {
+			@Override
+			public void run() {
+				try {
+					dump(file);
+				} catch (IOException e) {
+					System.err.println("The metrics could not be written to " + file + ": " + e.getMessage());
+				}
+			}
+		};
+		ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "Metrics dump");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		scheduler.scheduleWithFixedDelay(dump, seconds, seconds, TimeUnit.SECONDS);
+		Runtime.getRuntime().addShutdownHook(new Thread(dump, "Metrics dump on exit"));
+	}
+
+	/**
+	 * Serves the metrics on http://localhost:port/metrics. The server runs on a daemon thread.
+	 */
+	private void serve(int port) throws IOException {
+		HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext("/metrics", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					StringBuilder text = new StringBuilder();
+					writePrometheus(text);
+					byte[] body = text.toString().getBytes(StandardCharsets.UTF_8);
+					exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+					exchange.sendResponseHeaders(200, body.length);
+					OutputStream out = exchange.getResponseBody();
+					out.write(body);
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+		//The dispatcher thread of the server takes the daemon status of the thread that starts it, and handles the requests.
+		final HttpServer daemon = server;
+		Thread starter = new Thread("Metrics server") {
+			@Override
+			public void run() {
+				daemon.start();
+			}
+		};
+		starter.setDaemon(true);
+		starter.start();
+		try {
+			starter.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package model;
+
+/**
+ * The JMX view of the match programs that are watched by the metrics and of the allocations of every match program.
+ * @author Team C
+ */
+public interface MetricsMBean {
+
+	/**
+	 * Returns the number of referees of the watched match programs.
+	 * @return
+	 */
+	int getRosterSize();
+
+	/**
+	 * Returns the number of matches of the watched match programs.
+	 * @return
+	 */
+	int getAllocatedFixtures();
+
+	/**
+	 * Returns the number of matches allocated since the program started.
+	 * @return
+	 */
+	long getAllocations();
+
+	/**
+	 * Returns the number of allocations that failed since the program started, whatever the reason.
+	 * @return
+	 */
+	long getFailedAllocations();
+}
@@ -0,0 +1,163 @@
+package model;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the calls of an operation of the model and records how long they take. An instrumented call is wrapped as
+ * <pre>
+ * long start = Metrics.LOAD.start();
+ * try { ... } finally { Metrics.LOAD.stop(start); }
+ * </pre>
+ * A call is counted when it ends, under its outcome if the operation has several, e.g. the AllocationStatus of an allocation,
+ * so counting the outcome costs nothing more than counting the call.
+ * Every call is counted, but a frequent and short operation can be sampled: only one call in sampleEvery is timed, which keeps
+ * the cost of reading the clock off most calls. The percentiles and the longest call are then those of the timed calls.
+ * Thread safe.
+ * @author Team C
+ */
+public final class OperationStats implements OperationStatsMBean {
+
+	/**Returned by start for a call that is not timed.*/
+	private static final long NOT_TIMED = Long.MIN_VALUE;
+	private static final double NANOS_PER_MICRO = 1000.0;
+
+	/**Name of the operation in the metrics, e.g. "allocate".*/
+	private final String name;
+	private final int sampleMask;
+	/**Number of calls of every outcome.*/
+	private final LongAdder[] calls;
+	/**Counts the calls to pick the ones that are timed. Increments from several threads may be lost, which only moves the samples.*/
+	private int tick;
+	private final LatencyHistogram latencies = new LatencyHistogram();
+
+	/**
+	 * Constructor for an operation whose calls have a single outcome.
+	 * @param name	Name of the operation in the metrics.
+	 * @param sampleEvery	How many calls there are for every call that is timed. A power of two, 1 to time every call.
+	 */
+	OperationStats(String name, int sampleEvery) {
+		this(name, sampleEvery, 1);
+	}
+
+	/**
+	 * Constructor.
+	 * @param name	Name of the operation in the metrics.
+	 * @param sampleEvery	How many calls there are for every call that is timed. A power of two, 1 to time every call.
+	 * @param outcomes	Number of outcomes of a call, numbered from 0.
+	 */
+	OperationStats(String name, int sampleEvery, int outcomes) {
+		if (sampleEvery < 1 || Integer.bitCount(sampleEvery) != 1) {
+			throw new IllegalArgumentException("Invalid sampling " + sampleEvery);
+		}
+		this.name = name;
+		sampleMask = sampleEvery - 1;
+		calls = new LongAdder[outcomes];
+		for (int i = 0; i < outcomes; i++) {
+			calls[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Starts a call.
+	 * @return	The value to give to stop when the call ends.
+	 */
+	long start() {
+		if ((tick++ & sampleMask) != 0) {
+			return NOT_TIMED;
+		}
+		return System.nanoTime();
+	}
+
+	/**
+	 * Counts a call that ends and records its duration, if it is timed.
+	 * @param start	The value that start returned.
+	 */
+	void stop(long start) {
+		stop(start, 0);
+	}
+
+	/**
+	 * Counts a call that ends with an outcome and records its duration, if it is timed.
+	 * @param start	The value that start returned.
+	 * @param outcome	The outcome of the call.
+	 */
+	void stop(long start, int outcome) {
+		calls[outcome].increment();
+		if (start != NOT_TIMED) {
+			latencies.record(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Counts a call that ended with an outcome before it was started, e.g. because its arguments were not valid.
+	 * @param outcome	The outcome of the call.
+	 */
+	void count(int outcome) {
+		calls[outcome].increment();
+	}
+
+	/**
+	 * Returns the number of calls that ended with an outcome.
+	 * @param outcome
+	 * @return
+	 */
+	long getCalls(int outcome) {
+		return calls[outcome].sum();
+	}
+
+	/**
+	 * Returns the name of the operation in the metrics.
+	 * @return
+	 */
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public long getCalls() {
+		long sum = 0;
+		for (LongAdder outcome : calls) {
+			sum += outcome.sum();
+		}
+		return sum;
+	}
+
+	@Override
+	public long getTimedCalls() {
+		return latencies.getCount();
+	}
+
+	@Override
+	public int getSampleEvery() {
+		return sampleMask + 1;
+	}
+
+	@Override
+	public double getMeanMicros() {
+		long timed = latencies.getCount();
+		return timed == 0 ? 0 : latencies.getTotal() / NANOS_PER_MICRO / timed;
+	}
+
+	@Override
+	public double getP50Micros() {
+		return latencies.getPercentile(0.5) / NANOS_PER_MICRO;
+	}
+
+	@Override
+	public double getP99Micros() {
+		return latencies.getPercentile(0.99) / NANOS_PER_MICRO;
+	}
+
+	@Override
+	public double getMaxMicros() {
+		return latencies.getMax() / NANOS_PER_MICRO;
+	}
+
+	/**
+	 * Returns the histogram of the timed calls.
+	 * @return
+	 */
+	LatencyHistogram getLatencies() {
+		return latencies;
+	}
+}
@@ -0,0 +1,34 @@
+package model;
+
+/**
+ * The JMX view of the calls of an instrumented operation. The durations are in microseconds.
+ * @author Team C
+ */
+public interface OperationStatsMBean {
+
+	/**
+	 * Returns the number of calls of the operation that have ended.
+	 * @return
+	 */
+	long getCalls();
+
+	/**
+	 * Returns the number of calls that were timed. Every call is timed unless the operation is sampled.
+	 * @return
+	 */
+	long getTimedCalls();
+
+	/**
+	 * Returns how many calls there are for every call that is timed.
+	 * @return
+	 */
+	int getSampleEvery();
+
+	double getMeanMicros();
+
+	double getP50Micros();
+
+	double getP99Micros();
+
+	double getMaxMicros();
+}
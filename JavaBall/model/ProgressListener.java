@@ -0,0 +1,18 @@
+package model;
+
+/**
+ * Receives the progress of a long operation of the model, such as loading or saving the referees. It is called on the thread
+ * that does the work, so it must return quickly.
+ * The operations that report their progress can also be cancelled by interrupting that thread. They stop with an
+ * InterruptedIOException at the next report.
+ * @author Team C
+ */
+public interface ProgressListener {
+
+	/**
+	 * Called every time a part of the work has been done.
+	 * @param done	The work done so far, in units of the operation, e.g. bytes or referees.
+	 * @param total	The whole work in the same units, or -1 if it is not known.
+	 */
+	void progress(long done, long total);
+}
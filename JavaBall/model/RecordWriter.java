@@ -0,0 +1,309 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a file record by record through a fixed size buffer, encoding the fields as UTF-8 directly into the buffer
+ * instead of formatting every line with String.format. Binary files such as snapshots are written with the put methods.
+ * The bytes go to a temporary file next to the target, which replaces the target only when commit is called, so a crash
+ * while writing never leaves a truncated file behind.
+ * @author Team C
+ */
+final class RecordWriter {
+
+	/**Size of the write buffer.*/
+	private static final int BUFFER_SIZE = 64 * 1024;
+	/**Longest UTF-8 encoding of a single char or surrogate pair.*/
+	private static final int MAX_CHAR_BYTES = 4;
+
+	/**The file that is replaced when the writer is committed.*/
+	private final File target;
+	/**The temporary file that the text is written to.*/
+	private final File temp;
+	private final FileChannel channel;
+	private final ByteBuffer buffer;
+	/**Number of bytes written, including the ones still in the buffer.*/
+	private long bytesWritten;
+	/**Digits of a number, written from the end.*/
+	private final byte[] digits = new byte[11];
+	/**The flight recorder event of the write, null once it has been committed or if the JVM has no flight recorder.*/
+	private FileWriteEvent event;
+	/**If the target has been replaced.*/
+	private boolean committed;
+
+	/**
+	 * Creates a temporary file in the directory of the target and opens it for writing.
+	 * @param target	The file that is replaced when the writer is committed.
+	 * @throws IOException	If the temporary file cannot be created.
+	 */
+	RecordWriter(File target) throws IOException {
+		event = FlightEvents.beginWrite();
+		this.target = target.getAbsoluteFile();
+		temp = File.createTempFile(target.getName() + ".", ".tmp", this.target.getParentFile());
+		channel = FileChannel.open(temp.toPath(), StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	}
+
+	/**
+	 * Appends a String or any other sequence of characters, such as a StringBuilder that is reused for every line.
+	 * @param str
+	 * @return	this writer.
+	 * @throws IOException
+	 */
+	RecordWriter append(CharSequence str) throws IOException {
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			if (buffer.remaining() < MAX_CHAR_BYTES) {
+				flush();
+			}
+			if (c < 0x80) {
+				buffer.put((byte) c);
+			} else if (c < 0x800) {
+				buffer.put((byte) (0xC0 | (c >> 6)));
+				buffer.put((byte) (0x80 | (c & 0x3F)));
+			} else if (Character.isHighSurrogate(c) && i + 1 < str.length() && Character.isLowSurrogate(str.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, str.charAt(++i));
+				buffer.put((byte) (0xF0 | (codePoint >> 18)));
+				buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+				buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+				buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+			} else if (Character.isSurrogate(c)) {
+				//A lone surrogate cannot be encoded, it is replaced by '?' as the charset encoders do.
+				buffer.put((byte) '?');
+			} else {
+				buffer.put((byte) (0xE0 | (c >> 12)));
+				buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+				buffer.put((byte) (0x80 | (c & 0x3F)));
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Appends a single ASCII character.
+	 * @param c
+	 * @return	this writer.
+	 * @throws IOException
+	 */
+	RecordWriter append(char c) throws IOException {
+		if (c >= 0x80) {
+			return append(String.valueOf(c));
+		}
+		if (!buffer.hasRemaining()) {
+			flush();
+		}
+		buffer.put((byte) c);
+		return this;
+	}
+
+	/**
+	 * Appends the decimal representation of an integer.
+	 * @param value
+	 * @return	this writer.
+	 * @throws IOException
+	 */
+	RecordWriter append(int value) throws IOException {
+		int length = toDigits(value);
+		if (buffer.remaining() < length) {
+			flush();
+		}
+		buffer.put(digits, digits.length - length, length);
+		return this;
+	}
+
+	/**
+	 * Appends a String right-aligned in a field of the given width, like "%" + width + "s". Longer Strings are not truncated.
+	 * @param str
+	 * @param width
+	 * @return	this writer.
+	 * @throws IOException
+	 */
+	RecordWriter appendRight(String str, int width) throws IOException {
+		spaces(width - str.length());
+		return append(str);
+	}
+
+	/**
+	 * Appends an integer right-aligned in a field of the given width, like "%" + width + "d".
+	 * @param value
+	 * @param width
+	 * @return	this writer.
+	 * @throws IOException
+	 */
+	RecordWriter appendRight(int value, int width) throws IOException {
+		spaces(width - toDigits(value));
+		return append(value);
+	}
+
+	/**
+	 * Ends the current line with "\r\n", the line terminator of the output files.
+	 * @return	this writer.
+	 * @throws IOException
+	 */
+	RecordWriter newLine() throws IOException {
+		return append('\r').append('\n');
+	}
+
+	/**
+	 * Appends a byte.
+	 * @param value	The lowest 8 bits are written.
+	 * @return	this writer.
+	 * @throws IOException
+	 */
+	RecordWriter putByte(int value) throws IOException {
+		if (!buffer.hasRemaining()) {
+			flush();
+		}
+		buffer.put((byte) value);
+		return this;
+	}
+
+	/**
+	 * Appends a big-endian int.
+	 * @param value
+	 * @return	this writer.
+	 * @throws IOException
+	 */
+	RecordWriter putInt(int value) throws IOException {
+		if (buffer.remaining() < 4) {
+			flush();
+		}
+		buffer.putInt(value);
+		return this;
+	}
+
+	/**
+	 * Appends a big-endian long.
+	 * @param value
+	 * @return	this writer.
+	 * @throws IOException
+	 */
+	RecordWriter putLong(long value) throws IOException {
+		if (buffer.remaining() < 8) {
+			flush();
+		}
+		buffer.putLong(value);
+		return this;
+	}
+
+	/**
+	 * Appends a String as an int with the number of its UTF-8 bytes followed by the bytes.
+	 * @param str
+	 * @return	this writer.
+	 * @throws IOException
+	 */
+	RecordWriter putString(String str) throws IOException {
+		int length = 0;
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			if (c < 0x80) {
+				length += 1;
+			} else if (c < 0x800) {
+				length += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < str.length() && Character.isLowSurrogate(str.charAt(i + 1))) {
+				length += 4;
+				i++;
+			} else if (Character.isSurrogate(c)) {
+				length += 1;
+			} else {
+				length += 3;
+			}
+		}
+		putInt(length);
+		return append(str);
+	}
+
+	/**
+	 * Returns the number of bytes written so far.
+	 * @return
+	 */
+	long getBytesWritten() {
+		return bytesWritten + buffer.position();
+	}
+
+	/**
+	 * Writes the rest of the buffer, forces the temporary file to the disk and moves it over the target.
+	 * @throws IOException	If the file cannot be written or moved. The temporary file is deleted.
+	 */
+	void commit() throws IOException {
+		try {
+			flush();
+			channel.force(true);
+			channel.close();
+			try {
+				Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			committed = true;
+		} finally {
+			abort();
+		}
+	}
+
+	/**
+	 * Closes and deletes the temporary file without touching the target. Does nothing after a successful commit.
+	 */
+	void abort() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			//The file is deleted anyway.
+		}
+		temp.delete();
+		if (event != null) {
+			event.end();
+			if (event.shouldCommit()) {
+				event.path = target.getPath();
+				event.bytesWritten = getBytesWritten();
+				event.committed = committed;
+				event.commit();
+			}
+			event = null;
+		}
+	}
+
+	/**
+	 * Writes the content of the buffer to the temporary file.
+	 */
+	private void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			bytesWritten += channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Appends a number of spaces. Does nothing if count is not positive.
+	 */
+	private void spaces(int count) throws IOException {
+		for (int i = 0; i < count; i++) {
+			append(' ');
+		}
+	}
+
+	/**
+	 * Writes the digits of a number to the end of the digits array.
+	 * @return	The number of characters.
+	 */
+	private int toDigits(int value) {
+		long remaining = Math.abs((long) value);
+		int pos = digits.length;
+		do {
+			digits[--pos] = (byte) ('0' + remaining % 10);
+			remaining /= 10;
+		} while (remaining > 0);
+		if (value < 0) {
+			digits[--pos] = '-';
+		}
+		return digits.length - pos;
+	}
+}
@@ -2,21 +2,24 @@ package model;
 
 /**
  * Referee object containing information about our referees.
+ * The details and the counters are stored in a row of a RosterStore, the referee is only a view of it.
  * @author Team C
  */
 public final class Referee {
 	/**Static integers to store the area of the match.*/
 	public static final int AREA_NORTH = 0, AREA_CENTRAL = 1, AREA_SOUTH = 2;
 
-	private String refID, firstName, lastName, qualification;
-	private int matchesAllocated, locality;
+	//The block and the row of the roster store that hold the ID, the names, the qualification, the home, the willingness
+	//[North, Central, South] and the counters of this referee. A referee is always willing to go to his home area.
+	//The match counters are atomic, so concurrent allocations never lose an increment. The actual matches are used to check
+	//if this Referee has been allocated to a match. If >0 then the program should not allow the user to delete him.
+	//Bit (week - 1) of the booked weeks is set if the referee has been booked for a match in that week. A referee can only
+	//referee one match every week.
+	RosterStore.Block block;
+	int row;
 
-	//This integer is used to check if this Referee has been allocated to a match. If >0 then the program should not allow the user to delete him from the list of Referees.
-	private int actualMatches;
-
-	//Array storing boolean values whether a referee is willing to go to other areas.
-	//[0: North, 1: Central, 2: South]. A referee is always willing to go to his home area.
-	private boolean[] willingToGo = new boolean[3];	
+	//The registry of the MatchProgram that this referee belongs to. It is notified when the details or the matches change.
+	RefereeRegistry registry;
 
 	/**
 	 * Constructor. Splits the input String to an array of String and extracts information to the instance variables through this array.
@@ -25,11 +28,7 @@ public final class Referee {
 	public Referee (String container) {
 
 		String[] tmpArray = container.split("[ ]+");
-		refID = tmpArray[0];
-		firstName = tmpArray[1];
-		lastName = tmpArray[2];
-		qualification = tmpArray[3];
-		matchesAllocated = Integer.parseInt(tmpArray[4]);
+		int locality = AREA_NORTH;
 		//In case of the referee's home area, we use three constants.
 		switch (tmpArray[5].toLowerCase()) {
 		case "north":
@@ -43,6 +42,7 @@ public final class Referee {
 			break;
 		}
 
+		boolean[] willingToGo = new boolean[3];
 		for (int i = 0; i < 3; i++) {
 			if (tmpArray[6].charAt(i) == 'Y') {
 				willingToGo[i] = true;
@@ -50,7 +50,7 @@ public final class Referee {
 				willingToGo[i] = false;
 			}
 		}
-		actualMatches = 0;
+		RosterStore.SHARED.append(this, tmpArray[0], tmpArray[1], tmpArray[2], tmpArray[3], Integer.parseInt(tmpArray[4]), locality, willingToGo);
 	}
 
 	/**
@@ -64,14 +64,14 @@ public final class Referee {
 	 * @param willingToGo Where the referee is willing to go
 	 */
 	public Referee (String refID, String firstName, String lastName, String qualification, int matchesAllocated, int locality, boolean[] willingToGo) {
-		this.refID = refID;
-		this.firstName = firstName;
-		this.lastName = lastName;
-		this.qualification = qualification;
-		this.matchesAllocated = matchesAllocated;
-		this.locality = locality;
-		this.willingToGo = willingToGo;
-		actualMatches = 0;
+		this(RosterStore.SHARED, refID, firstName, lastName, qualification, matchesAllocated, locality, willingToGo);
+	}
+
+	/**
+	 * Constructor that stores the referee in a row of the given store. Used by the loaders, which fill a store of their own.
+	 */
+	Referee (RosterStore store, String refID, String firstName, String lastName, String qualification, int matchesAllocated, int locality, boolean[] willingToGo) {
+		store.append(this, refID, firstName, lastName, qualification, matchesAllocated, locality, willingToGo);
 	}
 
 	/**
@@ -79,7 +79,49 @@ public final class Referee {
 	 * @return a String containing the referee's ID
 	 */
 	public String getRefID () {
-		return refID;
+		return block.refID(row);
+	}
+
+	/**
+	 * Compares the ID of this referee with the ID of another one without creating the Strings. Sequence numbers are compared as
+	 * numbers, so "AB2" comes before "AB10".
+	 * @param other
+	 * @return
+	 */
+	int compareID (Referee other) {
+		return block.compareID(row, other.block, other.row);
+	}
+
+	/**
+	 * Compares the ID of this referee with an ID held in the first characters of an array, in the order of compareID.
+	 * @param id
+	 * @param length
+	 * @return
+	 */
+	int compareID (char[] id, int length) {
+		return block.compareID(row, id, length);
+	}
+
+	/**
+	 * Returns if the ID of this referee starts with the first characters of an array, without creating the String.
+	 * @param prefix
+	 * @param length
+	 * @return
+	 */
+	boolean idStartsWith (char[] prefix, int length) {
+		return block.idStartsWith(row, prefix, length);
+	}
+
+	/**
+	 * Returns the smallest number of edits that turn a prefix of the first or the last name of this referee into a lower case
+	 * query, ignoring case, or maxEdits + 1 if it takes more. Nothing is created.
+	 * @param query	The query in lower case.
+	 * @param maxEdits	The largest number of edits that is of interest.
+	 * @param scratch	An array of at least query.length + 1 ints.
+	 * @return
+	 */
+	int namePrefixDistance (char[] query, int maxEdits, int[] scratch) {
+		return block.namePrefixDistance(row, query, maxEdits, scratch);
 	}
 
 	/**
@@ -87,7 +129,7 @@ public final class Referee {
 	 * @return a String containing the referee's first name
 	 */
 	public String getFirstName () {
-		return firstName;
+		return block.firstName(row);
 	}
 
 	/**
@@ -95,7 +137,7 @@ public final class Referee {
 	 * @return a String containing the referee's last name
 	 */
 	public String getLastName () {
-		return lastName;
+		return block.lastName(row);
 	}
 
 	/**
@@ -103,7 +145,7 @@ public final class Referee {
 	 * @return a String containing the referee's qualification
 	 */
 	public String getQualification () {
-		return qualification;
+		return block.qualification(row);
 	}
 
 	/**
@@ -111,11 +153,7 @@ public final class Referee {
 	 * @return a boolean indicating if a referee is senior
 	 */
 	public boolean isSenior () {
-		if (qualification.charAt(3) == '1') {
-			return false;
-		} else {
-			return true;
-		}
+		return block.isSenior(row);
 	}
 
 	/**
@@ -123,7 +161,7 @@ public final class Referee {
 	 * @return an integer representing the referee's home locality
 	 */
 	public int getLocality () {
-		return locality;
+		return block.locality(row);
 	}
 
 	/**
@@ -131,7 +169,7 @@ public final class Referee {
 	 * @return an integer representing the matches allocated to the referee.
 	 */
 	public int getMatchesAllocated () {
-		return matchesAllocated;
+		return block.matchesAllocated.get(row);
 	}
 
 	/**
@@ -139,15 +177,20 @@ public final class Referee {
 	 * @return an integer representing the actual matches allocated to the referee.
 	 */
 	public int getActualMatches () {
-		return actualMatches;
+		return block.actualMatches.get(row);
 	}
 
 	/**
 	 * Returns a boolean array size of 3 with values regarding whether the referee is willing to go to an area.
+	 * The array is a copy, changes to it do not change the referee.
 	 * @return
 	 */
 	public boolean[] getWillingToGoAreas () {
-		return willingToGo;
+		boolean[] willing = new boolean[3];
+		for (int area = 0; area < 3; area++) {
+			willing[area] = block.isWillingToGo(row, area);
+		}
+		return willing;
 	}
 
 	/**
@@ -156,7 +199,7 @@ public final class Referee {
 	 * @return	true or false.
 	 */
 	public boolean isWillingToGo (int area) {
-		return willingToGo[area];
+		return block.isWillingToGo(row, area);
 	}
 
 	/**
@@ -164,7 +207,10 @@ public final class Referee {
 	 * @param qual
 	 */
 	public void setQualification (String qual) {
-		qualification = qual;
+		block.setQualification(row, qual);
+		if (registry != null) {
+			registry.refereeChanged(this);
+		}
 	}
 
 	/**
@@ -172,18 +218,124 @@ public final class Referee {
 	 * @param loc
 	 */
 	public void setLocality (int loc) {
-		locality = loc;
 		//Makes sure that the referee is willing to go to his home area.
-		willingToGo[loc] = true;
+		boolean[] willing = getWillingToGoAreas();
+		willing[loc] = true;
+		block.setPlace(row, loc, willing);
+		if (registry != null) {
+			registry.refereeChanged(this);
+		}
+	}
+
+	/**
+	 * Returns the candidate heap of a match area that this referee is in, or null. Maintained by RefereeHeap.
+	 */
+	RefereeHeap getHeap (int area) {
+		return block.heap(row, area);
+	}
+
+	/**
+	 * Returns the position of this referee in the candidate heap of a match area, or -1.
+	 */
+	int getHeapIndex (int area) {
+		return block.heapIndex(row, area);
+	}
+
+	/**
+	 * Records the candidate heap of a match area that this referee is in, or null, and his position in it.
+	 */
+	void setHeap (int area, RefereeHeap heap, int index) {
+		block.setHeap(row, area, heap, index);
+	}
+
+	/**
+	 * Records the position of this referee in the candidate heap of a match area.
+	 */
+	void setHeapIndex (int area, int index) {
+		block.setHeapIndex(row, area, index);
+	}
+
+	/**
+	 * Returns the slot of this referee in the eligibility index of his registry, or -1. Maintained by EligibilityIndex.
+	 */
+	int getSlot () {
+		return block.slot(row);
+	}
+
+	void setSlot (int slot) {
+		block.setSlot(row, slot);
+	}
+
+	/**
+	 * Returns if the referee has been booked for a match in the given week.
+	 * @param week	The week number, from 1 to 52.
+	 * @return
+	 */
+	public boolean isBooked (int week) {
+		return (block.weeksBooked.get(row) & (1L << (week - 1))) != 0;
+	}
+
+	/**
+	 * Atomically books the referee for a match in the given week.
+	 * @param week	The week number, from 1 to 52.
+	 * @return	false if the referee was already booked in that week.
+	 */
+	boolean reserveWeek (int week) {
+		long bit = 1L << (week - 1);
+		while (true) {
+			long booked = block.weeksBooked.get(row);
+			if ((booked & bit) != 0) {
+				return false;
+			}
+			if (block.weeksBooked.compareAndSet(row, booked, booked | bit)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Atomically cancels the booking of the referee in the given week.
+	 * @param week	The week number, from 1 to 52.
+	 */
+	void releaseWeek (int week) {
+		long bit = 1L << (week - 1);
+		while (true) {
+			long booked = block.weeksBooked.get(row);
+			if (block.weeksBooked.compareAndSet(row, booked, booked & ~bit)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns the weeks that the referee has been booked for, bit (week - 1) for every week.
+	 * @return
+	 */
+	long getWeeksBooked () {
+		return block.weeksBooked.get(row);
+	}
+
+	/**
+	 * Restores the actual matches and the booked weeks of a referee read from a snapshot, before he is added to a match program.
+	 * @param actual	The number of matches allocated while the program was running.
+	 * @param weeks	The weeks that the referee has been booked for, bit (week - 1) for every week.
+	 */
+	void restore (int actual, long weeks) {
+		block.actualMatches.set(row, actual);
+		block.weeksBooked.set(row, weeks);
 	}
 
 	/**
 	 * Increments the number of matches allocated to this referee.
+	 * When the referee belongs to a match program, the caller must hold the write lock of its registry.
 	 */
 	public void incMatches () {
-		matchesAllocated++;
+		block.matchesAllocated.incrementAndGet(row);
 		//Increments the actual matches of a referee.
-		actualMatches++;
+		block.actualMatches.incrementAndGet(row);
+		if (registry != null) {
+			registry.matchesIncreased(this);
+		}
 	}
 
 	/**
@@ -191,7 +343,10 @@ public final class Referee {
 	 * @param willing
 	 */
 	public void setWillingToGo (boolean[] willing) {
-		willingToGo = willing;
+		block.setPlace(row, getLocality(), willing);
+		if (registry != null) {
+			registry.refereeChanged(this);
+		}
 	}
 
 	/**
@@ -200,11 +355,12 @@ public final class Referee {
 	 */
 	public String getStringLocality()
 	{
-		if(this.locality == AREA_NORTH)
+		int locality = getLocality();
+		if(locality == AREA_NORTH)
 		{
 			return  "North";
 		}
-		else if(this.locality == AREA_CENTRAL)
+		else if(locality == AREA_CENTRAL)
 		{
 			return "Central";
 		}
@@ -223,7 +379,7 @@ public final class Referee {
 		String result = "";
 		for(int i = 0; i < 3; i++)
 		{
-			if(this.willingToGo[i])
+			if(isWillingToGo(i))
 			{
 				result += "Y";
 			}
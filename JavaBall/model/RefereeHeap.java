@@ -0,0 +1,183 @@
+package model;
+
+/**
+ * Indexed binary min-heap of referees ordered by RefereeMatchesComparator, i.e. by their allocated matches and then by their IDs.
+ * Every heap belongs to one match area. A referee stores its position in the heap of each area, so that it can be
+ * moved in place when its number of matches changes, without searching the heap.
+ * @author Team C
+ */
+final class RefereeHeap {
+
+	/**Comparator that decides the order of the heap.*/
+	private static final RefereeMatchesComparator COMPARATOR = new RefereeMatchesComparator();
+	/**Initial capacity of the heap.*/
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**The match area of the heap. Index of the referee's position arrays.*/
+	private final int area;
+	/**Array storing the heap. The most suitable referee is at index 0.*/
+	private Referee[] heap;
+	/**Number of referees in the heap.*/
+	private int size;
+
+	/**
+	 * Constructor.
+	 * @param area	The match area of the heap. 0 = North, 1 = Central, 2 = South.
+	 */
+	RefereeHeap(int area) {
+		this.area = area;
+		heap = new Referee[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Returns the number of referees in the heap.
+	 * @return
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the referee stored at the given index of the heap array. The array is not sorted.
+	 * @param index
+	 * @return
+	 */
+	Referee get(int index) {
+		return heap[index];
+	}
+
+	/**
+	 * Adds a referee to the heap.
+	 * @param ref
+	 */
+	void add(Referee ref) {
+		if (size == heap.length) {
+			Referee[] bigger = new Referee[size * 2];
+			System.arraycopy(heap, 0, bigger, 0, size);
+			heap = bigger;
+		}
+		heap[size] = ref;
+		ref.setHeap(area, this, size);
+		siftUp(size++);
+	}
+
+	/**
+	 * Removes a referee from the heap.
+	 * @param ref
+	 */
+	void remove(Referee ref) {
+		int index = ref.getHeapIndex(area);
+		Referee last = heap[--size];
+		heap[size] = null;
+		if (index != size) {
+			place(last, index);
+			siftDown(index);
+			siftUp(last.getHeapIndex(area));
+		}
+		ref.setHeap(area, null, -1);
+	}
+
+	/**
+	 * Restores the order of the heap after the number of matches of a referee has increased.
+	 * @param ref
+	 */
+	void increased(Referee ref) {
+		siftDown(ref.getHeapIndex(area));
+	}
+
+	/**
+	 * Copies the most suitable referees of the heap that are not booked in the given week, best first, into an array.
+	 * Visits only the nodes that can hold one of them, so it costs O(k) plus the booked referees that are better than them, and not O(n).
+	 * Only reads the heap, so threads that hold the read lock of the registry can call it at the same time with scratches of their own.
+	 * @param k	Maximum number of referees to copy.
+	 * @param week	The week of the match.
+	 * @param out	The array that receives the referees.
+	 * @param offset	Index of out where the first referee is copied.
+	 * @param scratch	Receives the heap indexes that still have to be visited.
+	 * @return	The index of out after the last copied referee.
+	 */
+	int best(int k, int week, Referee[] out, int offset, RefereeRegistry.Scratch scratch) {
+		int[] frontier = scratch.frontier;
+		int pending = 0;
+		if (size > 0) {
+			frontier[pending++] = 0;
+		}
+		while (k > 0 && pending > 0) {
+			//The frontier only holds a handful of nodes, so a linear search for the best one is cheap.
+			int bestPos = 0;
+			for (int i = 1; i < pending; i++) {
+				if (COMPARATOR.compare(heap[frontier[i]], heap[frontier[bestPos]]) < 0) {
+					bestPos = i;
+				}
+			}
+			int node = frontier[bestPos];
+			frontier[bestPos] = frontier[--pending];
+
+			//A booked referee is not copied, but his children can still be suitable.
+			if (!heap[node].isBooked(week)) {
+				out[offset++] = heap[node];
+				k--;
+			}
+
+			//The children of a visited node are the only new candidates for the next place.
+			if (pending + 2 > frontier.length) {
+				int[] bigger = new int[frontier.length * 2];
+				System.arraycopy(frontier, 0, bigger, 0, pending);
+				frontier = bigger;
+				scratch.frontier = bigger;
+			}
+			int child = 2 * node + 1;
+			if (child < size) {
+				frontier[pending++] = child;
+			}
+			if (child + 1 < size) {
+				frontier[pending++] = child + 1;
+			}
+		}
+		return offset;
+	}
+
+	/**
+	 * Moves the referee at the given index up until its parent is more suitable.
+	 */
+	private void siftUp(int index) {
+		Referee ref = heap[index];
+		while (index > 0) {
+			int parent = (index - 1) / 2;
+			if (COMPARATOR.compare(heap[parent], ref) <= 0) {
+				break;
+			}
+			place(heap[parent], index);
+			index = parent;
+		}
+		place(ref, index);
+	}
+
+	/**
+	 * Moves the referee at the given index down until both of its children are less suitable.
+	 */
+	private void siftDown(int index) {
+		Referee ref = heap[index];
+		int half = size / 2;
+		while (index < half) {
+			int child = 2 * index + 1;
+			if (child + 1 < size && COMPARATOR.compare(heap[child + 1], heap[child]) < 0) {
+				child++;
+			}
+			if (COMPARATOR.compare(ref, heap[child]) <= 0) {
+				break;
+			}
+			place(heap[child], index);
+			index = child;
+		}
+		place(ref, index);
+	}
+
+	/**
+	 * Stores a referee at an index of the heap array and records the index in the referee.
+	 */
+	private void place(Referee ref, int index) {
+		heap[index] = ref;
+		ref.setHeapIndex(area, index);
+	}
+}
@@ -3,13 +3,13 @@ package model;
 import java.util.Comparator;
 
 /**
- * Comparator to sort the Referee objects by their IDs.
+ * Comparator to sort the Referee objects by their IDs. The letters of the IDs are compared as characters and their sequence
+ * numbers as numbers, so "AB2" comes before "AB10". Nothing is created per comparison.
  * @author Team C
  */
 public final class RefereeIDComparator implements Comparator<Referee> {	
 	@Override
 	public int compare(Referee ref1, Referee ref2) {
-		int result = ref1.getRefID().compareTo(ref2.getRefID());
-		return result;
+		return ref1.compareID(ref2);
 	}
 }
@@ -0,0 +1,255 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The referees of a registry in the order of their IDs, kept sorted as referees are added and removed, so that the roster
+ * never has to be sorted again to be displayed or written out.
+ * The referees are stored in a list of small sorted chunks. A referee is found by a binary search over the first referees of
+ * the chunks and then inside his chunk, and adding or removing one only moves the referees of his chunk, so both cost
+ * O(log n + CHUNK_SIZE) and the index takes a few bytes per referee. Referees with the same ID keep the order in which they
+ * were added.
+ * Not thread safe. The registry that owns it guards it with its lock.
+ * @author Team C
+ */
+final class RefereeIDIndex {
+
+	/**Largest number of referees of a chunk. A full chunk is split in two.*/
+	private static final int CHUNK_SIZE = 512;
+	private static final RefereeIDComparator COMPARATOR = new RefereeIDComparator();
+
+	/**
+	 * Referees that are next to each other in the order of their IDs.
+	 */
+	private static final class Chunk {
+		private final Referee[] refs = new Referee[CHUNK_SIZE];
+		private int size;
+	}
+
+	/**The chunks in order. None of them is empty.*/
+	private final ArrayList<Chunk> chunks = new ArrayList<Chunk>();
+	private int size;
+
+	/**
+	 * Adds a referee after the referees with smaller or equal IDs.
+	 * @param ref	A referee that is not in the index.
+	 */
+	void add(Referee ref) {
+		if (chunks.isEmpty()) {
+			chunks.add(new Chunk());
+		}
+		int c = lastChunkNotAfter(ref);
+		Chunk chunk = chunks.get(c);
+		int i = upperBound(chunk, ref);
+		if (chunk.size == CHUNK_SIZE) {
+			//Moves the upper half of the full chunk to a new chunk after it.
+			Chunk upper = new Chunk();
+			int half = CHUNK_SIZE / 2;
+			System.arraycopy(chunk.refs, half, upper.refs, 0, CHUNK_SIZE - half);
+			Arrays.fill(chunk.refs, half, CHUNK_SIZE, null);
+			upper.size = CHUNK_SIZE - half;
+			chunk.size = half;
+			chunks.add(c + 1, upper);
+			if (i > half) {
+				chunk = upper;
+				i -= half;
+			}
+		}
+		System.arraycopy(chunk.refs, i, chunk.refs, i + 1, chunk.size - i);
+		chunk.refs[i] = ref;
+		chunk.size++;
+		size++;
+	}
+
+	/**
+	 * Removes a referee. Other referees with the same ID stay.
+	 * @param ref	The referee.
+	 * @return	false if the referee was not in the index.
+	 */
+	boolean remove(Referee ref) {
+		//Referees with the same ID may span several chunks, so the search starts at the first one that can hold the ID.
+		for (int c = firstChunkNotBefore(ref); c < chunks.size(); c++) {
+			Chunk chunk = chunks.get(c);
+			for (int i = lowerBound(chunk, ref); i < chunk.size; i++) {
+				if (chunk.refs[i] == ref) {
+					System.arraycopy(chunk.refs, i + 1, chunk.refs, i, chunk.size - i - 1);
+					chunk.refs[--chunk.size] = null;
+					if (chunk.size == 0) {
+						chunks.remove(c);
+					}
+					size--;
+					return true;
+				}
+				if (COMPARATOR.compare(chunk.refs[i], ref) != 0) {
+					return false;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the number of referees.
+	 * @return
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Returns a new list of all the referees in the order of their IDs.
+	 * @return
+	 */
+	ArrayList<Referee> toList() {
+		ArrayList<Referee> list = new ArrayList<Referee>(size);
+		for (Chunk chunk : chunks) {
+			for (int i = 0; i < chunk.size; i++) {
+				list.add(chunk.refs[i]);
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * Returns a cursor over the referees in the order of their IDs, from the first referee whose ID does not come before an ID.
+	 * The index must not change while the cursor is used.
+	 * @param id	An array that holds the ID in its first length characters.
+	 * @param length
+	 * @return
+	 */
+	Cursor from(char[] id, int length) {
+		int low = 0, high = chunks.size();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			Chunk chunk = chunks.get(middle);
+			if (chunk.refs[chunk.size - 1].compareID(id, length) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		int i = 0;
+		if (low < chunks.size()) {
+			Chunk chunk = chunks.get(low);
+			int end = chunk.size;
+			while (i < end) {
+				int middle = (i + end) >>> 1;
+				if (chunk.refs[middle].compareID(id, length) < 0) {
+					i = middle + 1;
+				} else {
+					end = middle;
+				}
+			}
+		}
+		return new Cursor(low, i);
+	}
+
+	/**
+	 * Returns a cursor over the referees in the order of their IDs, from the referee at a position of that order.
+	 * Only the sizes of the chunks before the position are visited. The index must not change while the cursor is used.
+	 * @param position	The position, from 0. A cursor from the size of the index or beyond returns no referee.
+	 * @return
+	 */
+	Cursor at(int position) {
+		int c = 0;
+		while (c < chunks.size() && position >= chunks.get(c).size) {
+			position -= chunks.get(c).size;
+			c++;
+		}
+		return new Cursor(c, c < chunks.size() ? position : 0);
+	}
+
+	/**
+	 * Walks the referees in the order of their IDs from a position.
+	 */
+	final class Cursor {
+		private int chunk, index;
+
+		private Cursor(int chunk, int index) {
+			this.chunk = chunk;
+			this.index = index;
+		}
+
+		/**
+		 * Returns the referee at the position and moves after it, or null after the last referee.
+		 */
+		Referee next() {
+			if (chunk == chunks.size()) {
+				return null;
+			}
+			Chunk current = chunks.get(chunk);
+			Referee ref = current.refs[index++];
+			if (index == current.size) {
+				chunk++;
+				index = 0;
+			}
+			return ref;
+		}
+	}
+
+	/**
+	 * Returns the last chunk whose first referee does not come after a referee, or the first chunk.
+	 */
+	private int lastChunkNotAfter(Referee ref) {
+		int low = 0, high = chunks.size() - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (COMPARATOR.compare(chunks.get(middle).refs[0], ref) <= 0) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the first chunk whose last referee does not come before a referee, or the number of chunks.
+	 */
+	private int firstChunkNotBefore(Referee ref) {
+		int low = 0, high = chunks.size();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			Chunk chunk = chunks.get(middle);
+			if (COMPARATOR.compare(chunk.refs[chunk.size - 1], ref) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the position of the first referee of a chunk that does not come before a referee.
+	 */
+	private static int lowerBound(Chunk chunk, Referee ref) {
+		int low = 0, high = chunk.size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (COMPARATOR.compare(chunk.refs[middle], ref) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the position of the first referee of a chunk that comes after a referee.
+	 */
+	private static int upperBound(Chunk chunk, Referee ref) {
+		int low = 0, high = chunk.size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (COMPARATOR.compare(chunk.refs[middle], ref) <= 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+}
@@ -0,0 +1,193 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses lines of a referees file, e.g. "DG1 Dave Gray NJB2 3 Central NYY", straight from the bytes of the file.
+ * The fields are found by scanning for spaces and tabs instead of using a regular expression, the known qualifications are
+ * shared instead of copied and the numbers are parsed in place, so the only objects created for a line are the Referee and its Strings.
+ * The referees are stored in a RosterStore of the parser. The file is read as UTF-8. A parser reuses its buffers, so every thread
+ * needs its own parser.
+ * @author Team C
+ */
+final class RefereeLineParser {
+
+	/**Number of fields of a line.*/
+	private static final int FIELDS = 7;
+	/**Index of every field of a line.*/
+	private static final int ID = 0, FIRST_NAME = 1, LAST_NAME = 2, QUALIFICATION = 3, MATCHES = 4, LOCALITY = 5, WILLING = 6;
+	/**The qualifications that the GUI offers. Lines with one of them share the same String.*/
+	private static final String[] QUALIFICATIONS = {"IJB1", "IJB2", "IJB3", "IJB4", "NJB1", "NJB2", "NJB3", "NJB4"};
+	/**The areas, in the order of the area constants.*/
+	private static final String[] AREAS = {"north", "central", "south"};
+
+	/**Start and end of every field of the current line.*/
+	private final int[] fieldStart = new int[FIELDS], fieldEnd = new int[FIELDS];
+	/**Buffer that the bytes of a String field are copied to before they are decoded.*/
+	private byte[] scratch = new byte[64];
+	/**The store of the referees that the parser creates.*/
+	private final RosterStore store = new RosterStore();
+	/**The reason that the last line could not be parsed, or null.*/
+	private String error;
+
+	/**
+	 * Parses the line between start (inclusive) and end (exclusive) of a buffer. The line must not contain the line terminator,
+	 * but may end with a carriage return.
+	 * @param buffer	The buffer that holds the line. Only absolute gets are used, so its position does not change.
+	 * @param start	Index of the first byte of the line.
+	 * @param end	Index after the last byte of the line.
+	 * @return	A Referee object, or null if the line is blank or malformed. If the line is malformed, getError returns the reason.
+	 */
+	Referee parse(ByteBuffer buffer, int start, int end) {
+		error = null;
+		if (end > start && buffer.get(end - 1) == '\r') {
+			end--;
+		}
+
+		//Finds the start and end of the first 7 fields. Further fields are ignored, as the constructor of Referee does.
+		int count = 0;
+		int pos = start;
+		while (count < FIELDS) {
+			while (pos < end && isSeparator(buffer.get(pos))) {
+				pos++;
+			}
+			if (pos == end) {
+				break;
+			}
+			fieldStart[count] = pos;
+			while (pos < end && !isSeparator(buffer.get(pos))) {
+				pos++;
+			}
+			fieldEnd[count++] = pos;
+		}
+		if (count == 0) {
+			return null;
+		}
+		if (count < FIELDS) {
+			return malformed("Expected 7 fields but found " + count);
+		}
+
+		String qualification = qualification(buffer);
+		if (qualification == null) {
+			return malformed("Invalid qualification \"" + field(buffer, QUALIFICATION) + "\"");
+		}
+		int matches = matches(buffer);
+		if (matches < 0) {
+			return malformed("Invalid number of matches \"" + field(buffer, MATCHES) + "\"");
+		}
+		int locality = locality(buffer);
+		if (locality < 0) {
+			return malformed("Invalid locality \"" + field(buffer, LOCALITY) + "\"");
+		}
+		if (fieldEnd[WILLING] - fieldStart[WILLING] < 3) {
+			return malformed("Invalid willingness \"" + field(buffer, WILLING) + "\"");
+		}
+		boolean[] willing = new boolean[3];
+		for (int i = 0; i < 3; i++) {
+			willing[i] = buffer.get(fieldStart[WILLING] + i) == 'Y';
+		}
+
+		return new Referee(store, field(buffer, ID), field(buffer, FIRST_NAME), field(buffer, LAST_NAME), qualification, matches, locality, willing);
+	}
+
+	/**
+	 * Returns the reason that the last line could not be parsed, or null if it was parsed or blank.
+	 * @return
+	 */
+	String getError() {
+		return error;
+	}
+
+	/**
+	 * Records the reason that a line could not be parsed.
+	 */
+	private Referee malformed(String message) {
+		error = message;
+		return null;
+	}
+
+	/**
+	 * Returns the qualification field, sharing the String of the known qualifications. Returns null if it is shorter than 4 characters.
+	 */
+	private String qualification(ByteBuffer buffer) {
+		int start = fieldStart[QUALIFICATION];
+		int length = fieldEnd[QUALIFICATION] - start;
+		if (length < 4) {
+			return null;
+		}
+		if (length == 4) {
+			for (String known : QUALIFICATIONS) {
+				if (buffer.get(start) == known.charAt(0) && buffer.get(start + 1) == known.charAt(1)
+						&& buffer.get(start + 2) == known.charAt(2) && buffer.get(start + 3) == known.charAt(3)) {
+					return known;
+				}
+			}
+		}
+		return field(buffer, QUALIFICATION);
+	}
+
+	/**
+	 * Returns the number of matches field, or -1 if it is not a non negative integer.
+	 */
+	private int matches(ByteBuffer buffer) {
+		int start = fieldStart[MATCHES];
+		int end = fieldEnd[MATCHES];
+		if (end - start > 9) {
+			return -1;
+		}
+		int value = 0;
+		for (int i = start; i < end; i++) {
+			byte b = buffer.get(i);
+			if (b < '0' || b > '9') {
+				return -1;
+			}
+			value = value * 10 + (b - '0');
+		}
+		return value;
+	}
+
+	/**
+	 * Returns the area constant of the locality field, ignoring case, or -1 if it is not an area.
+	 */
+	private int locality(ByteBuffer buffer) {
+		int start = fieldStart[LOCALITY];
+		int length = fieldEnd[LOCALITY] - start;
+		for (int area = 0; area < AREAS.length; area++) {
+			String name = AREAS[area];
+			if (name.length() != length) {
+				continue;
+			}
+			int i = 0;
+			while (i < length && (buffer.get(start + i) | 0x20) == name.charAt(i)) {
+				i++;
+			}
+			if (i == length) {
+				return area;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Decodes a field of the current line to a String.
+	 */
+	private String field(ByteBuffer buffer, int field) {
+		int start = fieldStart[field];
+		int length = fieldEnd[field] - start;
+		if (length > scratch.length) {
+			scratch = new byte[Math.max(length, scratch.length * 2)];
+		}
+		for (int i = 0; i < length; i++) {
+			scratch[i] = buffer.get(start + i);
+		}
+		return new String(scratch, 0, length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns true for the bytes that separate the fields of a line.
+	 */
+	private static boolean isSeparator(byte b) {
+		return b == ' ' || b == '\t';
+	}
+}
@@ -0,0 +1,36 @@
+package model;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of loading the referees of a file or a stream into a match program.
+ * @author Team C
+ */
+@Name("javaball.RefereeLoad")
+@Label("Referee Load")
+@Category({"JavaBall", "File I/O"})
+@Description("Loading of a referees file into a match program")
+final class RefereeLoadEvent extends jdk.jfr.Event {
+
+	@Label("Path")
+	@Description("The referees file, null for a stream")
+	String path;
+
+	@Label("Bytes Read")
+	@DataAmount
+	long bytesRead;
+
+	@Label("Referees")
+	long referees;
+
+	@Label("Malformed Lines")
+	int malformedLines;
+
+	@Label("Parallel")
+	@Description("If the file was parsed in chunks by several threads")
+	boolean parallel;
+}
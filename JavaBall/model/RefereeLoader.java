@@ -0,0 +1,362 @@
+package model;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Loads referees from a file in the RefereesIn.txt format into a match program.
+ * The file is streamed through a fixed size buffer, so memory does not grow with the size of the file, and every line is
+ * parsed by scanning its bytes. Malformed lines, and the lines of referees whose ID an earlier line has taken, are reported
+ * with their line numbers and skipped instead of stopping the load.
+ * Large files are memory mapped instead, split into chunks that end at line boundaries and parsed in parallel.
+ * A load stops with an InterruptedIOException if its thread is interrupted. The referees that were loaded until then stay in
+ * the match program, so a cancelled load should be given a match program of its own and discard it.
+ * @author Team C
+ */
+public final class RefereeLoader {
+
+	/**Initial size of the read buffer. The buffer grows only if a single line does not fit.*/
+	private static final int BUFFER_SIZE = 64 * 1024;
+	/**Files of at least this size are loaded in parallel by load(File, MatchProgram).*/
+	public static final long PARALLEL_THRESHOLD = 16L * 1024 * 1024;
+	/**Smallest and largest size of a chunk of a memory mapped file.*/
+	private static final long MIN_CHUNK = 1024 * 1024, MAX_CHUNK = 64L * 1024 * 1024;
+	/**Number of chunks per thread, so that a thread that finishes early can steal the chunks of a slower one.*/
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	/**
+	 * The referees and the malformed lines of a chunk of a memory mapped file.
+	 */
+	private static final class Chunk {
+		private final ArrayList<Referee> referees = new ArrayList<Referee>();
+		/**Line number of every referee, counted from the start of the chunk.*/
+		private long[] refereeLines = new long[64];
+		/**Line numbers of the malformed lines, counted from the start of the chunk, and their reasons.*/
+		private final ArrayList<Long> malformedLines = new ArrayList<Long>();
+		private final ArrayList<String> messages = new ArrayList<String>();
+		/**Number of lines of the chunk.*/
+		private long lines;
+	}
+
+	/**
+	 * Task that maps a chunk of the file and parses its lines.
+	 */
+	private static final class ParseChunk extends RecursiveTask<Chunk> {
+		private static final long serialVersionUID = 1L;
+		private final FileChannel channel;
+		private final long start, end;
+
+		ParseChunk(FileChannel channel, long start, long end) {
+			this.channel = channel;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected Chunk compute() {
+			Chunk chunk = new Chunk();
+			MappedByteBuffer buffer;
+			try {
+				buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+
+			RefereeLineParser parser = new RefereeLineParser();
+			int limit = (int) (end - start);
+			int lineStart = 0;
+			for (int i = 0; i <= limit; i++) {
+				//Every chunk but the last ends with a line terminator. The last one may end without it.
+				if (i == limit ? lineStart < limit : buffer.get(i) == '\n') {
+					chunk.lines++;
+					Referee ref = parser.parse(buffer, lineStart, i);
+					if (ref != null) {
+						if (chunk.referees.size() == chunk.refereeLines.length) {
+							chunk.refereeLines = Arrays.copyOf(chunk.refereeLines, chunk.refereeLines.length * 2);
+						}
+						chunk.refereeLines[chunk.referees.size()] = chunk.lines;
+						chunk.referees.add(ref);
+					} else if (parser.getError() != null) {
+						chunk.malformedLines.add(chunk.lines);
+						chunk.messages.add(parser.getError());
+					}
+					lineStart = i + 1;
+				}
+			}
+			return chunk;
+		}
+	}
+
+	private RefereeLoader() {
+	}
+
+	/**
+	 * Loads every referee of a file into a match program. Files of at least PARALLEL_THRESHOLD bytes are loaded with loadParallel
+	 * using every core, smaller ones are streamed. Both ways load the same referees in the same order.
+	 * @param file	The referees file.
+	 * @param matchProgram	The match program that receives the referees.
+	 * @return	The number of loaded referees and the malformed lines.
+	 * @throws IOException	If the file cannot be read.
+	 */
+	public static LoadReport load(File file, MatchProgram matchProgram) throws IOException {
+		return load(file, matchProgram, null);
+	}
+
+	/**
+	 * Loads every referee of a file into a match program as load(File, MatchProgram) does, and reports the bytes loaded so far.
+	 * @param file	The referees file.
+	 * @param matchProgram	The match program that receives the referees.
+	 * @param progress	Receives the number of bytes of the file that have been loaded, or null.
+	 * @return	The number of loaded referees and the malformed lines.
+	 * @throws IOException	If the file cannot be read, or an InterruptedIOException if the thread is interrupted.
+	 */
+	public static LoadReport load(File file, MatchProgram matchProgram, ProgressListener progress) throws IOException {
+		long start = Metrics.LOAD.start();
+		try {
+			long size = file.length();
+			if (size >= PARALLEL_THRESHOLD) {
+				return loadParallel(file, matchProgram, Runtime.getRuntime().availableProcessors(), progress);
+			}
+			InputStream in = new FileInputStream(file);
+			try {
+				return load(in, matchProgram, file, size, progress);
+			} finally {
+				in.close();
+			}
+		} finally {
+			Metrics.LOAD.stop(start);
+		}
+	}
+
+	/**
+	 * Loads every referee of a stream into a match program. The stream is not closed.
+	 * @param in	A stream in the RefereesIn.txt format.
+	 * @param matchProgram	The match program that receives the referees.
+	 * @return	The number of loaded referees and the malformed lines.
+	 * @throws IOException	If the stream cannot be read.
+	 */
+	public static LoadReport load(InputStream in, MatchProgram matchProgram) throws IOException {
+		long start = Metrics.LOAD.start();
+		try {
+			return load(in, matchProgram, null, -1, null);
+		} finally {
+			Metrics.LOAD.stop(start);
+		}
+	}
+
+	/**
+	 * Streams the referees of a stream into a match program, reporting the bytes read after every read.
+	 * @param file	The file of the stream, or null.
+	 * @param size	The number of bytes of the stream, or -1 if it is not known.
+	 */
+	private static LoadReport load(InputStream in, MatchProgram matchProgram, File file, long size, ProgressListener progress) throws IOException {
+		RefereeLoadEvent event = FlightEvents.beginLoad();
+		LoadReport report = new LoadReport();
+		RefereeLineParser parser = new RefereeLineParser();
+
+		byte[] buffer = new byte[BUFFER_SIZE];
+		ByteBuffer view = ByteBuffer.wrap(buffer);
+		//The bytes between lineStart and limit belong to lines that have not been parsed yet.
+		int lineStart = 0, limit = 0;
+		long lineNumber = 0, bytesRead = 0;
+
+		while (true) {
+			if (limit == buffer.length) {
+				if (lineStart > 0) {
+					//Moves the incomplete line to the start of the buffer.
+					System.arraycopy(buffer, lineStart, buffer, 0, limit - lineStart);
+					limit -= lineStart;
+					lineStart = 0;
+				} else {
+					//A single line fills the whole buffer.
+					byte[] bigger = new byte[buffer.length * 2];
+					System.arraycopy(buffer, 0, bigger, 0, limit);
+					buffer = bigger;
+					view = ByteBuffer.wrap(buffer);
+				}
+			}
+
+			int read = in.read(buffer, limit, buffer.length - limit);
+			if (read < 0) {
+				break;
+			}
+			int scanFrom = limit;
+			limit += read;
+			bytesRead += read;
+			checkInterrupted();
+
+			for (int i = scanFrom; i < limit; i++) {
+				if (buffer[i] == '\n') {
+					handleLine(parser, view, lineStart, i, ++lineNumber, matchProgram, report);
+					lineStart = i + 1;
+				}
+			}
+			if (progress != null) {
+				progress.progress(bytesRead, size);
+			}
+		}
+
+		//The last line may not end with a line terminator.
+		if (lineStart < limit) {
+			handleLine(parser, view, lineStart, limit, ++lineNumber, matchProgram, report);
+		}
+		commit(event, file, bytesRead, report, false);
+		return report;
+	}
+
+	/**
+	 * Parses a line and inserts the referee to the match program, or records the line as malformed.
+	 */
+	private static void handleLine(RefereeLineParser parser, ByteBuffer buffer, int start, int end, long lineNumber, MatchProgram matchProgram, LoadReport report) {
+		Referee ref = parser.parse(buffer, start, end);
+		if (ref != null) {
+			if (matchProgram.insertInitialRef(ref)) {
+				report.referee();
+			} else {
+				report.malformed(lineNumber, duplicate(ref));
+			}
+		} else if (parser.getError() != null) {
+			report.malformed(lineNumber, parser.getError());
+		}
+	}
+
+	/**
+	 * Loads every referee of a file into a match program by memory mapping the file and parsing chunks of it in parallel.
+	 * The chunks are merged into the match program in the order of the file while the later chunks are still being parsed,
+	 * so the referees, their order and the reported line numbers are the same as with the streaming load.
+	 * @param file	The referees file.
+	 * @param matchProgram	The match program that receives the referees.
+	 * @param parallelism	Number of threads that parse chunks at the same time.
+	 * @return	The number of loaded referees and the malformed lines.
+	 * @throws IOException	If the file cannot be read.
+	 */
+	public static LoadReport loadParallel(File file, MatchProgram matchProgram, int parallelism) throws IOException {
+		long start = Metrics.LOAD.start();
+		try {
+			return loadParallel(file, matchProgram, parallelism, null);
+		} finally {
+			Metrics.LOAD.stop(start);
+		}
+	}
+
+	/**
+	 * Loads a file in parallel as loadParallel(File, MatchProgram, int) does, reporting the bytes merged after every chunk.
+	 */
+	private static LoadReport loadParallel(File file, MatchProgram matchProgram, int parallelism, ProgressListener progress) throws IOException {
+		RefereeLoadEvent event = FlightEvents.beginLoad();
+		LoadReport report = new LoadReport();
+		FileInputStream in = new FileInputStream(file);
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			FileChannel channel = in.getChannel();
+			long size = channel.size();
+			long chunkSize = Math.min(MAX_CHUNK, Math.max(MIN_CHUNK, size / ((long) parallelism * CHUNKS_PER_THREAD)));
+
+			ArrayList<ParseChunk> tasks = new ArrayList<ParseChunk>();
+			long start = 0;
+			while (start < size) {
+				long end = lineBoundary(channel, Math.min(size, start + chunkSize), size);
+				ParseChunk task = new ParseChunk(channel, start, end);
+				tasks.add(task);
+				pool.execute(task);
+				start = end;
+			}
+
+			long firstLine = 0;
+			for (ParseChunk task : tasks) {
+				Chunk chunk;
+				try {
+					chunk = task.join();
+				} catch (UncheckedIOException e) {
+					throw e.getCause();
+				}
+				ArrayList<Integer> duplicates = matchProgram.insertInitialRefs(chunk.referees);
+				report.referees(chunk.referees.size() - duplicates.size());
+				//Reports the malformed lines and the duplicate IDs of the chunk in the order of their lines, as the streaming load does.
+				int next = 0;
+				for (int i = 0; i <= chunk.malformedLines.size(); i++) {
+					long line = i < chunk.malformedLines.size() ? chunk.malformedLines.get(i) : Long.MAX_VALUE;
+					for (; next < duplicates.size() && chunk.refereeLines[duplicates.get(next)] < line; next++) {
+						int position = duplicates.get(next);
+						report.malformed(firstLine + chunk.refereeLines[position], duplicate(chunk.referees.get(position)));
+					}
+					if (i < chunk.malformedLines.size()) {
+						report.malformed(firstLine + line, chunk.messages.get(i));
+					}
+				}
+				firstLine += chunk.lines;
+				checkInterrupted();
+				if (progress != null) {
+					progress.progress(task.end, size);
+				}
+			}
+			commit(event, file, size, report, true);
+		} finally {
+			pool.shutdownNow();
+			in.close();
+		}
+		return report;
+	}
+
+	/**
+	 * Commits the flight recorder event of a load that has ended, if it is recorded.
+	 * @param event	The event that FlightEvents.beginLoad returned, or null.
+	 */
+	private static void commit(RefereeLoadEvent event, File file, long bytesRead, LoadReport report, boolean parallel) {
+		if (event == null) {
+			return;
+		}
+		event.end();
+		if (event.shouldCommit()) {
+			event.path = file == null ? null : file.getPath();
+			event.bytesRead = bytesRead;
+			event.referees = report.getLoaded();
+			event.malformedLines = report.getMalformedLines().size();
+			event.parallel = parallel;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Returns the reason why the line of a referee whose ID is taken is not loaded.
+	 */
+	private static String duplicate(Referee ref) {
+		return "Duplicate referee ID \"" + ref.getRefID() + "\"";
+	}
+
+	/**
+	 * Throws an InterruptedIOException if the thread has been interrupted, e.g. because the user cancelled the load.
+	 */
+	private static void checkInterrupted() throws InterruptedIOException {
+		if (Thread.currentThread().isInterrupted()) {
+			throw new InterruptedIOException("The load was interrupted");
+		}
+	}
+
+	/**
+	 * Returns the position after the first line terminator at or after the given position, or the size of the file.
+	 */
+	private static long lineBoundary(FileChannel channel, long position, long size) throws IOException {
+		ByteBuffer window = ByteBuffer.allocate(BUFFER_SIZE);
+		while (position < size) {
+			window.clear();
+			int read = channel.read(window, position);
+			if (read <= 0) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				if (window.get(i) == '\n') {
+					return position + i + 1;
+				}
+			}
+			position += read;
+		}
+		return size;
+	}
+}
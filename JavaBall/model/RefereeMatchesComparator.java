@@ -4,9 +4,13 @@ import java.util.Comparator;
 
 /**
  * Comparator to sort the Referee objects by their allocated matches.
+ * Referees with the same number of matches are sorted by their IDs, so the order does not depend on the order of the list.
  * @author Team C
  */
 public final class RefereeMatchesComparator implements Comparator<Referee> {	
+	/**Comparator used when two referees have the same number of matches.*/
+	private static final RefereeIDComparator ID_COMPARATOR = new RefereeIDComparator();
+
 	@Override
 	public int compare(Referee ref1, Referee ref2) {
 		if (ref1.getMatchesAllocated() > ref2.getMatchesAllocated())
@@ -14,6 +18,6 @@ public final class RefereeMatchesComparator implements Comparator<Referee> {
 		else if (ref1.getMatchesAllocated() < ref2.getMatchesAllocated())
 			return -1;
 		else
-			return 0;
+			return ID_COMPARATOR.compare(ref1, ref2);
 	}
 }
@@ -0,0 +1,433 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Answers the searches of the referees by name and ID as the user types them, e.g. "ann gr" or "AG12", without scanning the roster.
+ * The first and last names of the referees are kept in a trie of lower case terms. Every node knows how many referees are in
+ * the terms below it, so the least common word of a search is looked up in the trie and the rest of the words are checked
+ * against its referees only. Words with digits are IDs, which are looked up in the sorted index of the IDs.
+ * A word matches the names that start with it, and names that start with it after a typo or two: words of 3 to 5 characters
+ * may be 1 edit away from the start of a name and longer words 2 edits. The referees that match without edits come first.
+ * Not thread safe. The registry that owns it guards it with its lock, and any number of searches can run under the read lock.
+ * @author Team C
+ */
+final class RefereeNameIndex {
+
+	/**Number of referees between two checks if the searching thread has been interrupted.*/
+	private static final int INTERRUPT_CHECK = 1024;
+	private static final char[] NO_KEYS = new char[0];
+	private static final Node[] NO_CHILDREN = new Node[0];
+	private static final Referee[] NO_REFS = new Referee[0];
+
+	/**
+	 * A node of the trie. The path from the root spells a term, and the referees with that first or last name are kept at its node.
+	 */
+	private static final class Node {
+		/**Characters of the children in order, and the children.*/
+		private char[] keys = NO_KEYS;
+		private Node[] children = NO_CHILDREN;
+		private int childCount;
+		/**Referees whose first or last name is the term of the node, in order of insertion.*/
+		private Referee[] refs = NO_REFS;
+		private int size;
+		/**Number of referees of the node and of all the nodes below it.*/
+		private int count;
+	}
+
+	/**
+	 * A node of the trie that matches a word of a search.
+	 */
+	private static final class Hit {
+		private final Node node;
+		/**If every term below the node matches too, or only the term of the node.*/
+		private final boolean subtree;
+
+		private Hit(Node node, boolean subtree) {
+			this.node = node;
+			this.subtree = subtree;
+		}
+
+		private int count() {
+			return subtree ? node.count : node.size;
+		}
+	}
+
+	private final Node root = new Node();
+	/**The IDs of the same registry.*/
+	private final RefereeIDIndex ids;
+
+	/**
+	 * Constructor.
+	 * @param ids	The sorted index of the IDs of the registry, which answers the words with digits.
+	 */
+	RefereeNameIndex(RefereeIDIndex ids) {
+		this.ids = ids;
+	}
+
+	/**
+	 * Adds a referee under his first and last name.
+	 * @param ref	A referee that is not in the index.
+	 */
+	void add(Referee ref) {
+		String first = ref.getFirstName(), last = ref.getLastName();
+		addTerm(first, ref);
+		if (!first.equalsIgnoreCase(last)) {
+			addTerm(last, ref);
+		}
+	}
+
+	/**
+	 * Removes a referee. Nodes that become empty stay in the trie and are skipped by the searches.
+	 * @param ref	The referee.
+	 */
+	void remove(Referee ref) {
+		String first = ref.getFirstName(), last = ref.getLastName();
+		removeTerm(first, ref);
+		if (!first.equalsIgnoreCase(last)) {
+			removeTerm(last, ref);
+		}
+	}
+
+	private void addTerm(String term, Referee ref) {
+		Node node = root;
+		node.count++;
+		for (int i = 0; i < term.length(); i++) {
+			char c = Character.toLowerCase(term.charAt(i));
+			int k = find(node, c);
+			if (k < 0) {
+				k = -k - 1;
+				if (node.childCount == node.keys.length) {
+					int capacity = Math.max(2, node.keys.length * 2);
+					node.keys = Arrays.copyOf(node.keys, capacity);
+					node.children = Arrays.copyOf(node.children, capacity);
+				}
+				System.arraycopy(node.keys, k, node.keys, k + 1, node.childCount - k);
+				System.arraycopy(node.children, k, node.children, k + 1, node.childCount - k);
+				node.keys[k] = c;
+				node.children[k] = new Node();
+				node.childCount++;
+			}
+			node = node.children[k];
+			node.count++;
+		}
+		if (node.size == node.refs.length) {
+			node.refs = Arrays.copyOf(node.refs, Math.max(2, node.refs.length * 2));
+		}
+		node.refs[node.size++] = ref;
+	}
+
+	private void removeTerm(String term, Referee ref) {
+		Node node = root;
+		for (int i = 0; i < term.length() && node != null; i++) {
+			int k = find(node, Character.toLowerCase(term.charAt(i)));
+			node = k < 0 ? null : node.children[k];
+		}
+		if (node == null) {
+			return;
+		}
+		int i = 0;
+		while (i < node.size && node.refs[i] != ref) {
+			i++;
+		}
+		if (i == node.size) {
+			return;
+		}
+		System.arraycopy(node.refs, i + 1, node.refs, i, node.size - i - 1);
+		node.refs[--node.size] = null;
+
+		//The referee was found, so every node of the path counts one referee less.
+		node = root;
+		node.count--;
+		for (int j = 0; j < term.length(); j++) {
+			node = node.children[find(node, Character.toLowerCase(term.charAt(j)))];
+			node.count--;
+		}
+	}
+
+	/**
+	 * Returns the position of the child of a node with a character, or -(insertion point) - 1.
+	 */
+	private static int find(Node node, char c) {
+		return Arrays.binarySearch(node.keys, 0, node.childCount, c);
+	}
+
+	/**
+	 * Returns the referees that match every word of a search. A referee matches a word if his first or last name starts with
+	 * it, allowing a few typos in longer words, or if the word has digits and his ID starts with it.
+	 * If the thread is interrupted, the search stops early and returns the referees found so far.
+	 * @param query	The words of the search, separated by spaces. Case does not matter.
+	 * @param limit	The largest number of referees returned.
+	 * @return	The referees, those that match with fewer typos first.
+	 */
+	ArrayList<Referee> search(String query, int limit) {
+		ArrayList<Referee> found = new ArrayList<Referee>();
+		ArrayList<char[]> names = new ArrayList<char[]>(), idPrefixes = new ArrayList<char[]>();
+		int longest = 0;
+		for (String word : query.trim().split("\\s+")) {
+			if (word.isEmpty()) {
+				continue;
+			}
+			boolean id = false;
+			for (int i = 0; i < word.length(); i++) {
+				id |= Character.isDigit(word.charAt(i));
+			}
+			if (id) {
+				//IDs are made of upper case initials and a sequence number.
+				idPrefixes.add(word.toUpperCase().toCharArray());
+			} else {
+				names.add(word.toLowerCase().toCharArray());
+				longest = Math.max(longest, word.length());
+			}
+		}
+		if (limit <= 0 || (names.isEmpty() && idPrefixes.isEmpty())) {
+			return found;
+		}
+
+		//Finds the terms that match every name, and starts from the name with the fewest referees.
+		int[] scratch = new int[longest + 1];
+		ArrayList<ArrayList<Hit>> hits = new ArrayList<ArrayList<Hit>>();
+		int driver = -1;
+		long fewest = Long.MAX_VALUE;
+		for (int w = 0; w < names.size(); w++) {
+			ArrayList<Hit> wordHits = collect(names.get(w));
+			long count = 0;
+			for (Hit hit : wordHits) {
+				count += hit.count();
+			}
+			if (count == 0) {
+				return found;
+			}
+			if (count < fewest) {
+				fewest = count;
+				driver = w;
+			}
+			hits.add(wordHits);
+		}
+
+		Candidates candidates = new Candidates(names, idPrefixes, idPrefixes.isEmpty() ? driver : -1, scratch, limit, found);
+		if (!idPrefixes.isEmpty()) {
+			//An ID is more selective than any name, so the referees are walked in the order of their IDs from the first word with digits.
+			char[] prefix = idPrefixes.get(0);
+			char[] end = idEnd(prefix);
+			RefereeIDIndex.Cursor cursor = ids.from(prefix, prefix.length);
+			for (Referee ref = cursor.next(); ref != null && ref.compareID(end, end.length) < 0; ref = cursor.next()) {
+				if (!candidates.offer(ref)) {
+					break;
+				}
+			}
+		} else {
+			walk(hits.get(driver), candidates);
+		}
+		return found;
+	}
+
+	/**
+	 * Returns an ID that comes after every ID that starts with the letters of a prefix. IDs that start with other letters come
+	 * after it too, so the walk from the prefix can stop there.
+	 */
+	private static char[] idEnd(char[] prefix) {
+		int letters = 0;
+		while (letters < prefix.length && !Character.isDigit(prefix[letters])) {
+			letters++;
+		}
+		if (letters == 0) {
+			//Only IDs that start with a digit come before ':', which follows '9'.
+			return new char[] {':'};
+		}
+		char[] end = Arrays.copyOf(prefix, letters);
+		end[letters - 1]++;
+		return end;
+	}
+
+	/**
+	 * Offers the referees of the terms that match the least common name to the candidates, those with fewer edits first.
+	 */
+	private static void walk(ArrayList<Hit> hits, Candidates candidates) {
+		ArrayList<Node> stack = new ArrayList<Node>();
+		for (Hit hit : hits) {
+			if (!hit.subtree) {
+				if (!offerAll(hit.node, candidates)) {
+					return;
+				}
+				continue;
+			}
+			//The terms below the node are walked in alphabetical order.
+			stack.add(hit.node);
+			while (!stack.isEmpty()) {
+				Node node = stack.remove(stack.size() - 1);
+				if (!offerAll(node, candidates)) {
+					return;
+				}
+				for (int k = node.childCount - 1; k >= 0; k--) {
+					if (node.children[k].count > 0) {
+						stack.add(node.children[k]);
+					}
+				}
+			}
+		}
+	}
+
+	private static boolean offerAll(Node node, Candidates candidates) {
+		for (int i = 0; i < node.size; i++) {
+			if (!candidates.offer(node.refs[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks the referees found for one word of a search against the rest of the words and keeps the ones that match.
+	 */
+	private static final class Candidates {
+		private final ArrayList<char[]> names, idPrefixes;
+		/**The name whose terms the referees come from, or -1 if they come from the first ID.*/
+		private final int source;
+		private final int[] scratch;
+		private final int limit;
+		private final ArrayList<Referee> found;
+		private int offered;
+
+		private Candidates(ArrayList<char[]> names, ArrayList<char[]> idPrefixes, int source, int[] scratch, int limit, ArrayList<Referee> found) {
+			this.names = names;
+			this.idPrefixes = idPrefixes;
+			this.source = source;
+			this.scratch = scratch;
+			this.limit = limit;
+			this.found = found;
+		}
+
+		/**
+		 * Keeps a referee if he matches the other words.
+		 * @return	false if the search is over, because enough referees were found or the thread was interrupted.
+		 */
+		private boolean offer(Referee ref) {
+			if (++offered % INTERRUPT_CHECK == 0 && Thread.currentThread().isInterrupted()) {
+				return false;
+			}
+			for (int w = 0; w < names.size(); w++) {
+				char[] name = names.get(w);
+				if (w != source && ref.namePrefixDistance(name, maxEdits(name.length), scratch) > maxEdits(name.length)) {
+					return true;
+				}
+			}
+			for (int w = 0; w < idPrefixes.size(); w++) {
+				char[] prefix = idPrefixes.get(w);
+				if (!ref.idStartsWith(prefix, prefix.length)) {
+					return true;
+				}
+			}
+			//A referee whose first and last name both match a word is reached twice. The list is short, so it is searched.
+			if (!found.contains(ref)) {
+				found.add(ref);
+			}
+			return found.size() < limit;
+		}
+	}
+
+	/**
+	 * Returns the number of typos allowed in a word of a given length.
+	 */
+	private static int maxEdits(int length) {
+		return length < 3 ? 0 : length < 6 ? 1 : 2;
+	}
+
+	/**
+	 * Finds the nodes of the terms that start with a word, allowing the typos of its length, grouped by the number of edits.
+	 */
+	private ArrayList<Hit> collect(char[] word) {
+		int maxEdits = maxEdits(word.length);
+		ArrayList<ArrayList<Hit>> byEdits = new ArrayList<ArrayList<Hit>>(maxEdits + 1);
+		for (int d = 0; d <= maxEdits; d++) {
+			byEdits.add(new ArrayList<Hit>());
+		}
+		//A path can only be followed while it is at most maxEdits away from a prefix of the word, so it is never longer than this.
+		int[][] rows = new int[word.length + maxEdits + 2][word.length + 1];
+		for (int i = 0; i <= word.length; i++) {
+			rows[0][i] = i;
+		}
+		collect(root, word, maxEdits, rows, 0, word.length, byEdits);
+
+		ArrayList<Hit> hits = byEdits.get(0);
+		for (int d = 1; d <= maxEdits; d++) {
+			hits.addAll(byEdits.get(d));
+		}
+		return hits;
+	}
+
+	/**
+	 * Visits a node of the trie. rows[depth][i] is the number of edits between the first i characters of the word and the term
+	 * of the node, and best is the fewest edits between the word and a prefix of that term.
+	 */
+	private static void collect(Node node, char[] word, int maxEdits, int[][] rows, int depth, int best, ArrayList<ArrayList<Hit>> byEdits) {
+		int[] row = rows[depth];
+		int min = row[0];
+		for (int i = 1; i < row.length; i++) {
+			min = Math.min(min, row[i]);
+		}
+		if (best <= maxEdits && min >= best) {
+			//No term below can get closer to the word, so they all match with the same edits.
+			byEdits.get(best).add(new Hit(node, true));
+			return;
+		}
+		if (best <= maxEdits && node.size > 0) {
+			byEdits.get(best).add(new Hit(node, false));
+		}
+		if (min > maxEdits) {
+			return;
+		}
+		int[] next = rows[depth + 1];
+		for (int k = 0; k < node.childCount; k++) {
+			Node child = node.children[k];
+			if (child.count == 0) {
+				continue;
+			}
+			char c = node.keys[k];
+			next[0] = row[0] + 1;
+			for (int i = 1; i < next.length; i++) {
+				next[i] = Math.min(Math.min(row[i], next[i - 1]) + 1, row[i - 1] + (word[i - 1] == c ? 0 : 1));
+			}
+			collect(child, word, maxEdits, rows, depth + 1, Math.min(best, next[word.length]), byEdits);
+		}
+	}
+
+	/**
+	 * Returns the fewest edits that turn a prefix of a name into a word, ignoring the case of the name, or maxEdits + 1 if it
+	 * takes more than maxEdits. Nothing is created.
+	 * @param text	An array that holds the name.
+	 * @param from	The start of the name in the array.
+	 * @param end	The end of the name in the array.
+	 * @param word	The word in lower case.
+	 * @param maxEdits	The largest number of edits that is of interest.
+	 * @param row	An array of at least word.length + 1 ints.
+	 * @return
+	 */
+	static int prefixDistance(char[] text, int from, int end, char[] word, int maxEdits, int[] row) {
+		int m = word.length;
+		for (int i = 0; i <= m; i++) {
+			row[i] = i;
+		}
+		int best = m;
+		//A prefix longer than the word and its edits is too far from it.
+		end = Math.min(end, from + m + maxEdits);
+		for (int j = from; j < end && best > 0; j++) {
+			char c = Character.toLowerCase(text[j]);
+			int diagonal = row[0];
+			row[0] = j - from + 1;
+			int min = row[0];
+			for (int i = 1; i <= m; i++) {
+				int above = row[i];
+				row[i] = Math.min(Math.min(above, row[i - 1]) + 1, diagonal + (word[i - 1] == c ? 0 : 1));
+				diagonal = above;
+				min = Math.min(min, row[i]);
+			}
+			best = Math.min(best, row[m]);
+			if (min > maxEdits) {
+				break;
+			}
+		}
+		return best > maxEdits ? maxEdits + 1 : best;
+	}
+}
@@ -0,0 +1,444 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Indexes the referees of a MatchProgram so that lookups, insertions and allocations do not have to scan the whole roster.
+ * Keeps hash indexes on the full name and the ID of every referee, a sorted index of the IDs, a trie of the names for searching, a sequence counter for every ID prefix, an eligibility
+ * index of their qualifications, homes and willingness, and a candidate heap for every match area, home area and qualification.
+ * A referee is in the heap of every area that he is willing to go to. Referees notify their registry when their details or their matches change.
+ * The registry itself is not thread safe. Its users hold the read lock while reading it and the write lock while changing it
+ * or any of its referees.
+ * @author Team C
+ */
+final class RefereeRegistry {
+
+	/**Number of the areas that a referee can live in.*/
+	private static final int AREAS = 3;
+	/**Index of the candidate heaps of junior and senior referees.*/
+	private static final int JUNIOR = 0, SENIOR = 1;
+	/**Comparator that orders the candidates of a tier.*/
+	private static final RefereeMatchesComparator COMPARATOR = new RefereeMatchesComparator();
+
+	/**Lock that guards the registry and the details of its referees.*/
+	final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**All the referees in order of insertion.*/
+	private LinkedHashSet<Referee> roster;
+	/**Referees indexed by their ID, which is unique in the registry.*/
+	private HashMap<String, Referee> byID;
+	/**All the referees in the order of their IDs.*/
+	private RefereeIDIndex sortedByID;
+	/**Referees indexed by their full name, "firstName lastName".*/
+	private HashMap<String, Referee> byName;
+	/**Referees whose full name is already in byName, in order of insertion, so that the next one takes the entry when it is removed.*/
+	private HashMap<String, ArrayList<Referee>> sameName;
+	/**Referees indexed by the words of their names, for searches by prefix and with typos.*/
+	private RefereeNameIndex names;
+	/**Highest sequence number handed out so far for every two letter ID prefix.*/
+	private HashMap<String, Integer> idCounters;
+	/**Bitsets of the qualification, the home and the willingness of the referees.*/
+	private EligibilityIndex eligibility;
+	/**Candidate heaps indexed by [match area][home area][JUNIOR or SENIOR].*/
+	private RefereeHeap[][][] candidates;
+	/**Scratch of the searches made under the write lock. Reused between calls.*/
+	private final Scratch scratch = new Scratch();
+	/**Incremented whenever a referee is added, removed or changes his qualification, home or willingness, so that a pick
+	 * made under the read lock can tell if its candidates have changed since. Guarded by the lock.*/
+	private int version;
+	/**Receives the two referees of the allocation that holds the write lock, so that an allocation does not create an array.*/
+	final Referee[] chosen = new Referee[2];
+
+	/**
+	 * Constructor that instantiates empty indexes and buckets.
+	 */
+	RefereeRegistry() {
+		roster = new LinkedHashSet<Referee>();
+		byID = new HashMap<String, Referee>();
+		sortedByID = new RefereeIDIndex();
+		byName = new HashMap<String, Referee>();
+		sameName = new HashMap<String, ArrayList<Referee>>();
+		names = new RefereeNameIndex(sortedByID);
+		idCounters = new HashMap<String, Integer>();
+		eligibility = new EligibilityIndex();
+		candidates = new RefereeHeap[AREAS][AREAS][2];
+		for (int area = 0; area < AREAS; area++) {
+			for (int home = 0; home < AREAS; home++) {
+				candidates[area][home][JUNIOR] = new RefereeHeap(area);
+				candidates[area][home][SENIOR] = new RefereeHeap(area);
+			}
+		}
+	}
+
+	/**
+	 * The arrays that a search of the candidate heaps works in. Threads that search under the read lock need one each.
+	 */
+	static final class Scratch {
+		/**Candidates of the tier that is being searched. A tier has at most two home areas with two qualifications each, and
+		 * every heap gives at most 2 candidates.*/
+		final Referee[] tier = new Referee[8];
+		/**Heap indexes that still have to be visited. Replaced by a larger array when it is full.*/
+		int[] frontier = new int[16];
+	}
+
+	/**
+	 * Adds a referee to the roster and to every index and bucket. The journal and the matches identify referees by their ID,
+	 * so a referee whose ID is taken is not added.
+	 * @param ref	The referee to be added.
+	 * @return	false if the referee is already in the roster or another referee has his ID.
+	 */
+	boolean add(Referee ref) {
+		if (byID.putIfAbsent(ref.getRefID(), ref) != null) {
+			return false;
+		}
+		roster.add(ref);
+		sortedByID.add(ref);
+		//If two referees share a name, the first one that was added keeps the index entry, as the linear scans did.
+		index(byName, sameName, fullName(ref.getFirstName(), ref.getLastName()), ref);
+		names.add(ref);
+		recordID(ref.getRefID());
+
+		eligibility.add(ref);
+		enqueue(ref);
+		ref.registry = this;
+		version++;
+		return true;
+	}
+
+	/**
+	 * Removes a referee from the roster and from every index and bucket.
+	 * @param ref	The referee to be removed.
+	 * @return	false if the referee was not in the roster.
+	 */
+	boolean remove(Referee ref) {
+		if (!roster.remove(ref)) {
+			return false;
+		}
+		byID.remove(ref.getRefID());
+		sortedByID.remove(ref);
+		unindex(byName, sameName, fullName(ref.getFirstName(), ref.getLastName()), ref);
+		names.remove(ref);
+		eligibility.remove(ref);
+		dequeue(ref);
+		ref.registry = null;
+		RosterStore.release(ref);
+		version++;
+		return true;
+	}
+
+	/**
+	 * Returns the referee with the given full name.
+	 * @param firstName	The first name of the referee.
+	 * @param lastName	The last name of the referee.
+	 * @return	A Referee object or null.
+	 */
+	Referee getByName(String firstName, String lastName) {
+		return byName.get(fullName(firstName, lastName));
+	}
+
+	/**
+	 * Returns the referees whose names or IDs start with the words of a search, allowing a few typos in the names.
+	 * @param query	The words of the search, e.g. "ann gr" or "AG12".
+	 * @param limit	The largest number of referees returned.
+	 * @return	The referees, those that match with fewer typos first.
+	 */
+	ArrayList<Referee> search(String query, int limit) {
+		return names.search(query, limit);
+	}
+
+	/**
+	 * Returns the referee with the given ID.
+	 * @param refID	The ID of the referee.
+	 * @return	A Referee object or null.
+	 */
+	Referee getByID(String refID) {
+		return byID.get(refID);
+	}
+
+	/**
+	 * Returns the next free ID for a referee with the given first and last name.
+	 * The ID is the first letter of the first name followed by the first letter of the last name and a sequence number.
+	 * @param firstName	The first name of the referee.
+	 * @param lastName	The last name of the referee.
+	 * @return	A unique referee ID.
+	 */
+	String nextID(String firstName, String lastName) {
+		String prefix = ("" + firstName.charAt(0) + lastName.charAt(0)).toUpperCase();
+		Integer last = idCounters.get(prefix);
+		return prefix + (last == null ? 1 : last + 1);
+	}
+
+	/**
+	 * Returns all the referees in order of insertion.
+	 * @return
+	 */
+	Collection<Referee> getAll() {
+		return roster;
+	}
+
+	/**
+	 * Returns a new list of all the referees in the order of their IDs. The index is kept sorted, so nothing is sorted here.
+	 * @return
+	 */
+	ArrayList<Referee> getAllByID() {
+		return sortedByID.toList();
+	}
+
+	/**
+	 * Returns a new list of the referees at a range of positions in the order of their IDs, e.g. for a page of the roster.
+	 * @param offset	The position of the first referee, from 0.
+	 * @param limit	The largest number of referees returned.
+	 * @return
+	 */
+	ArrayList<Referee> getRangeByID(int offset, int limit) {
+		ArrayList<Referee> range = new ArrayList<Referee>(Math.max(0, Math.min(limit, size() - offset)));
+		RefereeIDIndex.Cursor cursor = sortedByID.at(offset);
+		Referee ref;
+		while (range.size() < limit && (ref = cursor.next()) != null) {
+			range.add(ref);
+		}
+		return range;
+	}
+
+	/**
+	 * Returns the number of referees that are qualified for a level of match.
+	 * @param seniorOnly	If true, only referees with Senior qualification are counted.
+	 * @return
+	 */
+	int qualified(boolean seniorOnly) {
+		return seniorOnly ? eligibility.seniors() : roster.size();
+	}
+
+	/**
+	 * Returns the number of referees in the roster.
+	 * @return
+	 */
+	int size() {
+		return roster.size();
+	}
+
+	/**
+	 * Returns the number of referees in a tier of the candidates for a match, whether they are booked or not.
+	 * @param matchArea	The area that the match is going to take place.
+	 * @param seniorOnly	If true, only referees with Senior qualification are counted.
+	 * @param distance	Distance of the home areas of the tier from the area of the match: 0 for the local referees,
+	 * 1 for the adjacent ones and 2 for the far ones.
+	 * @return
+	 */
+	int tierSize(int matchArea, boolean seniorOnly, int distance) {
+		int size = 0;
+		for (int home = 0; home < AREAS; home++) {
+			if (Math.abs(home - matchArea) == distance) {
+				size += candidates[matchArea][home][SENIOR].size();
+				if (!seniorOnly) {
+					size += candidates[matchArea][home][JUNIOR].size();
+				}
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Copies the two most suitable referees for a match into an array. Local referees come first, then referees
+	 * from adjacent areas and last referees from non adjacent areas. Inside every tier, the referees with the fewest matches come first.
+	 * Referees that are already booked in the week of the match are skipped.
+	 * Only the tops of the candidate heaps are visited, so the cost does not depend on the size of the roster.
+	 * Works in the scratch of the registry, so the caller must hold the write lock.
+	 * @param matchArea	The area that the match is going to take place.
+	 * @param seniorOnly	If true, only referees with Senior qualification are selected.
+	 * @param week	The week of the match.
+	 * @param out	Array of size 2 that receives the referees.
+	 * @return	The number of referees found, 0, 1 or 2.
+	 */
+	int selectBest(int matchArea, boolean seniorOnly, int week, Referee[] out) {
+		return selectBest(matchArea, seniorOnly, week, out, scratch);
+	}
+
+	/**
+	 * Copies the two most suitable referees for a match into an array, as selectBest does, working in the given scratch.
+	 * Threads that hold the read lock can call it at the same time, each with a scratch of its own.
+	 * @param matchArea	The area that the match is going to take place.
+	 * @param seniorOnly	If true, only referees with Senior qualification are selected.
+	 * @param week	The week of the match.
+	 * @param out	Array of size 2 that receives the referees.
+	 * @param scratch	The scratch of the calling thread.
+	 * @return	The number of referees found, 0, 1 or 2.
+	 */
+	int selectBest(int matchArea, boolean seniorOnly, int week, Referee[] out, Scratch scratch) {
+		Referee[] tierScratch = scratch.tier;
+		int found = 0;
+		for (int distance = 0; distance < AREAS && found < 2; distance++) {
+			int needed = 2 - found;
+			int count = 0;
+			for (int home = 0; home < AREAS; home++) {
+				if (Math.abs(home - matchArea) != distance) {
+					continue;
+				}
+				count = candidates[matchArea][home][SENIOR].best(needed, week, tierScratch, count, scratch);
+				if (!seniorOnly) {
+					count = candidates[matchArea][home][JUNIOR].best(needed, week, tierScratch, count, scratch);
+				}
+			}
+			//Insertion sort of the few candidates of the tier.
+			for (int i = 1; i < count; i++) {
+				Referee ref = tierScratch[i];
+				int j = i - 1;
+				while (j >= 0 && COMPARATOR.compare(tierScratch[j], ref) > 0) {
+					tierScratch[j + 1] = tierScratch[j];
+					j--;
+				}
+				tierScratch[j + 1] = ref;
+			}
+			for (int i = 0; i < count && found < 2; i++) {
+				out[found++] = tierScratch[i];
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Returns all the referees that are suitable for a match in descending order of suitability, following the same order as selectBest.
+	 * The tiers are collected from the eligibility index and sorted, so this costs O(n log n) and should only be called when the full list is needed.
+	 * @param matchArea	The area that the match is going to take place.
+	 * @param seniorOnly	If true, only referees with Senior qualification are returned.
+	 * @return
+	 */
+	ArrayList<Referee> rank(int matchArea, boolean seniorOnly) {
+		ArrayList<Referee> ranking = new ArrayList<Referee>();
+		ArrayList<Referee> tier = new ArrayList<Referee>();
+		for (int distance = 0; distance < AREAS; distance++) {
+			tier.clear();
+			eligibility.collect(matchArea, seniorOnly, distance, tier);
+			Collections.sort(tier, COMPARATOR);
+			ranking.addAll(tier);
+		}
+		return ranking;
+	}
+
+	/**
+	 * Called by a referee after its qualification, locality or willingness has changed. Moves the referee to the correct bucket and heaps.
+	 * @param ref	The referee that changed.
+	 */
+	void refereeChanged(Referee ref) {
+		eligibility.update(ref);
+		dequeue(ref);
+		enqueue(ref);
+		version++;
+	}
+
+	/**
+	 * Returns the number of times that a referee has been added, removed or updated, which changes the candidates of the
+	 * matches. Allocations do not change it: they only raise the matches of the allocated referees.
+	 * @return
+	 */
+	int version() {
+		return version;
+	}
+
+	/**
+	 * Called by a referee after its number of matches has increased. Moves the referee down in every heap that he is in.
+	 * @param ref	The referee that changed.
+	 */
+	void matchesIncreased(Referee ref) {
+		for (int area = 0; area < AREAS; area++) {
+			RefereeHeap heap = ref.getHeap(area);
+			if (heap != null) {
+				heap.increased(ref);
+			}
+		}
+	}
+
+	/**
+	 * Adds a referee to the candidate heap of every area that he is willing to go to.
+	 */
+	private void enqueue(Referee ref) {
+		int qualification = ref.isSenior() ? SENIOR : JUNIOR;
+		for (int area = 0; area < AREAS; area++) {
+			if (ref.isWillingToGo(area)) {
+				candidates[area][ref.getLocality()][qualification].add(ref);
+			}
+		}
+	}
+
+	/**
+	 * Removes a referee from every candidate heap that he is in.
+	 */
+	private void dequeue(Referee ref) {
+		for (int area = 0; area < AREAS; area++) {
+			RefereeHeap heap = ref.getHeap(area);
+			if (heap != null) {
+				heap.remove(ref);
+			}
+		}
+	}
+
+	/**
+	 * Updates the sequence counter of the ID's prefix so that newly given IDs never collide with it.
+	 * @param refID	A referee ID such as "DG1".
+	 */
+	private void recordID(String refID) {
+		if (refID.length() < 3) {
+			return;
+		}
+		String prefix = refID.substring(0, 2).toUpperCase();
+		int sequence = 0;
+		for (int i = 2; i < refID.length(); i++) {
+			char c = refID.charAt(i);
+			if (c < '0' || c > '9') {
+				return;
+			}
+			sequence = sequence * 10 + (c - '0');
+		}
+		Integer last = idCounters.get(prefix);
+		if (last == null || last < sequence) {
+			idCounters.put(prefix, sequence);
+		}
+	}
+
+	/**
+	 * Adds a referee to a hash index. If the key is taken, the referee waits in the overflow list of the key.
+	 */
+	private static void index(HashMap<String, Referee> index, HashMap<String, ArrayList<Referee>> overflow, String key, Referee ref) {
+		if (index.putIfAbsent(key, ref) == null) {
+			return;
+		}
+		ArrayList<Referee> waiting = overflow.get(key);
+		if (waiting == null) {
+			waiting = new ArrayList<Referee>(1);
+			overflow.put(key, waiting);
+		}
+		waiting.add(ref);
+	}
+
+	/**
+	 * Removes a referee from a hash index. If he held the entry of the key, the earliest referee that was added with the same key
+	 * takes it, so a lookup finds the same referee as a scan of the remaining roster would.
+	 */
+	private static void unindex(HashMap<String, Referee> index, HashMap<String, ArrayList<Referee>> overflow, String key, Referee ref) {
+		ArrayList<Referee> waiting = overflow.get(key);
+		if (index.get(key) == ref) {
+			if (waiting == null) {
+				index.remove(key);
+				return;
+			}
+			index.put(key, waiting.remove(0));
+		} else if (waiting == null || !waiting.remove(ref)) {
+			return;
+		}
+		if (waiting.isEmpty()) {
+			overflow.remove(key);
+		}
+	}
+
+	/**
+	 * Returns the key of the full name index.
+	 */
+	private static String fullName(String firstName, String lastName) {
+		return firstName + " " + lastName;
+	}
+}
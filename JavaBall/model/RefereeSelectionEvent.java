@@ -0,0 +1,45 @@
+package model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of Match.allocateRefs picking the two referees of a match. The candidates of a tier are the qualified
+ * referees whose home is at that distance from the area of the match and who are willing to go there, booked or not.
+ * @author Team C
+ */
+@Name("javaball.RefereeSelection")
+@Label("Referee Selection")
+@Category({"JavaBall", "Allocation"})
+@Description("Selection of the two most suitable referees of a match")
+final class RefereeSelectionEvent extends jdk.jfr.Event {
+
+	@Label("Week")
+	int week;
+
+	@Label("Area")
+	String area;
+
+	@Label("Level")
+	String level;
+
+	@Label("Local Candidates")
+	int localCandidates;
+
+	@Label("Adjacent Candidates")
+	int adjacentCandidates;
+
+	@Label("Far Candidates")
+	int farCandidates;
+
+	@Label("Status")
+	String status;
+
+	@Label("First Referee")
+	String firstReferee;
+
+	@Label("Second Referee")
+	String secondReferee;
+}
@@ -0,0 +1,499 @@
+package model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Compact columnar storage of referees. The details of the referees are kept in blocks of parallel primitive arrays: the ID and
+ * the names in a char arena, the qualification as a code into a shared table, the home area and the willingness packed in a byte,
+ * and the counters in atomic arrays. A Referee is only a view of a row of a block, so a roster of millions of referees costs
+ * a few dozen bytes per referee instead of a dozen objects per referee.
+ * A block stays in memory as long as one of its referees does. A store keeps the block that it appends to and the rows that have
+ * been freed, which it fills before appending. A referee that is removed from his registry moves to a block of his own and
+ * frees his row, so the rows of SHARED are reused as the GUI or the server delete and insert referees. Referees that are
+ * created on their own share the rows of SHARED, loaders append to a store of their own.
+ * Appending is thread safe. The details of a row are guarded like the fields of a Referee used to be: by the lock of the
+ * registry that the referee belongs to. The counters are atomic.
+ * @author Team C
+ */
+final class RosterStore {
+
+	/**Number of rows of a block.*/
+	private static final int BLOCK_SIZE = 1024;
+	/**Number of the areas that a referee can live in.*/
+	private static final int AREAS = 3;
+	/**Bits of the packed byte that hold the home area. The willingness to go to area a is bit a + 2.*/
+	private static final int LOCALITY_MASK = 3, WILLING_SHIFT = 2;
+
+	/**The store of the referees that are created on their own, e.g. by the GUI.*/
+	static final RosterStore SHARED = new RosterStore();
+
+	/**Every qualification that has been seen, indexed by its code. Copied on write, so it is read without a lock.*/
+	private static volatile String[] qualifications = new String[0];
+	/**If the qualification of every code is a Senior one. Copied on write.*/
+	private static volatile boolean[] seniorCodes = new boolean[0];
+	/**Code of every qualification that has been seen. Guarded by the class.*/
+	private static final HashMap<String, Integer> codes = new HashMap<String, Integer>();
+
+	/**The block that rows are appended to.*/
+	private Block current;
+	/**Rows that have been freed and can be reused, as a stack of their blocks and their rows.*/
+	private Block[] freeBlocks = new Block[16];
+	private int[] freeRows = new int[16];
+	private int freeCount;
+
+	/**
+	 * The IDs, first and last names of the rows of a block, one after another, and where they are. A block replaces its names by
+	 * a compacted copy when they are full, so a reader that reads the names once sees the characters and the ends of the same copy.
+	 */
+	private static final class Names {
+		/**The names of the rows.*/
+		final char[] chars;
+		/**Start of the ID of every row in chars.*/
+		final int[] rowStarts;
+		/**End of the ID, of the first name and of the last name of every row in chars.*/
+		final int[] nameEnds;
+		/**End of the names written so far, and the characters before it that belong to freed rows. Guarded by the store.*/
+		int used, freed;
+
+		Names(int length, int rows) {
+			chars = new char[length];
+			rowStarts = new int[rows];
+			nameEnds = new int[3 * rows];
+		}
+
+		/**
+		 * Returns the start of a name. Name 3 * row is the ID of the row, followed by the first and the last name.
+		 */
+		int start(int name) {
+			return name % 3 == 0 ? rowStarts[name / 3] : nameEnds[name - 1];
+		}
+	}
+
+	/**
+	 * Rows of referees, stored column by column.
+	 */
+	static final class Block {
+		/**The store that the block belongs to, or null for the block of a removed referee, whose row is never reused.*/
+		private final RosterStore store;
+		/**The names of the rows. Replaced by a compacted copy when it is full. Volatile because the referees of other registries
+		 * read their rows while it is replaced under the store's monitor, and only their own lock guards them, so they must see
+		 * the copy with its contents. Read once into a local by every method.*/
+		private volatile Names names;
+		/**Code of the qualification of every row.*/
+		private final char[] qualification;
+		/**Home area and willingness of every row.*/
+		private final byte[] place;
+		/**Matches of every row, including the ones allocated before the program started.*/
+		final AtomicIntegerArray matchesAllocated;
+		/**Matches of every row allocated while the program is running.*/
+		final AtomicIntegerArray actualMatches;
+		/**Bit (week - 1) is set if the referee of the row has been booked for a match in that week.*/
+		final AtomicLongArray weeksBooked;
+		/**The candidate heap of every match area that the referee of the row is in, or null, and his position in it.*/
+		private final RefereeHeap[] heaps;
+		private final int[] heapIndex;
+		/**The slot of the referee of every row in the eligibility index of his registry, or -1.*/
+		private final int[] slot;
+		/**Number of rows handed out so far, including the freed ones.*/
+		private int size;
+
+		/**
+		 * Creates a block.
+		 * @param store	The store that the block belongs to, or null.
+		 * @param rows	Number of rows.
+		 * @param chars	Initial length of the names.
+		 */
+		Block(RosterStore store, int rows, int chars) {
+			this.store = store;
+			names = new Names(chars, rows);
+			qualification = new char[rows];
+			place = new byte[rows];
+			matchesAllocated = new AtomicIntegerArray(rows);
+			actualMatches = new AtomicIntegerArray(rows);
+			weeksBooked = new AtomicLongArray(rows);
+			heaps = new RefereeHeap[AREAS * rows];
+			heapIndex = new int[AREAS * rows];
+			slot = new int[rows];
+		}
+
+		String refID(int row) {
+			return name(3 * row);
+		}
+
+		String firstName(int row) {
+			return name(3 * row + 1);
+		}
+
+		String lastName(int row) {
+			return name(3 * row + 2);
+		}
+
+		/**
+		 * Compares the ID of a row with the ID of a row of another block without creating the Strings, as compareIDs does.
+		 */
+		int compareID(int row, Block other, int otherRow) {
+			Names names = this.names, otherNames = other.names;
+			return compareIDs(names.chars, names.rowStarts[row], names.nameEnds[3 * row],
+					otherNames.chars, otherNames.rowStarts[otherRow], otherNames.nameEnds[3 * otherRow]);
+		}
+
+		/**
+		 * Compares the ID of a row with the first characters of an array, in the same order as compareID.
+		 */
+		int compareID(int row, char[] id, int length) {
+			Names names = this.names;
+			return compareIDs(names.chars, names.rowStarts[row], names.nameEnds[3 * row], id, 0, length);
+		}
+
+		/**
+		 * Returns if the ID of a row starts with the first characters of an array.
+		 */
+		boolean idStartsWith(int row, char[] prefix, int length) {
+			Names names = this.names;
+			int start = names.rowStarts[row];
+			if (names.nameEnds[3 * row] - start < length) {
+				return false;
+			}
+			for (int k = 0; k < length; k++) {
+				if (names.chars[start + k] != prefix[k]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Returns the smallest number of edits that turn a prefix of the first or the last name of a row into a lower case query,
+		 * ignoring the case of the names, or maxEdits + 1 if it takes more than maxEdits.
+		 * @param scratch	An array of at least query.length + 1 ints.
+		 */
+		int namePrefixDistance(int row, char[] query, int maxEdits, int[] scratch) {
+			Names names = this.names;
+			int[] ends = names.nameEnds;
+			int first = RefereeNameIndex.prefixDistance(names.chars, ends[3 * row], ends[3 * row + 1], query, maxEdits, scratch);
+			if (first == 0) {
+				return 0;
+			}
+			int last = RefereeNameIndex.prefixDistance(names.chars, ends[3 * row + 1], ends[3 * row + 2], query, maxEdits, scratch);
+			return Math.min(first, last);
+		}
+
+		/**
+		 * Compares two IDs, stored in ranges of char arrays, without creating the Strings. The letters are compared as characters
+		 * and the sequence numbers as numbers, so "AB2" comes before "AB10". IDs that only differ in leading zeros, e.g. "AB02"
+		 * and "AB2", are then ordered as String.compareTo orders them, so only equal IDs compare as 0.
+		 */
+		private static int compareIDs(char[] names, int start, int end, char[] otherNames, int otherStart, int otherEnd) {
+			int i = start, j = otherStart;
+			while (i < end && j < otherEnd) {
+				char c = names[i], otherC = otherNames[j];
+				if (isDigit(c) && isDigit(otherC)) {
+					//Compares the runs of digits as numbers: without their leading zeros, the longer run is the larger number.
+					int runEnd = digitsEnd(names, i, end), otherRunEnd = digitsEnd(otherNames, j, otherEnd);
+					int from = zerosEnd(names, i, runEnd), otherFrom = zerosEnd(otherNames, j, otherRunEnd);
+					if (runEnd - from != otherRunEnd - otherFrom) {
+						return (runEnd - from) - (otherRunEnd - otherFrom);
+					}
+					for (int k = 0; k < runEnd - from; k++) {
+						if (names[from + k] != otherNames[otherFrom + k]) {
+							return names[from + k] - otherNames[otherFrom + k];
+						}
+					}
+					i = runEnd;
+					j = otherRunEnd;
+				} else if (c != otherC) {
+					return c - otherC;
+				} else {
+					i++;
+					j++;
+				}
+			}
+			if (i < end || j < otherEnd) {
+				return (end - i) - (otherEnd - j);
+			}
+			//Equal as numbers, so the characters decide.
+			int length = end - start, otherLength = otherEnd - otherStart;
+			for (int k = 0, n = Math.min(length, otherLength); k < n; k++) {
+				if (names[start + k] != otherNames[otherStart + k]) {
+					return names[start + k] - otherNames[otherStart + k];
+				}
+			}
+			return length - otherLength;
+		}
+
+		private static boolean isDigit(char c) {
+			return c >= '0' && c <= '9';
+		}
+
+		/**
+		 * Returns the end of the run of digits that starts at a position.
+		 */
+		private static int digitsEnd(char[] chars, int from, int end) {
+			while (from < end && isDigit(chars[from])) {
+				from++;
+			}
+			return from;
+		}
+
+		/**
+		 * Returns the position after the leading zeros of a run of digits, keeping its last digit.
+		 */
+		private static int zerosEnd(char[] chars, int from, int runEnd) {
+			while (from < runEnd - 1 && chars[from] == '0') {
+				from++;
+			}
+			return from;
+		}
+
+		String qualification(int row) {
+			return qualifications[qualification[row]];
+		}
+
+		boolean isSenior(int row) {
+			return seniorCodes[qualification[row]];
+		}
+
+		void setQualification(int row, String qual) {
+			checkQualification(qual);
+			qualification[row] = code(qual);
+		}
+
+		int locality(int row) {
+			return place[row] & LOCALITY_MASK;
+		}
+
+		boolean isWillingToGo(int row, int area) {
+			return (place[row] & 1 << (area + WILLING_SHIFT)) != 0;
+		}
+
+		void setPlace(int row, int locality, boolean[] willingToGo) {
+			place[row] = pack(locality, willingToGo);
+		}
+
+		RefereeHeap heap(int row, int area) {
+			return heaps[AREAS * row + area];
+		}
+
+		int heapIndex(int row, int area) {
+			return heapIndex[AREAS * row + area];
+		}
+
+		void setHeap(int row, int area, RefereeHeap heap, int index) {
+			heaps[AREAS * row + area] = heap;
+			heapIndex[AREAS * row + area] = index;
+		}
+
+		void setHeapIndex(int row, int area, int index) {
+			heapIndex[AREAS * row + area] = index;
+		}
+
+		int slot(int row) {
+			return slot[row];
+		}
+
+		void setSlot(int row, int value) {
+			slot[row] = value;
+		}
+
+		private String name(int name) {
+			Names names = this.names;
+			int start = names.start(name);
+			return new String(names.chars, start, names.nameEnds[name] - start);
+		}
+
+		/**
+		 * Writes the names of a row after the names written so far, first replacing the names by a compacted copy if they do not
+		 * fit. The row must not be read by anyone else yet. Called under the monitor of the store.
+		 */
+		private void setNames(int row, String refID, String firstName, String lastName) {
+			Names names = this.names;
+			int length = refID.length() + firstName.length() + lastName.length();
+			if (names.used + length > names.chars.length) {
+				names = compact(names, length);
+				this.names = names;
+			}
+			int end = names.used;
+			names.rowStarts[row] = end;
+			end = copy(names.chars, refID, end);
+			names.nameEnds[3 * row] = end;
+			end = copy(names.chars, firstName, end);
+			names.nameEnds[3 * row + 1] = end;
+			end = copy(names.chars, lastName, end);
+			names.nameEnds[3 * row + 2] = end;
+			names.used = end;
+		}
+
+		/**
+		 * Returns a copy of the names of the rows without the characters of the freed rows, with room for at least the given
+		 * number of characters more. The copy is at least as long as the names, so a block that frees as many characters as it
+		 * writes keeps its length.
+		 */
+		private Names compact(Names old, int room) {
+			int live = old.used - old.freed;
+			Names names = new Names(Math.max(old.chars.length, 2 * (live + room)), old.rowStarts.length);
+			int end = 0;
+			for (int row = 0; row < size; row++) {
+				int start = old.rowStarts[row];
+				System.arraycopy(old.chars, start, names.chars, end, old.nameEnds[3 * row + 2] - start);
+				names.rowStarts[row] = end;
+				for (int name = 3 * row; name < 3 * row + 3; name++) {
+					names.nameEnds[name] = old.nameEnds[name] - start + end;
+				}
+				end = names.nameEnds[3 * row + 2];
+			}
+			names.used = end;
+			return names;
+		}
+
+		/**
+		 * Frees the names of a row, which then takes no characters. Called under the monitor of the store, after the referee of
+		 * the row has moved out of it.
+		 */
+		private void freeNames(int row) {
+			Names names = this.names;
+			int start = names.rowStarts[row];
+			names.freed += names.nameEnds[3 * row + 2] - start;
+			Arrays.fill(names.nameEnds, 3 * row, 3 * row + 3, start);
+		}
+
+		/**
+		 * Sets the columns of a row that do not come from the referee's details to those of a referee that is in no registry.
+		 */
+		private void clear(int row) {
+			actualMatches.set(row, 0);
+			weeksBooked.set(row, 0);
+			Arrays.fill(heaps, AREAS * row, AREAS * row + AREAS, null);
+			Arrays.fill(heapIndex, AREAS * row, AREAS * row + AREAS, -1);
+			slot[row] = -1;
+		}
+
+		private static int copy(char[] chars, String value, int offset) {
+			value.getChars(0, value.length(), chars, offset);
+			return offset + value.length();
+		}
+	}
+
+	/**
+	 * Appends a row and makes a referee its view.
+	 * @param ref	A new referee that is not a view yet.
+	 * @param refID	The referee's ID
+	 * @param firstName The referee's first name
+	 * @param lastName The referee's last name
+	 * @param qualification The referee's qualification
+	 * @param matchesAllocated The matches allocated to the referee
+	 * @param locality The referee's home locality
+	 * @param willingToGo Where the referee is willing to go
+	 * @throws IllegalArgumentException	If the qualification is too short to have a level, before a row is taken.
+	 */
+	synchronized void append(Referee ref, String refID, String firstName, String lastName, String qualification, int matchesAllocated,
+			int locality, boolean[] willingToGo) {
+		checkQualification(qualification);
+		Block block;
+		int row;
+		if (freeCount > 0) {
+			block = freeBlocks[--freeCount];
+			row = freeRows[freeCount];
+			freeBlocks[freeCount] = null;
+		} else {
+			if (current == null || current.size == BLOCK_SIZE) {
+				current = new Block(this, BLOCK_SIZE, BLOCK_SIZE * 16);
+			}
+			block = current;
+			row = block.size++;
+		}
+		block.setNames(row, refID, firstName, lastName);
+		block.qualification[row] = code(qualification);
+		block.place[row] = pack(locality, willingToGo);
+		block.matchesAllocated.set(row, matchesAllocated);
+		block.clear(row);
+		ref.block = block;
+		ref.row = row;
+	}
+
+	/**
+	 * Moves a referee that has been removed from his registry to a block of his own and frees his row for the next referee
+	 * appended to the store. The referee keeps his details and his counters for those that still hold him, e.g. the matches
+	 * that he was allocated to or the listeners that are told about his removal. Called under the write lock of the registry,
+	 * so no reader of the registry reads the row while it moves.
+	 * @param ref	A referee that is in no registry.
+	 */
+	static void release(Referee ref) {
+		Block block = ref.block;
+		int row = ref.row;
+		if (block.store == null) {
+			return;
+		}
+		String refID = block.refID(row), firstName = block.firstName(row), lastName = block.lastName(row);
+		Block own = new Block(null, 1, refID.length() + firstName.length() + lastName.length());
+		own.size = 1;
+		own.setNames(0, refID, firstName, lastName);
+		own.qualification[0] = block.qualification[row];
+		own.place[0] = block.place[row];
+		own.matchesAllocated.set(0, block.matchesAllocated.get(row));
+		own.clear(0);
+		own.actualMatches.set(0, block.actualMatches.get(row));
+		own.weeksBooked.set(0, block.weeksBooked.get(row));
+		ref.block = own;
+		ref.row = 0;
+		block.store.free(block, row);
+	}
+
+	/**
+	 * Frees a row of a block of the store, which the referee of the row has moved out of.
+	 */
+	private synchronized void free(Block block, int row) {
+		block.freeNames(row);
+		block.clear(row);
+		if (freeCount == freeRows.length) {
+			freeBlocks = Arrays.copyOf(freeBlocks, freeCount * 2);
+			freeRows = Arrays.copyOf(freeRows, freeCount * 2);
+		}
+		freeBlocks[freeCount] = block;
+		freeRows[freeCount++] = row;
+	}
+
+	private static byte pack(int locality, boolean[] willingToGo) {
+		int place = locality;
+		for (int area = 0; area < AREAS; area++) {
+			if (willingToGo[area]) {
+				place |= 1 << (area + WILLING_SHIFT);
+			}
+		}
+		return (byte) place;
+	}
+
+	/**
+	 * Checks that a qualification has a level after its board, e.g. "NJB1", before a row stores it.
+	 * @throws IllegalArgumentException	If the qualification is null or too short to have a level.
+	 */
+	static void checkQualification(String qualification) {
+		if (qualification == null || qualification.length() < 4) {
+			throw new IllegalArgumentException("Invalid qualification \"" + qualification + "\": expected a board and a level, e.g. NJB1");
+		}
+	}
+
+	/**
+	 * Returns the code of a qualification, giving it one if it has not been seen before.
+	 */
+	private static synchronized char code(String qualification) {
+		Integer code = codes.get(qualification);
+		if (code == null) {
+			code = codes.size();
+			if (code > Character.MAX_VALUE) {
+				throw new IllegalStateException("Too many different qualifications");
+			}
+			//The senior flags are published before the qualifications, so a reader that sees a code sees its flag too.
+			boolean[] newSeniorCodes = Arrays.copyOf(seniorCodes, code + 1);
+			newSeniorCodes[code] = qualification.charAt(3) != '1';
+			seniorCodes = newSeniorCodes;
+			String[] newQualifications = Arrays.copyOf(qualifications, code + 1);
+			newQualifications[code] = qualification;
+			qualifications = newQualifications;
+			codes.put(qualification, code);
+		}
+		return (char) code.intValue();
+	}
+}
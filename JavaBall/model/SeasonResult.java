@@ -0,0 +1,88 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The result of allocating referees to a list of fixtures: the matches that were allocated and the fixtures that failed.
+ * @author Team C
+ */
+public final class SeasonResult {
+
+	/**
+	 * A fixture that could not be allocated and the reason why.
+	 */
+	public static final class Failure {
+		private final Fixture fixture;
+		private final AllocationStatus status;
+
+		Failure(Fixture fixture, AllocationStatus status) {
+			this.fixture = fixture;
+			this.status = status;
+		}
+
+		/**
+		 * Returns the fixture that could not be allocated.
+		 * @return
+		 */
+		public Fixture getFixture() {
+			return fixture;
+		}
+
+		/**
+		 * Returns the reason that the fixture could not be allocated.
+		 * @return
+		 */
+		public AllocationStatus getStatus() {
+			return status;
+		}
+
+		@Override
+		public String toString() {
+			return fixture + ": " + status.getMessage();
+		}
+	}
+
+	/**Matches that were allocated, in the order of the fixtures.*/
+	private final ArrayList<Match> allocated = new ArrayList<Match>();
+	/**Fixtures that could not be allocated, in the order of the fixtures.*/
+	private final ArrayList<Failure> failures = new ArrayList<Failure>();
+
+	/**
+	 * Records the outcome of a fixture.
+	 * @param fixture	The fixture.
+	 * @param status	The outcome of the allocation.
+	 * @param match	The allocated match, or null if the allocation failed.
+	 */
+	void add(Fixture fixture, AllocationStatus status, Match match) {
+		if (status == AllocationStatus.ALLOCATED) {
+			allocated.add(match);
+		} else {
+			failures.add(new Failure(fixture, status));
+		}
+	}
+
+	/**
+	 * Returns the matches that were allocated.
+	 * @return
+	 */
+	public List<Match> getAllocated() {
+		return allocated;
+	}
+
+	/**
+	 * Returns the fixtures that could not be allocated.
+	 * @return
+	 */
+	public List<Failure> getFailures() {
+		return failures;
+	}
+
+	/**
+	 * Returns true if every fixture was allocated.
+	 * @return
+	 */
+	public boolean isComplete() {
+		return failures.isEmpty();
+	}
+}
@@ -0,0 +1,497 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Allocates the referees of a whole season at once, as a min-cost flow, instead of picking the best referees week by week.
+ * Every match needs two referees who are qualified for its level, are willing to go to its area and are free in its week.
+ * A referee costs DISTANCE_COST for every area between his home and the match, and every extra match costs him one more
+ * than his previous one, so the solver trades travel against an even workload over the whole season.
+ * <p>
+ * The network is exact but small, because its nodes are groups that can be swapped freely instead of single matches and referees:
+ * a class is the matches of the same week, area and level, and a type is the referees with the same home, qualification,
+ * willingness, matches and booked weeks. It is source -> class (capacity 2 per match) -> type in the week of the class
+ * (capacity the members of the type) -> type -> sink. A type has an edge to the sink for every round of matches that its members
+ * can take, costing their matches before it plus the round, so the cheapest flow spreads the matches of a type evenly over its
+ * members, as the cost of every single referee would. The flow is found by the primal-dual method: Dijkstra with potentials,
+ * then a blocking flow on the edges of zero reduced cost. Since the costs are small integers, there are few phases.
+ * <p>
+ * The flow of a type is then handed to its members in turn, week by week, which gives every member the rounds that the flow
+ * paid for and never two matches of the same week. A class that receives an odd number of referees gives one to another odd
+ * class of its week if he can referee there, or else leaves him out, so that every match it staffs has both referees.
+ * @author Team C
+ */
+final class SeasonSolver {
+
+	/**Cost of every area between the home of a referee and the area of the match.*/
+	static final int DISTANCE_COST = 10;
+	private static final long INFINITY = Long.MAX_VALUE / 4;
+	private static final int SOURCE = 0, SINK = 1;
+	private static final int AREAS = 3;
+	/**Orders the referees of the same distance, and the members of a type.*/
+	private static final RefereeMatchesComparator COMPARATOR = new RefereeMatchesComparator();
+
+	private final RefereeRegistry referees;
+	private final long deadline;
+
+	//The network. Edge e goes to to[e], e ^ 1 is its reverse edge and the edges of a node are linked through next.
+	private int nodes, edges;
+	private int[] head;
+	private int[] to = new int[1024], next = new int[1024], cap = new int[1024], cost = new int[1024];
+
+	/**
+	 * Referees that no match can tell apart.
+	 */
+	private static final class Type {
+		private final int home, willing, matches;
+		private final boolean senior;
+		private final long weeks;
+		/**The members, in the order that they are given matches.*/
+		private final ArrayList<Referee> members = new ArrayList<Referee>();
+		/**The node of the type, its number of weeks with a class that it can referee, and the member that gets the next match.*/
+		private int node, weekCount, nextMember;
+
+		Type(Referee ref) {
+			int areas = 0;
+			for (int area = 0; area < AREAS; area++) {
+				if (ref.isWillingToGo(area)) {
+					areas |= 1 << area;
+				}
+			}
+			home = ref.getLocality();
+			willing = areas;
+			matches = ref.getMatchesAllocated();
+			senior = ref.isSenior();
+			weeks = ref.getWeeksBooked();
+		}
+
+		boolean canReferee(MatchClass matchClass) {
+			return (senior || !matchClass.senior) && (willing & 1 << matchClass.area) != 0 && (weeks & 1L << (matchClass.week - 1)) == 0;
+		}
+
+		Referee nextMember() {
+			Referee ref = members.get(nextMember);
+			nextMember = (nextMember + 1) % members.size();
+			return ref;
+		}
+
+		@Override
+		public int hashCode() {
+			return (((home * 31 + willing) * 31 + matches) * 31 + (senior ? 1 : 0)) * 31 + (int) (weeks ^ weeks >>> 32);
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			if (!(object instanceof Type)) {
+				return false;
+			}
+			Type other = (Type) object;
+			return home == other.home && willing == other.willing && matches == other.matches && senior == other.senior
+					&& weeks == other.weeks;
+		}
+	}
+
+	/**
+	 * Matches that any referee can swap: the same week, area and level.
+	 */
+	private static final class MatchClass {
+		private final int week, area;
+		private final boolean senior;
+		/**Indexes of the matches in the list of the solver.*/
+		private final ArrayList<Integer> matches = new ArrayList<Integer>();
+		/**The types that can referee the matches. The edge to the i-th one is firstEdge + 2 * i.*/
+		private final ArrayList<Type> types = new ArrayList<Type>();
+		/**Referees that the flow gave to the class.*/
+		private final ArrayList<Referee> given = new ArrayList<Referee>();
+		private int node, firstEdge;
+
+		MatchClass(Match match) {
+			week = match.getMatchWeekNumber();
+			area = match.getMatchArea();
+			senior = isSenior(match);
+		}
+
+		boolean accepts(Referee ref) {
+			return (ref.isSenior() || !senior) && ref.isWillingToGo(area);
+		}
+	}
+
+	/**
+	 * Constructor.
+	 * @param referees	The registry of the referees. The caller holds its write lock until the solution has been applied.
+	 * @param deadline	The System.nanoTime after which the solver gives up.
+	 */
+	SeasonSolver(RefereeRegistry referees, long deadline) {
+		this.referees = referees;
+		this.deadline = deadline;
+	}
+
+	/**
+	 * Finds the referees of every match.
+	 * @param matches	Matches that have not been allocated. A referee is never given two matches of the same week.
+	 * @return	For every match, its two referees in order of suitability, or null if the solver could not find two.
+	 * 	Null if the deadline passed.
+	 */
+	Referee[][] solve(List<Match> matches) {
+		//The classes in order of week, area and level.
+		MatchClass[] byKey = new MatchClass[(MatchCalendar.WEEKS + 1) * AREAS * 2];
+		for (int i = 0; i < matches.size(); i++) {
+			Match match = matches.get(i);
+			int key = (match.getMatchWeekNumber() * AREAS + match.getMatchArea()) * 2 + (isSenior(match) ? 1 : 0);
+			if (byKey[key] == null) {
+				byKey[key] = new MatchClass(match);
+			}
+			byKey[key].matches.add(i);
+		}
+		ArrayList<MatchClass> classes = new ArrayList<MatchClass>();
+		for (MatchClass matchClass : byKey) {
+			if (matchClass != null) {
+				classes.add(matchClass);
+			}
+		}
+
+		HashMap<Type, Type> typesByDetails = new HashMap<Type, Type>();
+		ArrayList<Type> types = new ArrayList<Type>();
+		int seen = 0;
+		for (Referee ref : referees.getAll()) {
+			if ((++seen & 4095) == 0 && System.nanoTime() > deadline) {
+				return null;
+			}
+			Type type = new Type(ref);
+			Type known = typesByDetails.get(type);
+			if (known == null) {
+				typesByDetails.put(type, type);
+				types.add(type);
+				known = type;
+			}
+			known.members.add(ref);
+		}
+
+		//Nodes: the source, the sink, the classes, the types, and a node for every type in every week that it can referee a class in.
+		for (int c = 0; c < classes.size(); c++) {
+			classes.get(c).node = 2 + c;
+		}
+		for (int t = 0; t < types.size(); t++) {
+			types.get(t).node = 2 + classes.size() + t;
+		}
+		HashMap<Long, Integer> weekNodes = new HashMap<Long, Integer>();
+		int firstWeekNode = 2 + classes.size() + types.size();
+		for (MatchClass matchClass : classes) {
+			if (System.nanoTime() > deadline) {
+				return null;
+			}
+			for (Type type : types) {
+				if (type.canReferee(matchClass)) {
+					matchClass.types.add(type);
+					Long key = (long) type.node << 6 | matchClass.week;
+					if (!weekNodes.containsKey(key)) {
+						weekNodes.put(key, firstWeekNode + weekNodes.size());
+						type.weekCount++;
+					}
+				}
+			}
+		}
+		nodes = firstWeekNode + weekNodes.size();
+		head = new int[nodes];
+		Arrays.fill(head, -1);
+
+		for (MatchClass matchClass : classes) {
+			int units = 2 * matchClass.matches.size();
+			addEdge(SOURCE, matchClass.node, units, 0);
+			matchClass.firstEdge = edges;
+			for (Type type : matchClass.types) {
+				int weekNode = weekNodes.get((long) type.node << 6 | matchClass.week);
+				addEdge(matchClass.node, weekNode, Math.min(units, type.members.size()),
+						DISTANCE_COST * Math.abs(type.home - matchClass.area));
+			}
+		}
+		//Every member takes at most one match a week. The n-th round of matches costs the matches of the members before it plus n.
+		for (Map.Entry<Long, Integer> weekNode : weekNodes.entrySet()) {
+			int typeNode = (int) (weekNode.getKey() >>> 6);
+			addEdge(weekNode.getValue(), typeNode, types.get(typeNode - 2 - classes.size()).members.size(), 0);
+		}
+		for (Type type : types) {
+			for (int round = 0; round < type.weekCount; round++) {
+				addEdge(type.node, SINK, type.members.size(), type.matches + round);
+			}
+			Collections.sort(type.members, COMPARATOR);
+		}
+
+		if (!flow()) {
+			return null;
+		}
+
+		Referee[][] solution = new Referee[matches.size()][];
+		for (int first = 0, last; first < classes.size(); first = last) {
+			int week = classes.get(first).week;
+			for (last = first; last < classes.size() && classes.get(last).week == week; last++) {
+				//The flow of a type in a week is at most its number of members, so taking them in turn never gives one two matches.
+				MatchClass matchClass = classes.get(last);
+				for (int i = 0; i < matchClass.types.size(); i++) {
+					for (int unit = cap[matchClass.firstEdge + 2 * i + 1]; unit > 0; unit--) {
+						matchClass.given.add(matchClass.types.get(i).nextMember());
+					}
+				}
+			}
+			for (int c = first; c < last; c++) {
+				for (int d = c + 1; d < last && classes.get(c).given.size() % 2 == 1; d++) {
+					if (classes.get(d).given.size() % 2 == 1 && !move(classes.get(c), classes.get(d))) {
+						move(classes.get(d), classes.get(c));
+					}
+				}
+			}
+			for (int c = first; c < last; c++) {
+				pair(classes.get(c), matches, solution);
+			}
+		}
+		return solution;
+	}
+
+	/**
+	 * Moves a referee between two classes of the same week, if one of them can referee the other.
+	 * @return	true if a referee was moved.
+	 */
+	private static boolean move(MatchClass from, MatchClass target) {
+		for (int i = from.given.size() - 1; i >= 0; i--) {
+			if (target.accepts(from.given.get(i))) {
+				target.given.add(from.given.remove(i));
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Pairs the referees of a class, the nearest first, and gives every pair to a match of the class. An odd one out is not used.
+	 */
+	private static void pair(MatchClass matchClass, List<Match> matches, Referee[][] solution) {
+		final int area = matchClass.area;
+		Collections.sort(matchClass.given, new Comparator<Referee>() {
+			@Override
+			public int compare(Referee ref1, Referee ref2) {
+				int result = Integer.compare(Math.abs(ref1.getLocality() - area), Math.abs(ref2.getLocality() - area));
+				return result != 0 ? result : COMPARATOR.compare(ref1, ref2);
+			}
+		});
+		for (int j = 0; 2 * j + 1 < matchClass.given.size(); j++) {
+			solution[matchClass.matches.get(j)] = new Referee[] {matchClass.given.get(2 * j), matchClass.given.get(2 * j + 1)};
+		}
+	}
+
+	/**
+	 * Finds the min-cost max-flow from the source to the sink with the primal-dual method.
+	 * @return	false if the deadline passed.
+	 */
+	private boolean flow() {
+		long[] potential = new long[nodes];
+		long[] dist = new long[nodes];
+		int[] level = new int[nodes];
+		int[] current = new int[nodes];
+		int[] queue = new int[nodes];
+		int[] pathEdges = new int[nodes];
+		HeapQueue heap = new HeapQueue(nodes);
+
+		while (true) {
+			if (System.nanoTime() > deadline) {
+				return false;
+			}
+			//Shortest distances from the source with the reduced costs, which are never negative.
+			Arrays.fill(dist, INFINITY);
+			dist[SOURCE] = 0;
+			heap.clear();
+			heap.push(0, SOURCE);
+			int pops = 0;
+			while (!heap.isEmpty()) {
+				long d = heap.peekKey();
+				int u = heap.pop();
+				if (d > dist[u]) {
+					continue;
+				}
+				if ((++pops & 1023) == 0 && System.nanoTime() > deadline) {
+					return false;
+				}
+				for (int e = head[u]; e >= 0; e = next[e]) {
+					if (cap[e] > 0) {
+						int v = to[e];
+						long nd = d + cost[e] + potential[u] - potential[v];
+						if (nd < dist[v]) {
+							dist[v] = nd;
+							heap.push(nd, v);
+						}
+					}
+				}
+			}
+			if (dist[SINK] == INFINITY) {
+				return true;
+			}
+			for (int v = 0; v < nodes; v++) {
+				potential[v] += Math.min(dist[v], dist[SINK]);
+			}
+
+			//Blocking flows on the edges whose reduced cost is now 0, until the sink cannot be reached through them.
+			while (true) {
+				Arrays.fill(level, -1);
+				level[SOURCE] = 0;
+				int qHead = 0, qTail = 0;
+				queue[qTail++] = SOURCE;
+				while (qHead < qTail) {
+					int u = queue[qHead++];
+					for (int e = head[u]; e >= 0; e = next[e]) {
+						int v = to[e];
+						if (cap[e] > 0 && level[v] < 0 && cost[e] + potential[u] - potential[v] == 0) {
+							level[v] = level[u] + 1;
+							queue[qTail++] = v;
+						}
+					}
+				}
+				if (level[SINK] < 0) {
+					break;
+				}
+				System.arraycopy(head, 0, current, 0, nodes);
+				while (augment(level, current, pathEdges, potential)) {
+					//Every augmentation saturates an edge of a shortest path.
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sends as much as a path of the level graph can take from the source to the sink, without recursion.
+	 * @return	false if the sink cannot be reached any more.
+	 */
+	private boolean augment(int[] level, int[] current, int[] pathEdges, long[] potential) {
+		int depth = 0;
+		int u = SOURCE;
+		while (u != SINK) {
+			int e = current[u];
+			while (e >= 0) {
+				int v = to[e];
+				if (cap[e] > 0 && level[v] == level[u] + 1 && cost[e] + potential[u] - potential[v] == 0) {
+					break;
+				}
+				e = next[e];
+			}
+			current[u] = e;
+			if (e < 0) {
+				//Dead end. It is never visited again in this level graph.
+				if (depth == 0) {
+					return false;
+				}
+				level[u] = -1;
+				int back = pathEdges[--depth];
+				u = to[back ^ 1];
+				current[u] = next[current[u]];
+				continue;
+			}
+			pathEdges[depth++] = e;
+			u = to[e];
+		}
+		int amount = Integer.MAX_VALUE;
+		for (int i = 0; i < depth; i++) {
+			amount = Math.min(amount, cap[pathEdges[i]]);
+		}
+		for (int i = 0; i < depth; i++) {
+			cap[pathEdges[i]] -= amount;
+			cap[pathEdges[i] ^ 1] += amount;
+		}
+		return true;
+	}
+
+	private static boolean isSenior(Match match) {
+		return match.getMatchLevel().equals("Senior");
+	}
+
+	private void addEdge(int from, int target, int capacity, int edgeCost) {
+		if (edges + 2 > to.length) {
+			int size = to.length * 2;
+			to = Arrays.copyOf(to, size);
+			next = Arrays.copyOf(next, size);
+			cap = Arrays.copyOf(cap, size);
+			cost = Arrays.copyOf(cost, size);
+		}
+		to[edges] = target;
+		cap[edges] = capacity;
+		cost[edges] = edgeCost;
+		next[edges] = head[from];
+		head[from] = edges++;
+		to[edges] = from;
+		cap[edges] = 0;
+		cost[edges] = -edgeCost;
+		next[edges] = head[target];
+		head[target] = edges++;
+	}
+
+	/**
+	 * Binary min-heap of nodes keyed by their distance, for Dijkstra. A node can be in it more than once.
+	 */
+	private static final class HeapQueue {
+		private long[] keys;
+		private int[] values;
+		private int size;
+
+		HeapQueue(int capacity) {
+			keys = new long[Math.max(16, capacity)];
+			values = new int[keys.length];
+		}
+
+		void clear() {
+			size = 0;
+		}
+
+		boolean isEmpty() {
+			return size == 0;
+		}
+
+		long peekKey() {
+			return keys[0];
+		}
+
+		void push(long key, int value) {
+			if (size == keys.length) {
+				keys = Arrays.copyOf(keys, size * 2);
+				values = Arrays.copyOf(values, size * 2);
+			}
+			int i = size++;
+			while (i > 0) {
+				int parent = (i - 1) / 2;
+				if (keys[parent] <= key) {
+					break;
+				}
+				keys[i] = keys[parent];
+				values[i] = values[parent];
+				i = parent;
+			}
+			keys[i] = key;
+			values[i] = value;
+		}
+
+		int pop() {
+			int top = values[0];
+			long key = keys[--size];
+			int value = values[size];
+			int i = 0;
+			int half = size / 2;
+			while (i < half) {
+				int child = 2 * i + 1;
+				if (child + 1 < size && keys[child + 1] < keys[child]) {
+					child++;
+				}
+				if (keys[child] >= key) {
+					break;
+				}
+				keys[i] = keys[child];
+				values[i] = values[child];
+				i = child;
+			}
+			keys[i] = key;
+			values[i] = value;
+			return top;
+		}
+	}
+}
@@ -0,0 +1,283 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+
+/**
+ * Reads and writes the binary snapshot of a match program, so that it can be restored without parsing the text files.
+ * All the numbers are big-endian and every String is an int with the number of its UTF-8 bytes followed by the bytes.
+ * <pre>
+ * int    MAGIC
+ * int    VERSION
+ * long   change count of the match program
+ * int    number of referees
+ *        for every referee, in order of insertion:
+ *        String ID, first name, last name, qualification
+ *        byte   locality, 0 = North, 1 = Central, 2 = South
+ *        byte   willingness, bit 0 = North, bit 1 = Central, bit 2 = South
+ *        int    matches allocated
+ *        int    actual matches
+ *        long   booked weeks, bit (week - 1) for every week
+ * int    number of matches
+ *        for every match, in order of week and fixture:
+ *        byte   week
+ *        byte   area
+ *        byte   level, 0 = Junior, 1 = Senior
+ *        int    index of the first referee
+ *        int    index of the second referee
+ * int    MAGIC
+ * </pre>
+ * The file is read into the heap in one go and decoded from there. It is not memory mapped, because Windows cannot replace
+ * a mapped file, and the next snapshot replaces it.
+ * @author Team C
+ */
+final class Snapshot {
+
+	/**First and last int of a snapshot, "JBSN".*/
+	private static final int MAGIC = 0x4A42534E;
+	/**Version of the format. Snapshots of other versions are refused.*/
+	private static final int VERSION = 2;
+	/**Number of the areas and weeks.*/
+	private static final int AREAS = 3, WEEKS = 52;
+	/**Match levels in order of their codes.*/
+	private static final String[] LEVELS = {"Junior", "Senior"};
+
+	private Snapshot() {
+	}
+
+	/**
+	 * A copy of the referees and the matches of a match program. It is taken while the match program cannot change, and written
+	 * after the lock has been released, so allocations and updates only wait for the copy and not for the file.
+	 */
+	static final class Image {
+		private final long changeCount;
+		private final String[] refIDs, firstNames, lastNames, qualifications;
+		private final byte[] localities, willing;
+		private final int[] matchesAllocated, actualMatches;
+		private final long[] weeksBooked;
+		/**Week, area and level code of every match, and the indexes of its referees.*/
+		private final byte[] weeks, areas, levels;
+		private final int[] firstReferees, secondReferees;
+
+		/**
+		 * Copies the referees and the matches. The caller must make sure that they do not change while they are copied.
+		 * @param refs	All the referees of the match program, in order of insertion.
+		 * @param matches	The calendar of the matches. They are copied in its order, so they are restored with the same fixture numbers.
+		 * @param changeCount	The change count of the match program.
+		 * @throws IOException	If a referee of a match is not in the roster.
+		 */
+		Image(Collection<Referee> refs, MatchCalendar matches, long changeCount) throws IOException {
+			this.changeCount = changeCount;
+			int refCount = refs.size();
+			refIDs = new String[refCount];
+			firstNames = new String[refCount];
+			lastNames = new String[refCount];
+			qualifications = new String[refCount];
+			localities = new byte[refCount];
+			willing = new byte[refCount];
+			matchesAllocated = new int[refCount];
+			actualMatches = new int[refCount];
+			weeksBooked = new long[refCount];
+			IdentityHashMap<Referee, Integer> indexes = new IdentityHashMap<Referee, Integer>(refCount);
+			int i = 0;
+			for (Referee ref : refs) {
+				indexes.put(ref, i);
+				refIDs[i] = ref.getRefID();
+				firstNames[i] = ref.getFirstName();
+				lastNames[i] = ref.getLastName();
+				qualifications[i] = ref.getQualification();
+				localities[i] = (byte) ref.getLocality();
+				for (int area = 0; area < AREAS; area++) {
+					if (ref.isWillingToGo(area)) {
+						willing[i] |= 1 << area;
+					}
+				}
+				matchesAllocated[i] = ref.getMatchesAllocated();
+				actualMatches[i] = ref.getActualMatches();
+				weeksBooked[i] = ref.getWeeksBooked();
+				i++;
+			}
+
+			int matchCount = matches.size();
+			weeks = new byte[matchCount];
+			areas = new byte[matchCount];
+			levels = new byte[matchCount];
+			firstReferees = new int[matchCount];
+			secondReferees = new int[matchCount];
+			int m = 0;
+			for (Match match : matches) {
+				Integer first = indexes.get(match.getFirstReferee());
+				Integer second = indexes.get(match.getSecondReferee());
+				//Allocated referees cannot be deleted, so this only happens if the match program was changed while it was copied.
+				if (first == null || second == null) {
+					throw new IOException("A referee of fixture " + match.getFixtureNumber() + " of week " + match.getMatchWeekNumber() + " is not in the roster");
+				}
+				weeks[m] = (byte) match.getMatchWeekNumber();
+				areas[m] = (byte) match.getMatchArea();
+				levels[m] = (byte) (match.getMatchLevel().equals("Senior") ? 1 : 0);
+				firstReferees[m] = first;
+				secondReferees[m] = second;
+				m++;
+			}
+		}
+
+		/**
+		 * Returns the change count of the match program when the copy was taken.
+		 * @return
+		 */
+		long getChangeCount() {
+			return changeCount;
+		}
+	}
+
+	/**
+	 * Writes a snapshot. Needs no lock, because the image is a copy.
+	 * @param image	The copy of the match program.
+	 * @param file	The snapshot file.
+	 * @throws IOException	If the file could not be written. The previous file is left intact.
+	 */
+	static void write(Image image, File file) throws IOException {
+		RecordWriter output = new RecordWriter(file);
+		try {
+			output.putInt(MAGIC).putInt(VERSION).putLong(image.changeCount);
+
+			output.putInt(image.refIDs.length);
+			for (int i = 0; i < image.refIDs.length; i++) {
+				output.putString(image.refIDs[i]);
+				output.putString(image.firstNames[i]);
+				output.putString(image.lastNames[i]);
+				output.putString(image.qualifications[i]);
+				output.putByte(image.localities[i]);
+				output.putByte(image.willing[i]);
+				output.putInt(image.matchesAllocated[i]);
+				output.putInt(image.actualMatches[i]);
+				output.putLong(image.weeksBooked[i]);
+			}
+
+			output.putInt(image.weeks.length);
+			for (int m = 0; m < image.weeks.length; m++) {
+				output.putByte(image.weeks[m]);
+				output.putByte(image.areas[m]);
+				output.putByte(image.levels[m]);
+				output.putInt(image.firstReferees[m]);
+				output.putInt(image.secondReferees[m]);
+			}
+
+			output.putInt(MAGIC);
+			output.commit();
+		} finally {
+			output.abort();
+		}
+	}
+
+	/**
+	 * Reads a snapshot into an empty match program.
+	 * @param file	The snapshot file.
+	 * @param matchProgram	An empty match program.
+	 * @throws IOException	If the file could not be read or is not a valid snapshot.
+	 */
+	static void read(File file, MatchProgram matchProgram) throws IOException {
+		if (file.length() > Integer.MAX_VALUE - 8) {
+			throw new IOException(file + " is too large to be a snapshot");
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+		try {
+			read(buffer, matchProgram);
+		} catch (BufferUnderflowException e) {
+			throw new IOException(file + " is truncated");
+		}
+	}
+
+	/**
+	 * Decodes a snapshot from a buffer into an empty match program.
+	 */
+	private static void read(ByteBuffer buffer, MatchProgram matchProgram) throws IOException {
+		if (buffer.getInt() != MAGIC) {
+			throw new IOException("Not a snapshot file");
+		}
+		int version = buffer.getInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported snapshot version " + version);
+		}
+		matchProgram.restoreChangeCount(buffer.getLong());
+
+		int refCount = buffer.getInt();
+		//Every referee takes at least 34 bytes, which stops a corrupted count from allocating a huge list.
+		if (refCount < 0 || refCount > buffer.remaining() / 34) {
+			throw new IOException("Invalid number of referees " + refCount);
+		}
+		ArrayList<Referee> refs = new ArrayList<Referee>(refCount);
+		RosterStore store = new RosterStore();
+		byte[] scratch = new byte[64];
+		for (int i = 0; i < refCount; i++) {
+			String refID = readString(buffer, scratch);
+			String firstName = readString(buffer, scratch);
+			String lastName = readString(buffer, scratch);
+			String qualification = readString(buffer, scratch);
+			if (qualification.length() < 4) {
+				throw new IOException("Invalid qualification of referee " + refID);
+			}
+			int locality = buffer.get();
+			int willing = buffer.get();
+			if (locality < 0 || locality >= AREAS) {
+				throw new IOException("Invalid locality of referee " + refID);
+			}
+			boolean[] willingToGo = new boolean[AREAS];
+			for (int area = 0; area < AREAS; area++) {
+				willingToGo[area] = (willing & (1 << area)) != 0;
+			}
+			Referee ref = new Referee(store, refID, firstName, lastName, qualification, buffer.getInt(), locality, willingToGo);
+			ref.restore(buffer.getInt(), buffer.getLong());
+			refs.add(ref);
+		}
+		ArrayList<Integer> duplicates = matchProgram.insertInitialRefs(refs);
+		if (!duplicates.isEmpty()) {
+			throw new IOException("Duplicate referee ID " + refs.get(duplicates.get(0)).getRefID());
+		}
+
+		int matchCount = buffer.getInt();
+		//Every match takes 11 bytes. A week can hold any number of matches, so only the size of the file limits their count.
+		if (matchCount < 0 || matchCount > buffer.remaining() / 11) {
+			throw new IOException("Invalid number of matches " + matchCount);
+		}
+		for (int i = 0; i < matchCount; i++) {
+			int week = buffer.get();
+			int area = buffer.get();
+			int level = buffer.get();
+			int first = buffer.getInt();
+			int second = buffer.getInt();
+			if (week < 1 || week > WEEKS || area < 0 || area >= AREAS || level < 0 || level >= LEVELS.length
+					|| first < 0 || first >= refCount || second < 0 || second >= refCount) {
+				throw new IOException("Invalid match " + (i + 1));
+			}
+			if (first == second) {
+				throw new IOException("Invalid match " + (i + 1));
+			}
+			matchProgram.restoreMatch(new Match(week, area, LEVELS[level]), refs.get(first), refs.get(second));
+		}
+
+		if (buffer.getInt() != MAGIC) {
+			throw new IOException("Snapshot does not end where expected");
+		}
+	}
+
+	/**
+	 * Reads a String written by RecordWriter.putString.
+	 */
+	private static String readString(ByteBuffer buffer, byte[] scratch) throws IOException {
+		int length = buffer.getInt();
+		if (length < 0 || length > buffer.remaining()) {
+			throw new IOException("Invalid String length " + length);
+		}
+		byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+		buffer.get(bytes, 0, length);
+		return new String(bytes, 0, length, StandardCharsets.UTF_8);
+	}
+}
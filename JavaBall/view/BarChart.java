@@ -3,16 +3,35 @@ package view;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
 import javax.swing.JPanel;
 
 /**
- * Class that draws the Bar Chart. 
+ * Class that draws the Bar Chart.
+ * In the referees mode there is a bar for every referee, in the order of their IDs. When there are more referees in view than
+ * bars fit in the plot, every bar stands for a range of referees and shows the most matches of any of them. The maxima are read
+ * from a pyramid that is built once, so drawing a bar costs O(log n) whatever the number of referees that it stands for.
+ * In the histogram mode the referees are binned by their number of matches, and every bar shows how many referees fall in its bin.
+ * Either way a repaint costs as much as the bars that fit in the width of the plot, not as much as the roster.
+ * The mouse wheel zooms into a sub-range around the pointer, dragging scrolls it and a double click shows the whole range again.
+ * The chart is rendered into an image that every repaint reuses until the size, the mode, the range in view or the data change.
  * @author Team C
  */
 public final class BarChart extends JPanel{
 
-	/**Width of every bar.*/
+	private static final long serialVersionUID = 1L;
+
+	/**Width of every bar when there is room for it, and the narrowest bar that gets a label.*/
 	private static final int BAR_WIDTH = 40;
+	/**Narrowest bar, with its gap, of the referees mode and of the histogram mode. Narrower bars would be aggregated.*/
+	private static final int MIN_SLOT_WIDTH = 4, MIN_BIN_WIDTH = 12;
+	/**Rosters with more referees than this are shown as a histogram at first.*/
+	private static final int MAX_INITIAL_BARS = 100;
+	/**Factor of the range in view of every step of the mouse wheel.*/
+	private static final double ZOOM_STEP = 1.5;
 	/**Integer that is used to calculate the size of the axis area.*/
 	private static final int AXIS_TOTAL_PORTION = 6;
 	/**Color of every bar.*/
@@ -32,33 +51,165 @@ public final class BarChart extends JPanel{
 	private int[] matchesAll;
 	//Array of Strings containing the IDs of every referee.
 	private String[] refIDs;
+	/**Level k holds the most matches of every block of 2^k referees. Level 0 is matchesAll.*/
+	private int[][] maxPyramid;
+	/**Fewest and most matches of any referee.*/
+	private int minMatches, maxMatches;
+	/**Number of referees with fewer matches than minMatches + i, for i from 0 to maxMatches - minMatches + 1.*/
+	private int[] below;
+
+	/**If the referees are binned by their matches.*/
+	private boolean histogram;
+	/**The range in view, in referees or in matches depending on the mode, from viewFrom up to viewTo.*/
+	private double viewFrom, viewTo;
+	/**The rendered chart, or null if it has to be rendered again.*/
+	private BufferedImage cache;
 
 	//Total height and width of the component
 	private int totalHeight, totalWidth;
-	private double minValue = 0, maxValue = 0;
+	private double maxValue;
 	//Height and width of the axis plot.
 	private double  axisHeight, axisWidth;
 
 	//Positions (x,y) of the topLeft, bottomLeft and bottomRight points of the axis plot.
 	private int topLeftX, topLeftY, bottomLeftX, bottomLeftY, bottomRightX, bottomRightY;
-	//Gap between bars.
-	private double barGap;
 
 	private Graphics graphic;
-	//Number of referees.
-	private int totalRefs;
 
 	public BarChart(int[] matchesAll, String[] refIDs) {
+		setData(matchesAll, refIDs);
+		histogram = matchesAll.length > MAX_INITIAL_BARS;
+		resetView();
+
+		MouseAdapter mouse = new MouseAdapter() {
+			/**X of the pointer at the last drag event.*/
+			private int dragX;
+
+			@Override
+			public void mousePressed(MouseEvent e) {
+				dragX = e.getX();
+			}
+
+			@Override
+			public void mouseDragged(MouseEvent e) {
+				scroll(dragX - e.getX());
+				dragX = e.getX();
+			}
+
+			@Override
+			public void mouseClicked(MouseEvent e) {
+				if (e.getClickCount() == 2) {
+					resetView();
+					changed();
+				}
+			}
+
+			@Override
+			public void mouseWheelMoved(MouseWheelEvent e) {
+				zoom(e.getX(), e.getWheelRotation() > 0 ? ZOOM_STEP : 1 / ZOOM_STEP);
+			}
+		};
+		addMouseListener(mouse);
+		addMouseMotionListener(mouse);
+		addMouseWheelListener(mouse);
+	}
+
+	/**
+	 * Replaces the data of the chart and builds the maxima and the counts that the chart is drawn from. Costs O(n) once, so that
+	 * repaints do not depend on the number of referees.
+	 * @param matchesAll	The number of matches of every referee.
+	 * @param refIDs	The IDs of the referees, in the same order.
+	 */
+	public void setData(int[] matchesAll, String[] refIDs) {
 		this.matchesAll = matchesAll;
-		this.refIDs = refIDs;	
+		this.refIDs = refIDs;
+
+		//Every level of the pyramid halves the one below it.
+		int levels = 1;
+		for (int length = matchesAll.length; length > 1; length = (length + 1) / 2) {
+			levels++;
+		}
+		maxPyramid = new int[levels][];
+		maxPyramid[0] = matchesAll;
+		for (int level = 1; level < levels; level++) {
+			int[] lower = maxPyramid[level - 1];
+			int[] upper = new int[(lower.length + 1) / 2];
+			for (int i = 0; i < upper.length; i++) {
+				upper[i] = 2 * i + 1 < lower.length ? Math.max(lower[2 * i], lower[2 * i + 1]) : lower[2 * i];
+			}
+			maxPyramid[level] = upper;
+		}
+
+		minMatches = Integer.MAX_VALUE;
+		maxMatches = 0;
+		for (int matches : matchesAll) {
+			minMatches = Math.min(minMatches, matches);
+			maxMatches = Math.max(maxMatches, matches);
+		}
+		if (matchesAll.length == 0) {
+			minMatches = 0;
+		}
+		below = new int[maxMatches - minMatches + 2];
+		for (int matches : matchesAll) {
+			below[matches - minMatches + 1]++;
+		}
+		for (int i = 1; i < below.length; i++) {
+			below[i] += below[i - 1];
+		}
+
+		//The domain of the histogram moves with the fewest matches, so the view may fall off either end of it.
+		if (viewFrom < domainStart() || viewTo > domainEnd()) {
+			resetView();
+		}
+		changed();
+	}
+
+	/**
+	 * Switches between a bar for every referee and a histogram of their matches, and shows the whole range.
+	 * @param histogram	If true, the referees are binned by their matches.
+	 */
+	public void setHistogram(boolean histogram) {
+		if (this.histogram != histogram) {
+			this.histogram = histogram;
+			resetView();
+			changed();
+		}
+	}
+
+	/**
+	 * Returns if the referees are binned by their matches.
+	 * @return
+	 */
+	public boolean isHistogram() {
+		return histogram;
 	}
 
 	@Override
 	protected void paintComponent(Graphics graphic) {
 		super.paintComponent(graphic);
+		if (cache == null || cache.getWidth() != getWidth() || cache.getHeight() != getHeight()) {
+			if (getWidth() <= 0 || getHeight() <= 0) {
+				return;
+			}
+			cache = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_RGB);
+			Graphics image = cache.getGraphics();
+			try {
+				render(image);
+			} finally {
+				image.dispose();
+			}
+		}
+		graphic.drawImage(cache, 0, 0, null);
+	}
+
+	/**
+	 * Renders the whole chart.
+	 */
+	private void render(Graphics graphic) {
 		this.graphic = graphic;
+		graphic.setColor(getBackground());
+		graphic.fillRect(0, 0, getWidth(), getHeight());
 
-		totalRefs = refIDs.length;
 		totalWidth = this.getSize().width;
 		totalHeight = this.getSize().height;
 
@@ -75,25 +226,19 @@ public final class BarChart extends JPanel{
 		axisWidth = bottomRightX - topLeftX;
 		axisHeight = bottomLeftY - topLeftY;
 
-		//Formula to dynamically calculate the gap between bars based on the number of referees.
-		barGap = ( axisWidth - ( totalRefs * BAR_WIDTH )) / totalRefs;		
-
-		//Finds the minimum and maximum values.
-		for (int i = 0; i < matchesAll.length; i++) {
-			if (minValue > matchesAll[i])
-				minValue = matchesAll[i];
-			if (maxValue < matchesAll[i])
-				maxValue = matchesAll[i];
+		if (histogram) {
+			paintHistogram();
+		} else {
+			paintBars();
 		}
-
-		paintAxis();
-		paintBars();
 	}
 
 	/**
-	 * Paints the two Axis. On the Y-Axis adds values from maxValue to minValue divided in 4 quarters.
+	 * Paints the two Axis. On the Y-Axis adds values from maxValue to 0 divided in 4 quarters.
+	 * @param xTitle	Title of the X-Axis.
+	 * @param yTitle	Title of the Y-Axis.
 	 */
-	private void paintAxis(){		
+	private void paintAxis(String xTitle, String yTitle){
 		//Draws a white background for the axis plot.
 		graphic.setColor(Color.WHITE);
 		graphic.fillRect(topLeftX, topLeftY, (int) axisWidth, (int) axisHeight);
@@ -102,53 +247,180 @@ public final class BarChart extends JPanel{
 
 		//Draws X-Axis and its title.
 		graphic.drawLine(bottomLeftX, bottomLeftY, bottomRightX, bottomRightY);
-		graphic.drawString("Referees IDs", (totalWidth/2) - 50, totalHeight - 40);
+		graphic.drawString(xTitle, (totalWidth/2) - 50, totalHeight - 40);
 		//Draws Y-Axis and its title.
 		graphic.drawLine(topLeftX, topLeftY, bottomLeftX, bottomLeftY);
-		graphic.drawString("Matches", 20, totalHeight/2);
+		graphic.drawString(yTitle, topLeftX - VALUES_X__OFFSET, topLeftY - 3 * VALUES_Y_OFFSET);
 
-		//Draws the Y-Axis values from maxValue to minValue divided in 4 quarters.
-		graphic.drawString("" + maxValue, topLeftX - VALUES_X__OFFSET, topLeftY + VALUES_Y_OFFSET);
-		graphic.drawLine(topLeftX - 3, topLeftY, topLeftX + 3, topLeftY);
+		//Draws the Y-Axis values from maxValue to 0 divided in 4 quarters, right-aligned to the axis so that large counts fit.
+		for (int quarter = 0; quarter <= 4; quarter++) {
+			int y = topLeftY + (int) (quarter * axisHeight / 4);
+			double value = (4 - quarter) * maxValue / 4;
+			String label = value == Math.rint(value) ? "" + (long) value : "" + value;
+			graphic.drawString(label, topLeftX - 8 - graphic.getFontMetrics().stringWidth(label), y + VALUES_Y_OFFSET / 2);
+			graphic.drawLine(topLeftX - 3, y, topLeftX + 3, y);
+		}
+	}
+
+	/**
+	 * Paints a bar for every referee in view, or for every range of referees if they do not fit:
+	 *  	i)draws a String of the referee's ID under the X-Axis if there is room for it,
+	 *  	ii)draws a bar with height equal to the most matches allocated to the referees of the bar and
+	 *  	iii)draws a String on top of the bar that displays that number, if there is room for it.
+	 */
+	private void paintBars(){
+		if (matchesAll.length == 0) {
+			maxValue = 1;
+			paintAxis("Referees IDs", "Matches");
+			return;
+		}
+		int first = (int) viewFrom, last = (int) Math.ceil(viewTo);
+		int slots = Math.max(1, Math.min(last - first, (int) (axisWidth - Y_AXIS_OFFSET) / MIN_SLOT_WIDTH));
+		double slotWidth = (axisWidth - Y_AXIS_OFFSET) / slots;
 
-		graphic.drawString("" + 3 * maxValue/4, topLeftX - VALUES_X__OFFSET, topLeftY + VALUES_Y_OFFSET + ( (int) axisHeight/4 ));
-		graphic.drawLine(topLeftX - 3, topLeftY + ( (int) axisHeight/4 ), topLeftX + 3, topLeftY + ( (int) axisHeight/4 ));
+		maxValue = Math.max(1, maxMatches(first, last));
+		paintAxis(last - first > slots ? "Referees IDs " + refIDs[first] + " to " + refIDs[last - 1] : "Referees IDs", "Matches");
 
-		graphic.drawString("" + maxValue/2, topLeftX - VALUES_X__OFFSET, topLeftY + VALUES_Y_OFFSET + ( (int) axisHeight/2 ));
-		graphic.drawLine(topLeftX - 3, topLeftY + ( (int) axisHeight/2 ), topLeftX + 3, topLeftY + ( (int) axisHeight/2 ));
+		for(int slot = 0; slot < slots; slot++){
+			//The referees of the bar.
+			int from = first + (int) ((long) slot * (last - first) / slots);
+			int to = first + (int) ((long) (slot + 1) * (last - first) / slots);
+			int matches = maxMatches(from, to);
+			boolean labelled = slotWidth >= BAR_WIDTH && to - from == 1;
+			int width = labelled ? (int) Math.min(BAR_WIDTH, slotWidth - 5) : Math.max(1, (int) slotWidth - 1);
 
-		graphic.drawString("" + maxValue/4, topLeftX - VALUES_X__OFFSET, topLeftY + VALUES_Y_OFFSET + ( (int) (3 * axisHeight/4 )));
-		graphic.drawLine(topLeftX - 3,  topLeftY + ( (int) (3 * axisHeight/4 )), topLeftX + 3,  topLeftY + ( (int) (3 * axisHeight/4 )));
-		graphic.drawString("" + minValue, topLeftX - VALUES_X__OFFSET, topLeftY + VALUES_Y_OFFSET + ( (int) axisHeight ));				
+			//topEdge is the top edge of every bar.
+			double topEdge = (bottomLeftY - (axisHeight * ( matches / maxValue )));
+			//Left edge of every bar.
+			double leftEdge = bottomLeftX + slot * slotWidth + Y_AXIS_OFFSET;
+
+			//Draws bars.
+			graphic.setColor(BAR_COLOR);
+			graphic.fillRect((int) leftEdge, (int) topEdge, width,  (int) (bottomLeftY - topEdge));
+
+			if (labelled) {
+				//Draws IDs under X-Axis and the number of matches on top of each bar.
+				graphic.setColor(TEXT_COLOR);
+				graphic.drawString(refIDs[from], (int) leftEdge + 5, bottomLeftY + Y_AXIS_OFFSET);
+				graphic.drawString("" + matches, (int) leftEdge + width/3, (int) topEdge - Y_AXIS_OFFSET);
+			}
+		}
 	}
 
 	/**
-	 * Paints the bars based on the following algorithm:
-	 * 	  Loops all the referees. For every one of them:
-	 *  	i)draws a String of his ID under the X-Axis, 
-	 *  	ii)draws a bar with height equal to the number of matches allocated to him  and
-	 *  	iii)draws a String on top of the bar that displays the number of matches allocated to him.
+	 * Paints a bar for every bin of numbers of matches in view, with height equal to the number of referees in the bin.
+	 * Labels the bins under the X-Axis where there is room for them.
 	 */
-	private void paintBars(){
+	private void paintHistogram(){
+		int first = (int) viewFrom, last = (int) Math.ceil(viewTo);
+		int bins = Math.max(1, Math.min(last - first, (int) (axisWidth - Y_AXIS_OFFSET) / MIN_BIN_WIDTH));
+		double binWidth = (axisWidth - Y_AXIS_OFFSET) / bins;
 
-		for(int i = 0; i < totalRefs; i++){			
-			//topEdge is the top edge of every bar. 
-			double topEdge = (bottomLeftY - (axisHeight * ( matchesAll[i] / maxValue )));
-			//Left edge of every bar.
-			double leftEdge = bottomLeftX + (i * (barGap + BAR_WIDTH )) + Y_AXIS_OFFSET;
+		int[] counts = new int[bins], lows = new int[bins + 1];
+		maxValue = 1;
+		for(int bin = 0; bin <= bins; bin++){
+			lows[bin] = first + (int) ((long) bin * (last - first) / bins);
+		}
+		for(int bin = 0; bin < bins; bin++){
+			counts[bin] = below[lows[bin + 1] - minMatches] - below[lows[bin] - minMatches];
+			maxValue = Math.max(maxValue, counts[bin]);
+		}
+		paintAxis("Matches Allocated", "Referees");
 
-			//Draws IDs under X-Axis.
-			graphic.setColor(TEXT_COLOR);
-			graphic.drawString(refIDs[i], (int) leftEdge + 5, bottomLeftY + Y_AXIS_OFFSET);
+		//Labels every bin, or every few bins if they are too narrow for a label.
+		int labelEvery = (int) Math.ceil(BAR_WIDTH * 1.5 / binWidth);
+		for(int bin = 0; bin < bins; bin++){
+			double topEdge = (bottomLeftY - (axisHeight * ( counts[bin] / maxValue )));
+			double leftEdge = bottomLeftX + bin * binWidth + Y_AXIS_OFFSET;
 
-			//Draws bars.
 			graphic.setColor(BAR_COLOR);
-			graphic.drawRect((int) leftEdge, (int) topEdge, BAR_WIDTH,  (int) (bottomLeftY - topEdge));	
-			graphic.fillRect((int) leftEdge, (int) topEdge, BAR_WIDTH,  (int) (bottomLeftY - topEdge));
+			graphic.fillRect((int) leftEdge, (int) topEdge, Math.max(1, (int) binWidth - 2), (int) (bottomLeftY - topEdge));
 
-			//Draws number of matches on top of each bar.
-			graphic.setColor(TEXT_COLOR);
-			graphic.drawString("" + matchesAll[i] , (int) leftEdge + BAR_WIDTH/3, (int) topEdge - Y_AXIS_OFFSET);
+			if (bin % labelEvery == 0) {
+				graphic.setColor(TEXT_COLOR);
+				String label = lows[bin + 1] - lows[bin] == 1 ? "" + lows[bin] : lows[bin] + "-" + (lows[bin + 1] - 1);
+				graphic.drawString(label, (int) leftEdge, bottomLeftY + Y_AXIS_OFFSET);
+			}
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Returns the most matches of the referees from index from up to index to, or 0 if there are none.
+	 * Climbs the pyramid from both ends of the range, so it costs O(log n).
+	 */
+	private int maxMatches(int from, int to) {
+		int max = 0;
+		for (int level = 0; from < to; level++) {
+			if ((from & 1) != 0) {
+				max = Math.max(max, maxPyramid[level][from++]);
+			}
+			if ((to & 1) != 0) {
+				max = Math.max(max, maxPyramid[level][--to]);
+			}
+			from >>= 1;
+			to >>= 1;
+		}
+		return max;
+	}
+
+	/**
+	 * Returns the start of the range of the mode: the first referee, or the fewest matches.
+	 */
+	private double domainStart() {
+		return histogram ? minMatches : 0;
+	}
+
+	/**
+	 * Returns the end of the range of the mode: the number of referees, or one more than the most matches.
+	 */
+	private double domainEnd() {
+		return histogram ? maxMatches + 1 : Math.max(1, matchesAll.length);
+	}
+
+	private void resetView() {
+		viewFrom = domainStart();
+		viewTo = domainEnd();
+	}
+
+	/**
+	 * Zooms the range in view around a point of the plot.
+	 * @param x	X of the point that stays in place.
+	 * @param factor	Factor of the new range. Less than 1 zooms in.
+	 */
+	private void zoom(int x, double factor) {
+		double span = viewTo - viewFrom;
+		double newSpan = Math.max(1, Math.min(domainEnd() - domainStart(), span * factor));
+		double fraction = Math.max(0, Math.min(1, (x - bottomLeftX - Y_AXIS_OFFSET) / Math.max(1, axisWidth - Y_AXIS_OFFSET)));
+		double point = viewFrom + fraction * span;
+		moveView(point - fraction * newSpan, newSpan);
+	}
+
+	/**
+	 * Scrolls the range in view.
+	 * @param pixels	Pixels to scroll by. Positive values scroll to the right.
+	 */
+	private void scroll(int pixels) {
+		double span = viewTo - viewFrom;
+		moveView(viewFrom + pixels * span / Math.max(1, axisWidth - Y_AXIS_OFFSET), span);
+	}
+
+	/**
+	 * Shows a range, kept inside the range of the mode.
+	 */
+	private void moveView(double from, double span) {
+		from = Math.max(domainStart(), Math.min(domainEnd() - span, from));
+		if (from != viewFrom || from + span != viewTo) {
+			viewFrom = from;
+			viewTo = from + span;
+			changed();
+		}
+	}
+
+	/**
+	 * Drops the rendered chart and repaints it.
+	 */
+	private void changed() {
+		cache = null;
+		repaint();
+	}
+}
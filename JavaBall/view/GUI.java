@@ -19,9 +19,11 @@ public final class GUI extends JFrame {
 	/**Width and Height of the mainGUI*/
 	private static final int WIDTH = 1100, HEIGHT = 620;
 
-	public JButton exitButton, barChartButton, allocateButton;
+	public JButton exitButton, barChartButton, allocateButton, cancelJobButton;
+	/**Shows the progress of the job that is running in the background.*/
+	private JProgressBar progressBar;
 	public JSpinner weekIn;
-	public JTextArea display;
+	public JTable refereeTable;
 	public JMenuItem menuItemNew, menuItemSearch, menuItemAbout;
 	public JComboBox<String> areaList, levelOfMatchList;
 	private Controller controller;
@@ -80,10 +82,14 @@ public final class GUI extends JFrame {
 	 * Layouts the components in the Center.
 	 */
 	private void layoutCenter(){
-		display = new JTextArea();
-		display.setEditable(false);
-		display.setFont(new Font("Courier", Font.BOLD, 14));
-		add(display, BorderLayout.CENTER);
+		//The table only renders the rows that are visible, so it stays responsive with any number of referees.
+		//Its model is set by the controller once the referees have been read.
+		refereeTable = new JTable();
+		refereeTable.setFont(new Font("Courier", Font.BOLD, 14));
+		refereeTable.setRowHeight(20);
+		refereeTable.setFillsViewportHeight(true);
+		refereeTable.getTableHeader().setReorderingAllowed(false);
+		add(new JScrollPane(refereeTable), BorderLayout.CENTER);
 	}
 
 	/**
@@ -96,9 +102,70 @@ public final class GUI extends JFrame {
 		header.setFont(new Font("Courier", Font.ITALIC, 19));
 		top.add(header);
 
+		//Progress of a job that runs in the background, e.g. loading the referees. Only visible while a job runs.
+		progressBar = new JProgressBar(0, 100);
+		progressBar.setStringPainted(true);
+		progressBar.setVisible(false);
+		top.add(progressBar);
+
+		cancelJobButton = new JButton("Cancel");
+		cancelJobButton.addActionListener(controller);
+		cancelJobButton.setVisible(false);
+		top.add(cancelJobButton);
+
 		add(top, BorderLayout.NORTH);
 	}
 
+	/**
+	 * Shows that a job is running in the background and disables the actions that change the referees or the matches until it
+	 * ends, so that the user cannot change the match program while the job uses it.
+	 * @param task	Name of the job.
+	 * @param cancellable	If the Cancel button is enabled.
+	 */
+	public void showProgress(String task, boolean cancellable) {
+		progressBar.setString(task);
+		progressBar.setValue(0);
+		//Until the job reports its progress, e.g. while a snapshot is read, the bar only shows that it is busy.
+		progressBar.setIndeterminate(true);
+		progressBar.setVisible(true);
+		cancelJobButton.setEnabled(cancellable);
+		cancelJobButton.setVisible(true);
+		setActionsEnabled(false);
+	}
+
+	/**
+	 * Shows the progress of the running job.
+	 * @param percent	From 0 to 100.
+	 */
+	public void setProgress(int percent) {
+		progressBar.setIndeterminate(false);
+		progressBar.setValue(percent);
+	}
+
+	/**
+	 * Disables the Cancel button once the running job can no longer be cancelled.
+	 */
+	public void disableCancel() {
+		cancelJobButton.setEnabled(false);
+	}
+
+	/**
+	 * Hides the progress of the job that has ended and enables the actions again.
+	 */
+	public void hideProgress() {
+		progressBar.setVisible(false);
+		cancelJobButton.setVisible(false);
+		setActionsEnabled(true);
+	}
+
+	private void setActionsEnabled(boolean enabled) {
+		allocateButton.setEnabled(enabled);
+		barChartButton.setEnabled(enabled);
+		exitButton.setEnabled(enabled);
+		menuItemNew.setEnabled(enabled);
+		menuItemSearch.setEnabled(enabled);
+	}
+
 	/**
 	 * Adds labels, text fields and buttons to the bottom of the GUI.
 	 */
@@ -4,6 +4,7 @@ import java.awt.*;
 import java.awt.event.*;
 import javax.swing.*;
 import controller.*;
+import model.Referee;
 
 /**
  * The parent GUI class for searching, inserting or editing referees.
@@ -26,6 +27,8 @@ public abstract class RefereeGUI extends JFrame {
 
 	public JComboBox<String> qualCombo, homeCombo;
 	public JCheckBox[] areasArrayCheck;
+	/**Referees that match the names typed so far, only in the search GUI.*/
+	public JList<Referee> suggestions;
 
 	/**
 	 * Constructor
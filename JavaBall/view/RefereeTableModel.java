@@ -0,0 +1,159 @@
+package view;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+
+import model.Match;
+import model.MatchProgram;
+import model.MatchProgramListener;
+import model.Referee;
+import model.RefereeIDComparator;
+
+/**
+ * Table model of the referees of a match program, sorted by their IDs. The cells are read from the referees when the table
+ * paints them, so only the visible rows are rendered, and every change of the match program updates only the rows that it
+ * touches instead of rebuilding the whole list.
+ * The changes are reported on the thread that makes them and are applied to the rows on the event dispatch thread.
+ * @author Team C
+ */
+public final class RefereeTableModel extends AbstractTableModel implements MatchProgramListener {
+
+	private static final long serialVersionUID = 1L;
+
+	/**Titles of the columns.*/
+	private static final String[] COLUMNS = {"ID", "First Name", "Last Name", "Qualification", "Match Allocations", "Locality", "Willing to go [N, C, S]"};
+	private static final int ID = 0, FIRST_NAME = 1, LAST_NAME = 2, QUALIFICATION = 3, MATCHES = 4, LOCALITY = 5, WILLING = 6;
+
+	/**The referees of the rows, sorted by their IDs. Only used on the event dispatch thread.*/
+	private final ArrayList<Referee> rows;
+	private final RefereeIDComparator comparator = new RefereeIDComparator();
+
+	/**
+	 * Constructor that fills the rows with the referees of a match program and listens to its changes.
+	 * @param matchProgram	The match program.
+	 */
+	public RefereeTableModel(MatchProgram matchProgram) {
+		//Listens first, so that no change is missed. A change that is already in the rows is skipped when it arrives.
+		matchProgram.addListener(this);
+		rows = matchProgram.getAllRefsByID();
+	}
+
+	@Override
+	public int getRowCount() {
+		return rows.size();
+	}
+
+	@Override
+	public int getColumnCount() {
+		return COLUMNS.length;
+	}
+
+	@Override
+	public String getColumnName(int column) {
+		return COLUMNS[column];
+	}
+
+	@Override
+	public Class<?> getColumnClass(int column) {
+		return column == MATCHES ? Integer.class : String.class;
+	}
+
+	@Override
+	public Object getValueAt(int row, int column) {
+		Referee ref = rows.get(row);
+		switch (column) {
+		case ID:
+			return ref.getRefID();
+		case FIRST_NAME:
+			return ref.getFirstName();
+		case LAST_NAME:
+			return ref.getLastName();
+		case QUALIFICATION:
+			return ref.getQualification();
+		case MATCHES:
+			return ref.getMatchesAllocated();
+		case LOCALITY:
+			return ref.getStringLocality();
+		case WILLING:
+			return ref.getStringWilling();
+		default:
+			return null;
+		}
+	}
+
+	@Override
+	public void refereeInserted(final Referee ref) {
+		onEventThread(new Runnable() {
+			@Override
+			public void run() {
+				int row = Collections.binarySearch(rows, ref, comparator);
+				if (row < 0) {
+					row = -row - 1;
+					rows.add(row, ref);
+					fireTableRowsInserted(row, row);
+				}
+			}
+		});
+	}
+
+	@Override
+	public void refereeUpdated(final Referee ref) {
+		onEventThread(new Runnable() {
+			@Override
+			public void run() {
+				rowUpdated(ref);
+			}
+		});
+	}
+
+	@Override
+	public void refereeDeleted(final Referee ref) {
+		onEventThread(new Runnable() {
+			@Override
+			public void run() {
+				int row = Collections.binarySearch(rows, ref, comparator);
+				if (row >= 0) {
+					rows.remove(row);
+					fireTableRowsDeleted(row, row);
+				}
+			}
+		});
+	}
+
+	@Override
+	public void matchAllocated(Match match) {
+		final Referee first = match.getFirstReferee(), second = match.getSecondReferee();
+		onEventThread(new Runnable() {
+			@Override
+			public void run() {
+				rowUpdated(first);
+				rowUpdated(second);
+			}
+		});
+	}
+
+	/**
+	 * Repaints the row of a referee, if he is in the table.
+	 */
+	private void rowUpdated(Referee ref) {
+		int row = Collections.binarySearch(rows, ref, comparator);
+		if (row >= 0) {
+			fireTableRowsUpdated(row, row);
+		}
+	}
+
+	/**
+	 * Runs a change of the rows on the event dispatch thread. A change made on that thread, e.g. by the GUI, is applied at once,
+	 * so the table is up to date as soon as the change returns.
+	 */
+	private static void onEventThread(Runnable change) {
+		if (SwingUtilities.isEventDispatchThread()) {
+			change.run();
+		} else {
+			SwingUtilities.invokeLater(change);
+		}
+	}
+}
@@ -1,10 +1,14 @@
 package view;
 
+import java.awt.*;
 import javax.swing.*;
 import controller.*;
+import model.Referee;
 
 /**
  * Sets up a RefereeGUI to search for a referee.
+ * The referees that match the names typed so far are suggested below them, and one of them can be picked instead of typing
+ * the full name.
  * @author Team C
  */
 public final class SearchRefGUI extends RefereeGUI {
@@ -12,13 +16,43 @@ public final class SearchRefGUI extends RefereeGUI {
 	public SearchRefGUI(Controller controller){
 		super(controller);
 		setTitle("Search Referee");
-		setSize(350, 170);
+		setSize(350, 330);
 		//Display this dialog in the center of the screen
 		setLocationRelativeTo(null);
-		setVisible(true);	
 
-		//Layouts the search specific buttons
+		//Layouts the suggestions and the search specific buttons
+		layoutSuggestions();
 		layoutSearchButtons();
+		setVisible(true);
+	}
+
+	/**
+	 * Lays out the list of the suggested referees under the names.
+	 */
+	private void layoutSuggestions(){
+		suggestions = new JList<Referee>();
+		suggestions.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+		//Every suggestion shows the ID and the full name of the referee.
+		suggestions.setCellRenderer(new DefaultListCellRenderer() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+				Referee ref = (Referee) value;
+				return super.getListCellRendererComponent(list, ref.getRefID() + "  " + ref.getFirstName() + " " + ref.getLastName(), index, isSelected, cellHasFocus);
+			}
+		});
+		JScrollPane scroll = new JScrollPane(suggestions);
+		scroll.setPreferredSize(new Dimension(300, 150));
+
+		//The list is placed in the 3rd row, both columns
+		GridBagConstraints constraint = new GridBagConstraints();
+		constraint.gridx = 0;
+		constraint.gridy = 2;
+		constraint.gridwidth = 2;
+		constraint.weightx = 1.0;
+		constraint.weighty = 1.0;
+		add(scroll, constraint);
 	}
 
 	/**
@@ -36,4 +70,4 @@ public final class SearchRefGUI extends RefereeGUI {
 		//Call superclass's method to insert the cancel button to the JPanel and add the JPanel to the JFrame
 		layoutCancelBtn(btnPanel);
 	}
-}
\ No newline at end of file
+}
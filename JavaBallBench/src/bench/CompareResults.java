@@ -0,0 +1,110 @@
+package bench;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares two JMH result files written with -rf csv, e.g. the results of the last release and of a new build.
+ * Usage: java bench.CompareResults baseline.csv candidate.csv
+ * Prints the score of every benchmark in both files and the change, and marks the changes that are larger than the sum of
+ * the two error margins. Exits with 1 if any benchmark got slower by more than its error margins.
+ * @author Team C
+ */
+public final class CompareResults {
+
+	/**A score of a result file.*/
+	private static final class Score {
+		private final String mode, unit;
+		private final double score, error;
+
+		Score(String mode, double score, double error, String unit) {
+			this.mode = mode;
+			this.score = score;
+			this.error = error;
+			this.unit = unit;
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Usage: java bench.CompareResults <baseline.csv> <candidate.csv>");
+			System.exit(2);
+		}
+		Map<String, Score> baseline = read(args[0]);
+		Map<String, Score> candidate = read(args[1]);
+
+		boolean regression = false;
+		System.out.println(String.format("%-70s %14s %14s %9s", "Benchmark", "Baseline", "Candidate", "Change"));
+		for (Map.Entry<String, Score> entry : candidate.entrySet()) {
+			Score now = entry.getValue();
+			Score before = baseline.get(entry.getKey());
+			if (before == null) {
+				System.out.println(String.format("%-70s %14s %14.3f %9s  %s", entry.getKey(), "-", now.score, "new", now.unit));
+				continue;
+			}
+			double change = (now.score - before.score) / before.score * 100;
+			//In throughput mode a higher score is better, in the time modes a lower one.
+			boolean higherIsBetter = now.mode.equals("thrpt");
+			boolean significant = Math.abs(now.score - before.score) > now.error + before.error;
+			boolean worse = significant && (higherIsBetter ? change < 0 : change > 0);
+			regression |= worse;
+			System.out.println(String.format("%-70s %14.3f %14.3f %+8.1f%%  %s%s", entry.getKey(), before.score, now.score, change,
+					now.unit, worse ? "  SLOWER" : significant ? "  faster" : ""));
+		}
+		System.exit(regression ? 1 : 0);
+	}
+
+	/**
+	 * Reads a result file. The key of every score is the benchmark followed by its parameters.
+	 */
+	private static Map<String, Score> read(String fileName) throws IOException {
+		LinkedHashMap<String, Score> scores = new LinkedHashMap<String, Score>();
+		BufferedReader reader = new BufferedReader(new FileReader(fileName));
+		try {
+			String line = reader.readLine();
+			if (line == null) {
+				return scores;
+			}
+			ArrayList<String> header = split(line);
+			int benchmark = header.indexOf("Benchmark"), mode = header.indexOf("Mode"), score = header.indexOf("Score");
+			int error = header.indexOf("Score Error (99.9%)"), unit = header.indexOf("Unit");
+			if (benchmark < 0 || mode < 0 || score < 0 || error < 0 || unit < 0) {
+				throw new IOException(fileName + " is not a JMH csv result file");
+			}
+			while ((line = reader.readLine()) != null) {
+				ArrayList<String> fields = split(line);
+				StringBuilder key = new StringBuilder(fields.get(benchmark));
+				for (int i = 0; i < header.size(); i++) {
+					if (header.get(i).startsWith("Param: ")) {
+						key.append(' ').append(header.get(i).substring(7)).append('=').append(fields.get(i));
+					}
+				}
+				//Single shot runs with one sample have no error margin.
+				String margin = fields.get(error);
+				scores.put(key.toString(), new Score(fields.get(mode), Double.parseDouble(fields.get(score)),
+						margin.isEmpty() || margin.equals("NaN") ? 0 : Double.parseDouble(margin), fields.get(unit)));
+			}
+		} finally {
+			reader.close();
+		}
+		return scores;
+	}
+
+	/**
+	 * Splits a csv line. Fields may be quoted, and JMH does not quote commas inside fields.
+	 */
+	private static ArrayList<String> split(String line) {
+		ArrayList<String> fields = new ArrayList<String>();
+		for (String field : line.split(",", -1)) {
+			if (field.length() >= 2 && field.startsWith("\"") && field.endsWith("\"")) {
+				field = field.substring(1, field.length() - 1);
+			}
+			fields.add(field);
+		}
+		return fields;
+	}
+}
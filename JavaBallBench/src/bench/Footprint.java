@@ -0,0 +1,65 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+
+import model.DataGenerator;
+import model.MatchProgram;
+import model.Referee;
+import model.RefereeLoader;
+
+/**
+ * Measures the heap that a roster takes: the referees on their own, and the roster loaded into a match program with its
+ * indexes and candidate heaps.
+ * Usage: java bench.Footprint [referee count]
+ * Uses a synthetic roster of the given size, 1,000,000 by default, and prints the growth of the heap in use after a full
+ * collection. Run it with the same -Xmx and collector on two builds to compare them.
+ * @author Team C
+ */
+public final class Footprint {
+
+	public static void main(String[] args) throws IOException {
+		int size = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+		long before = usedAfterGC();
+		List<Referee> refs = Rosters.referees(size, Rosters.SEED);
+		report("referees", refs.size(), usedAfterGC() - before);
+		refs = null;
+
+		File file = File.createTempFile("footprint", ".txt");
+		try {
+			new DataGenerator(Rosters.SEED).writeReferees(size, file);
+
+			before = usedAfterGC();
+			MatchProgram matchProgram = new MatchProgram();
+			RefereeLoader.load(file, matchProgram);
+			report("match program", matchProgram.getRefCount(), usedAfterGC() - before);
+		} finally {
+			file.delete();
+		}
+	}
+
+	private static void report(String what, int count, long bytes) {
+		System.out.println(String.format("%-14s %,11d referees %,15d bytes %,6d bytes per referee", what, count, bytes, bytes / Math.max(1, count)));
+	}
+
+	/**
+	 * Returns the heap in use after the garbage collector has run until the heap stops shrinking.
+	 */
+	private static long usedAfterGC() {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		long used = Long.MAX_VALUE;
+		for (int i = 0; i < 10; i++) {
+			memory.gc();
+			long now = memory.getHeapMemoryUsage().getUsed();
+			if (now >= used) {
+				break;
+			}
+			used = now;
+		}
+		return used;
+	}
+}
@@ -0,0 +1,52 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import model.DataGenerator;
+import model.Referee;
+
+/**
+ * Synthetic rosters for the benchmarks, made by the DataGenerator with its default settings. The same size and seed always give the same roster.
+ * @author Team C
+ */
+public final class Rosters {
+
+	/**Seed of the rosters of the benchmarks.*/
+	public static final long SEED = 20150914L;
+
+	private Rosters() {
+	}
+
+	/**
+	 * Returns the lines of a roster.
+	 * @param size	Number of referees.
+	 * @param seed	Seed of the random choices.
+	 * @return
+	 */
+	public static List<String> lines(int size, long seed) {
+		DataGenerator generator = new DataGenerator(seed);
+		ArrayList<String> lines = new ArrayList<String>(size);
+		StringBuilder line = new StringBuilder();
+		for (int i = 0; i < size; i++) {
+			line.setLength(0);
+			generator.appendReferee(line);
+			lines.add(line.toString());
+		}
+		return lines;
+	}
+
+	/**
+	 * Returns the referees of a roster.
+	 * @param size	Number of referees.
+	 * @param seed	Seed of the random choices.
+	 * @return
+	 */
+	public static List<Referee> referees(int size, long seed) {
+		ArrayList<Referee> refs = new ArrayList<Referee>(size);
+		for (String line : lines(size, seed)) {
+			refs.add(new Referee(line));
+		}
+		return refs;
+	}
+}
@@ -0,0 +1,114 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import model.DataGenerator;
+import model.Fixture;
+import model.Match;
+import model.MatchProgram;
+import model.Referee;
+import model.SeasonResult;
+
+/**
+ * Checks that the season solver is never worse than the allocation fixture by fixture under the cost that the solver minimises:
+ * 10 for every area that a referee travels, plus, for every referee, his matches before each of his new matches.
+ * Usage: java bench.SolverCheck [referee count fixture count]...
+ * Allocates a synthetic season of every size with allocateSeason and with allocateSeasonOptimally, on the same roster, and
+ * prints the matches staffed, the cost, the travel, the most matches of a referee and the time of both. Without arguments it
+ * runs 500 referees with 1,000 fixtures, 300 with 3,000, 100 with 3,000 and 5,000 with 20,000.
+ * Exits with 1 if the solver staffed fewer matches on any size, or as many at a higher cost.
+ * @author Team C
+ */
+public final class SolverCheck {
+
+	/**Cost of every area that a referee travels, as in the solver.*/
+	private static final int DISTANCE_COST = 10;
+	/**Time that the solver may take, far more than it needs, so that it never falls back.*/
+	private static final long TIME_BUDGET_MILLIS = 600000;
+	private static final int WEEKS = 52;
+	private static final int[][] DEFAULT_SIZES = {{500, 1000}, {300, 3000}, {100, 3000}, {5000, 20000}};
+
+	/**The outcome of an allocation.*/
+	private static final class Outcome {
+		private int staffed, travel, maxMatches;
+		private long cost, millis;
+	}
+
+	public static void main(String[] args) {
+		int[][] sizes = DEFAULT_SIZES;
+		if (args.length > 0) {
+			if (args.length % 2 != 0) {
+				System.err.println("Usage: java bench.SolverCheck [<referee count> <fixture count>]...");
+				System.exit(2);
+			}
+			sizes = new int[args.length / 2][];
+			for (int i = 0; i < sizes.length; i++) {
+				sizes[i] = new int[] {Integer.parseInt(args[2 * i]), Integer.parseInt(args[2 * i + 1])};
+			}
+		}
+
+		boolean worse = false;
+		System.out.println(String.format("%9s %9s  %-7s %8s %12s %8s %6s %9s", "Referees", "Fixtures", "Method", "Staffed", "Cost",
+				"Travel", "Most", "Time"));
+		for (int[] size : sizes) {
+			List<Fixture> fixtures = fixtures(size[1]);
+			Outcome greedy = run(size[0], fixtures, false);
+			Outcome solver = run(size[0], fixtures, true);
+			boolean solverWorse = solver.staffed < greedy.staffed || solver.staffed == greedy.staffed && solver.cost > greedy.cost;
+			worse |= solverWorse;
+			print(size, "greedy", greedy, "");
+			print(size, "solver", solver, solverWorse ? "  WORSE" : "");
+		}
+		System.exit(worse ? 1 : 0);
+	}
+
+	/**
+	 * Returns the fixtures of a season, spread evenly over the weeks as DataGenerator.writeFixtures does.
+	 */
+	private static List<Fixture> fixtures(int count) {
+		DataGenerator generator = new DataGenerator(Rosters.SEED);
+		ArrayList<Fixture> fixtures = new ArrayList<Fixture>(count);
+		StringBuilder line = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			line.setLength(0);
+			generator.appendFixture(1 + (int) ((long) i * WEEKS / count), line);
+			fixtures.add(Fixture.parse(line.toString()));
+		}
+		return fixtures;
+	}
+
+	/**
+	 * Allocates a season on a new roster and measures it.
+	 */
+	private static Outcome run(int refereeCount, List<Fixture> fixtures, boolean optimally) {
+		MatchProgram matchProgram = new MatchProgram();
+		matchProgram.insertInitialRefs(Rosters.referees(refereeCount, Rosters.SEED));
+
+		Outcome outcome = new Outcome();
+		long start = System.nanoTime();
+		SeasonResult result = optimally ? matchProgram.allocateSeasonOptimally(fixtures, TIME_BUDGET_MILLIS)
+				: matchProgram.allocateSeason(fixtures);
+		outcome.millis = (System.nanoTime() - start) / 1000000;
+
+		outcome.staffed = result.getAllocated().size();
+		for (Match match : result.getAllocated()) {
+			outcome.travel += Math.abs(match.getFirstReferee().getLocality() - match.getMatchArea());
+			outcome.travel += Math.abs(match.getSecondReferee().getLocality() - match.getMatchArea());
+		}
+		outcome.cost = (long) DISTANCE_COST * outcome.travel;
+		for (Referee ref : matchProgram.getAllRefs()) {
+			int before = ref.getMatchesAllocated() - ref.getActualMatches();
+			for (int k = 0; k < ref.getActualMatches(); k++) {
+				outcome.cost += before + k;
+			}
+			outcome.maxMatches = Math.max(outcome.maxMatches, ref.getMatchesAllocated());
+		}
+		return outcome;
+	}
+
+	private static void print(int[] size, String method, Outcome outcome, String mark) {
+		System.out.println(String.format("%,9d %,9d  %-7s %,8d %,12d %,8d %6d %,7d ms%s", size[0], size[1], method, outcome.staffed,
+				outcome.cost, outcome.travel, outcome.maxMatches, outcome.millis, mark));
+	}
+}
@@ -0,0 +1,101 @@
+package model;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bench.Rosters;
+
+/**
+ * Measures Match.allocateRefs, including the write lock that MatchProgram takes around it.
+ * Every call allocates a match of the same week and then cancels the booking of its referees, so that every call picks from
+ * the whole roster as the first match of a week does. The matches of the referees keep growing, so the heaps keep moving.
+ * allocateRefsReused allocates the same three matches again and again, so it measures the allocation path on its own. Run it
+ * with -prof gc: its gc.alloc.rate.norm should stay at about 0 bytes per operation.
+ * allocateRefsInstrumented does the same with the metrics that MatchProgram records around every allocation, so the two
+ * together give the cost of the metrics on the allocation path.
+ * @author Team C
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AllocationBenchmark {
+
+	@Param({"10", "10000", "1000000"})
+	public int size;
+
+	@Param({"Junior", "Senior"})
+	public String level;
+
+	private RefereeRegistry registry;
+	private int area;
+	/**A match of every area, reused by allocateRefsReused.*/
+	private Match[] matches;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		registry = new RefereeRegistry();
+		for (Referee ref : Rosters.referees(size, Rosters.SEED)) {
+			registry.add(ref);
+		}
+		matches = new Match[3];
+		for (int i = 0; i < matches.length; i++) {
+			matches[i] = new Match(1, i, level);
+		}
+	}
+
+	@Benchmark
+	public AllocationStatus allocateRefs() {
+		Match match = new Match(1, area, level);
+		area = (area + 1) % 3;
+		return allocate(match);
+	}
+
+	@Benchmark
+	public AllocationStatus allocateRefsReused() {
+		Match match = matches[area];
+		area = (area + 1) % 3;
+		return allocate(match);
+	}
+
+	@Benchmark
+	public AllocationStatus allocateRefsInstrumented() {
+		Match match = matches[area];
+		area = (area + 1) % 3;
+		long start = Metrics.ALLOCATE.start();
+		AllocationStatus status = allocate(match);
+		Metrics.ALLOCATE.stop(start, status.ordinal());
+		return status;
+	}
+
+	private AllocationStatus allocate(Match match) {
+		AllocationStatus status;
+		Lock lock = registry.lock.writeLock();
+		lock.lock();
+		try {
+			status = match.allocateRefs(registry);
+		} finally {
+			lock.unlock();
+		}
+		if (status == AllocationStatus.ALLOCATED) {
+			match.getFirstReferee().releaseWeek(1);
+			match.getSecondReferee().releaseWeek(1);
+		}
+		return status;
+	}
+}
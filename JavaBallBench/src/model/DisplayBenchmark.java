@@ -0,0 +1,49 @@
+package model;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bench.Rosters;
+
+/**
+ * Measures MatchProgram.displayRefereesList, which the GUI used to call after every change. The GUI now shows the referees
+ * in a RefereeTableModel, which only renders the visible rows and updates the rows that a change touches, so this is the cost
+ * that it avoids.
+ * @author Team C
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DisplayBenchmark {
+
+	@Param({"10", "10000", "1000000"})
+	public int size;
+
+	private MatchProgram matchProgram;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		matchProgram = new MatchProgram();
+		matchProgram.insertInitialRefs(Rosters.referees(size, Rosters.SEED));
+	}
+
+	@Benchmark
+	public String displayRefereesList() {
+		return matchProgram.displayRefereesList();
+	}
+}
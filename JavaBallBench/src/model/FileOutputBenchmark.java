@@ -0,0 +1,81 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bench.Rosters;
+
+/**
+ * Measures FileOutput.RefOut and FileOutput.MatchOut, writing to a temporary directory. Every call replaces the previous file,
+ * and forces it to the disk, as saving does.
+ * Every week gets up to FIXTURES fixtures, as many as the roster can staff, so matchOut writes a full calendar.
+ * @author Team C
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileOutputBenchmark {
+
+	/**Number of fixtures allocated to every week.*/
+	private static final int FIXTURES = 200;
+
+	@Param({"10", "10000", "1000000"})
+	public int size;
+
+	private File directory;
+	private MatchProgram matchProgram;
+	private FileOutput fileOutput;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("javaball-bench").toFile();
+		matchProgram = new MatchProgram();
+		matchProgram.insertInitialRefs(Rosters.referees(size, Rosters.SEED));
+		for (int week = 1; week <= 52; week++) {
+			for (int fixture = 0; fixture < FIXTURES; fixture++) {
+				matchProgram.allocateRefsToMatch(week, (week + fixture) % 3, fixture % 2 == 0 ? "Senior" : "Junior");
+			}
+		}
+		fileOutput = new FileOutput(matchProgram.getCalendar(), directory);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	@Benchmark
+	public File refOut() throws IOException {
+		//RefOut is given the referees in the order of their IDs, as the callers of RefOut get them from the match program.
+		fileOutput.RefOut(matchProgram.getAllRefsByID());
+		return directory;
+	}
+
+	@Benchmark
+	public File matchOut() throws IOException {
+		fileOutput.MatchOut();
+		return directory;
+	}
+}
@@ -0,0 +1,104 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bench.Rosters;
+
+/**
+ * Measures the lookup of a referee by his full name, MatchProgram.selectRef, the choice of the ID of a new referee,
+ * which MatchProgram.giveID takes from RefereeRegistry.nextID, and the list of the suitable referees of a match that the GUI
+ * shows, which RefereeRegistry.rank collects from the eligibility index.
+ * searchPrefix and searchTypo measure MatchProgram.searchRefs as the search GUI calls it while the user types: the first
+ * letters of both names, and a full last name with a wrong letter. Both should stay well under a millisecond at 1000000.
+ * @author Team C
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+
+	/**Number of the names that the lookups go through.*/
+	private static final int NAMES = 1024;
+	/**Number of referees that the search GUI suggests.*/
+	private static final int SUGGESTIONS = 50;
+
+	@Param({"10", "10000", "1000000"})
+	public int size;
+
+	private MatchProgram matchProgram;
+	private RefereeRegistry registry;
+	private String[] firstNames, lastNames, prefixes, typos;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		List<Referee> refs = Rosters.referees(size, Rosters.SEED);
+		matchProgram = new MatchProgram();
+		matchProgram.insertInitialRefs(refs);
+		registry = new RefereeRegistry();
+		for (Referee ref : refs) {
+			registry.add(ref);
+		}
+
+		//The names are spread over the roster, so the lookups do not keep hitting the same cache lines.
+		firstNames = new String[NAMES];
+		lastNames = new String[NAMES];
+		prefixes = new String[NAMES];
+		typos = new String[NAMES];
+		for (int i = 0; i < NAMES; i++) {
+			Referee ref = refs.get((int) ((long) i * refs.size() / NAMES));
+			//Copies of the names, so that the lookups have to hash and compare them as a user's input would be.
+			firstNames[i] = new String(ref.getFirstName());
+			lastNames[i] = new String(ref.getLastName());
+			prefixes[i] = firstNames[i].substring(0, Math.min(3, firstNames[i].length())) + " " + lastNames[i].substring(0, Math.min(4, lastNames[i].length()));
+			char[] typo = lastNames[i].toCharArray();
+			typo[typo.length / 2] = typo[typo.length / 2] == 'x' ? 'y' : 'x';
+			typos[i] = new String(typo);
+		}
+	}
+
+	@Benchmark
+	public Referee selectRef() {
+		int i = next++ & (NAMES - 1);
+		return matchProgram.selectRef(firstNames[i], lastNames[i]);
+	}
+
+	@Benchmark
+	public String giveID() {
+		int i = next++ & (NAMES - 1);
+		return registry.nextID(firstNames[i], lastNames[i]);
+	}
+
+	@Benchmark
+	public ArrayList<Referee> searchPrefix() {
+		return matchProgram.searchRefs(prefixes[next++ & (NAMES - 1)], SUGGESTIONS);
+	}
+
+	@Benchmark
+	public ArrayList<Referee> searchTypo() {
+		return matchProgram.searchRefs(typos[next++ & (NAMES - 1)], SUGGESTIONS);
+	}
+
+	@Benchmark
+	public ArrayList<Referee> rank() {
+		return registry.rank(Referee.AREA_CENTRAL, (next++ & 1) == 0);
+	}
+}
@@ -0,0 +1,72 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bench.Rosters;
+
+/**
+ * Measures the parsing of a line of RefereesIn.txt by the Referee(String) constructor and by the RefereeLineParser that the loader uses.
+ * @author Team C
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+	/**Number of the lines that the parsers go through.*/
+	private static final int LINES = 1024;
+
+	private String[] lines;
+	/**The same lines encoded as UTF-8, and the offset of every line in the buffer.*/
+	private ByteBuffer buffer;
+	private int[] offsets;
+	private RefereeLineParser parser;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		List<String> roster = Rosters.lines(LINES, Rosters.SEED);
+		lines = roster.toArray(new String[LINES]);
+
+		offsets = new int[LINES + 1];
+		byte[][] encoded = new byte[LINES][];
+		for (int i = 0; i < LINES; i++) {
+			encoded[i] = lines[i].getBytes(StandardCharsets.UTF_8);
+			offsets[i + 1] = offsets[i] + encoded[i].length;
+		}
+		buffer = ByteBuffer.allocateDirect(offsets[LINES]);
+		for (byte[] line : encoded) {
+			buffer.put(line);
+		}
+		parser = new RefereeLineParser();
+	}
+
+	@Benchmark
+	public Referee refereeConstructor() {
+		return new Referee(lines[next++ & (LINES - 1)]);
+	}
+
+	@Benchmark
+	public Referee lineParser() {
+		int i = next++ & (LINES - 1);
+		return parser.parse(buffer, offsets[i], offsets[i + 1]);
+	}
+}